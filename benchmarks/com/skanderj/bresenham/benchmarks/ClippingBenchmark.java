@@ -0,0 +1,52 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.util.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Palette;
+import com.skanderj.bresenham.Triangle;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Clipping a single triangle against the left screen edge - inside, outside &
+ * both split cases
+ */
+@State(Scope.Thread)
+public class ClippingBenchmark {
+	@Param({ "inside", "outside", "oneInside", "twoInside" })
+	public String configuration;
+
+	private Vector4D planePoint, planeNormal;
+	private Triangle triangle;
+
+	@Setup
+	public void setup() {
+		this.planePoint = new Vector4D(0.0, 0.0, 0.0);
+		this.planeNormal = new Vector4D(1.0, 0.0, 0.0);
+		switch (this.configuration) {
+		case "inside":
+			this.triangle = new Triangle(new Vector4D(10.0, 10.0, 0.5), new Vector4D(100.0, 20.0, 0.5), new Vector4D(50.0, 90.0, 0.5), Palette.WHITE);
+			break;
+		case "outside":
+			this.triangle = new Triangle(new Vector4D(-10.0, 10.0, 0.5), new Vector4D(-100.0, 20.0, 0.5), new Vector4D(-50.0, 90.0, 0.5), Palette.WHITE);
+			break;
+		case "oneInside":
+			this.triangle = new Triangle(new Vector4D(10.0, 10.0, 0.5), new Vector4D(-100.0, 20.0, 0.5), new Vector4D(-50.0, 90.0, 0.5), Palette.WHITE);
+			break;
+		default:
+			this.triangle = new Triangle(new Vector4D(10.0, 10.0, 0.5), new Vector4D(100.0, 20.0, 0.5), new Vector4D(-50.0, 90.0, 0.5), Palette.WHITE);
+			break;
+		}
+	}
+
+	@Benchmark
+	public Vector<Triangle> clipAgainstPlane() {
+		return Bresenham.clipAgainstPlane(this.planePoint, this.planeNormal, this.triangle);
+	}
+}
@@ -0,0 +1,81 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Camera;
+import com.skanderj.bresenham.Mesh;
+import com.skanderj.bresenham.Pipeline;
+import com.skanderj.bresenham.Rasterizer;
+import com.skanderj.bresenham.main.Headless;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Camera flying low through the mountains terrain, most of which is off screen
+ * at any time - one frame per invocation along a looping path, with & without
+ * frustum culling through the bounding volume hierarchy, clipping triangles to
+ * the screen edges or to the default guard band
+ */
+@State(Scope.Thread)
+public class FlythroughBenchmark {
+	// Frames along the camera path before it loops
+	private static final int PATH_FRAMES = 240;
+	private static final String CAMERA_PATH = "0,12,-70,0;0,10,0,0.8;40,14,40,2.4;-30,12,30,4.0;0,12,-70,6.28";
+
+	@Param({ "mountains.obj" })
+	public String model;
+
+	@Param({ "true", "false" })
+	public boolean frustumCulling;
+
+	@Param({ "0", "1024" })
+	public int guardBand;
+
+	private Mesh mesh;
+	private Pipeline pipeline;
+	private Rasterizer rasterizer;
+	private Matrix4 projectionMatrix, worldMatrix;
+	private Vector4D lightDirection;
+	private Camera camera;
+	private double[][] keyframes;
+	private int frame;
+
+	@Setup
+	public void setup() throws IOException {
+		this.mesh = Mesh.loadFromFile(Models.path(this.model));
+		this.pipeline = new Pipeline(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		this.pipeline.setFrustumCulling(this.frustumCulling);
+		this.pipeline.setGuardBand(this.guardBand);
+		this.rasterizer = new Rasterizer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		this.projectionMatrix = Matrix4.projection(Bresenham.FIELD_OF_VIEW_IN_DEGREES, Bresenham.ASPECT_RATIO, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD, new Matrix4());
+		this.worldMatrix = Matrix4.identity();
+		this.lightDirection = Vector4D.normalize(new Vector4D(0.0, 1.0, -1.0));
+		this.camera = new Camera(new Vector4D(0.0, 0.0, 0.0), 0.0);
+		this.keyframes = Headless.parseCameraPath(FlythroughBenchmark.CAMERA_PATH);
+		this.frame = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.pipeline.shutdown();
+	}
+
+	@Benchmark
+	public Rasterizer renderFrame() {
+		Headless.positionCamera(this.camera, this.keyframes, (double) this.frame / FlythroughBenchmark.PATH_FRAMES);
+		this.frame = (this.frame + 1) % FlythroughBenchmark.PATH_FRAMES;
+		this.rasterizer.clear(0xFF000000);
+		this.pipeline.beginFrame(this.camera.getViewMatrix(), this.projectionMatrix, this.camera.location, this.lightDirection);
+		this.pipeline.submit(this.mesh, this.worldMatrix);
+		this.pipeline.endFrame(this.rasterizer);
+		return this.rasterizer;
+	}
+}
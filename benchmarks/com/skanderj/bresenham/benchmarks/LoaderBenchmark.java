@@ -0,0 +1,48 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.skanderj.bresenham.Mesh;
+import com.skanderj.bresenham.MeshCache;
+import com.skanderj.bresenham.ObjLoader;
+
+/**
+ * Loading the bundled models - the original line by line loader against the
+ * memory-mapped one & the binary cache. Throughput in MB/s is the file size
+ * times ops/s
+ */
+@State(Scope.Thread)
+public class LoaderBenchmark {
+	@Param({ "mountains.obj", "teapot.obj" })
+	public String model;
+
+	private String path;
+
+	@Setup
+	public void setup() throws IOException {
+		this.path = Models.path(this.model);
+		// Makes sure the cache exists & is up to date
+		MeshCache.load(this.path);
+	}
+
+	@Benchmark
+	public Mesh bufferedReader() throws IOException {
+		return Mesh.loadFromFileWithReader(this.path);
+	}
+
+	@Benchmark
+	public Mesh memoryMapped() throws IOException {
+		return ObjLoader.load(this.path);
+	}
+
+	@Benchmark
+	public Mesh binaryCache() throws IOException {
+		return MeshCache.load(this.path);
+	}
+}
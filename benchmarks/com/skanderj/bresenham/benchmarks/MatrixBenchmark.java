@@ -0,0 +1,72 @@
+package com.skanderj.bresenham.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.math.Matrix;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Generic n-by-n matrices against the fixed-size ones, on the matrices the
+ * camera path actually uses
+ */
+@State(Scope.Thread)
+public class MatrixBenchmark {
+	private Matrix firstMatrix, secondMatrix, cameraMatrix;
+	private Matrix4 firstMatrix4, secondMatrix4, cameraMatrix4, resultMatrix4;
+
+	@Setup
+	public void setup() {
+		this.firstMatrix = Matrix.random(4, 4, 10);
+		this.secondMatrix = Matrix.random(4, 4, 10);
+		this.firstMatrix4 = new Matrix4(this.firstMatrix);
+		this.secondMatrix4 = new Matrix4(this.secondMatrix);
+		this.cameraMatrix4 = Matrix4.pointAt(new Vector4D(1.0, 2.0, 3.0), new Vector4D(1.5, 2.0, 4.0), new Vector4D(0.0, 1.0, 0.0), new Matrix4());
+		this.cameraMatrix = this.cameraMatrix4.toMatrix();
+		this.resultMatrix4 = new Matrix4();
+	}
+
+	@Benchmark
+	public Matrix product() {
+		return Matrix.product(this.firstMatrix, this.secondMatrix);
+	}
+
+	@Benchmark
+	public Matrix4 productMatrix4() {
+		return Matrix4.product(this.firstMatrix4, this.secondMatrix4, this.resultMatrix4);
+	}
+
+	@Benchmark
+	public Matrix inverse() {
+		return Matrix.inverse(this.firstMatrix);
+	}
+
+	@Benchmark
+	public Matrix4 inverseMatrix4() {
+		return Matrix4.inverse(this.firstMatrix4, this.resultMatrix4);
+	}
+
+	@Benchmark
+	public Matrix realInverse() {
+		return Bresenham.realInverse(this.cameraMatrix);
+	}
+
+	@Benchmark
+	public Matrix quickInverse() {
+		return Bresenham.quickInverse(this.cameraMatrix);
+	}
+
+	@Benchmark
+	public Matrix4 realInverseMatrix4() {
+		return Bresenham.realInverse(this.cameraMatrix4, this.resultMatrix4);
+	}
+
+	@Benchmark
+	public Matrix4 quickInverseMatrix4() {
+		return Bresenham.quickInverse(this.cameraMatrix4, this.resultMatrix4);
+	}
+}
@@ -0,0 +1,22 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.io.File;
+
+/**
+ * Locates the bundled .obj models - the build passes their directory through
+ * the bresenham.models property
+ */
+public final class Models {
+	public static final String DIRECTORY_PROPERTY = "bresenham.models";
+
+	private Models() {
+		return;
+	}
+
+	/**
+	 * Returns the path of a model in the models directory
+	 */
+	public static String path(String fileName) {
+		return new File(System.getProperty(Models.DIRECTORY_PROPERTY, "obj"), fileName).getPath();
+	}
+}
@@ -0,0 +1,57 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Rasterizer;
+
+/**
+ * Filling single triangles of growing size & clearing the buffers
+ */
+@State(Scope.Thread)
+public class RasterizerBenchmark {
+	// Top-left corner of the benchmarked triangles
+	private static final int ORIGIN = 100;
+
+	@Param({ "4", "32", "256" })
+	public double size;
+
+	private Rasterizer rasterizer;
+
+	@Setup
+	public void setup() {
+		this.rasterizer = new Rasterizer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		this.rasterizer.clear(0);
+	}
+
+	/**
+	 * Resets the depth of the covered area so every pixel passes the depth test
+	 */
+	@Setup(Level.Invocation)
+	public void resetDepth() {
+		int extent = (int) Math.ceil(this.size) + 1;
+		for (int y = RasterizerBenchmark.ORIGIN; y <= (RasterizerBenchmark.ORIGIN + extent); y += 1) {
+			int offset = (y * this.rasterizer.width) + RasterizerBenchmark.ORIGIN;
+			Arrays.fill(this.rasterizer.depth, offset, offset + extent + 1, Float.POSITIVE_INFINITY);
+		}
+	}
+
+	@Benchmark
+	public Rasterizer fillTriangle() {
+		this.rasterizer.fillTriangle(RasterizerBenchmark.ORIGIN, RasterizerBenchmark.ORIGIN, 0.5, RasterizerBenchmark.ORIGIN + this.size, RasterizerBenchmark.ORIGIN, 0.5, RasterizerBenchmark.ORIGIN, RasterizerBenchmark.ORIGIN + this.size, 0.5, 0xFFFFFFFF);
+		return this.rasterizer;
+	}
+
+	@Benchmark
+	public Rasterizer clear() {
+		this.rasterizer.clear(0);
+		return this.rasterizer;
+	}
+}
@@ -0,0 +1,78 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Mesh;
+import com.skanderj.bresenham.Pipeline;
+import com.skanderj.bresenham.Rasterizer;
+import com.skanderj.bresenham.TileRenderer;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * One full frame (clear, transform, clip, sort & rasterize) per model, with
+ * the default camera of the game - blitting to the window isn't included
+ */
+@State(Scope.Thread)
+public class RenderBenchmark {
+	@Param({ "axis.obj", "cube.obj", "MaleLow.obj", "mountains.obj", "RubixCube.obj", "spaceship.obj", "teapot.obj" })
+	public String model;
+
+	// Threads - 1 does everything on the benchmark thread, more transform large
+	// meshes in parallel & rasterize through tiles
+	@Param({ "1", "4" })
+	public int threads;
+
+	@Param({ "DEPTH_BUFFER", "PAINTER" })
+	public Pipeline.Visibility visibility;
+
+	private Mesh mesh;
+	private Pipeline pipeline;
+	private Rasterizer rasterizer;
+	private TileRenderer tileRenderer;
+	private Matrix4 projectionMatrix, worldMatrix, viewMatrix;
+	private Vector4D cameraLocation, lightDirection;
+
+	@Setup
+	public void setup() throws IOException {
+		this.mesh = Mesh.loadFromFile(Models.path(this.model));
+		this.pipeline = new Pipeline(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT, this.threads);
+		this.pipeline.setVisibility(this.visibility);
+		this.rasterizer = new Rasterizer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		if (this.threads > 1) {
+			this.tileRenderer = new TileRenderer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT, this.threads);
+			this.pipeline.setTileRenderer(this.tileRenderer);
+		}
+		this.projectionMatrix = Matrix4.projection(Bresenham.FIELD_OF_VIEW_IN_DEGREES, Bresenham.ASPECT_RATIO, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD, new Matrix4());
+		this.worldMatrix = Matrix4.translation(0.0, 0.0, 8.0, new Matrix4());
+		this.cameraLocation = new Vector4D(0.0, 0.0, 0.0);
+		this.lightDirection = Vector4D.normalize(new Vector4D(0.0, 1.0, -1.0));
+		Matrix4 cameraMatrix = Matrix4.pointAt(this.cameraLocation, new Vector4D(0.0, 0.0, 1.0), new Vector4D(0.0, 1.0, 0.0, 1.0), new Matrix4());
+		this.viewMatrix = Matrix4.inverse(cameraMatrix, new Matrix4());
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (this.tileRenderer != null) {
+			this.tileRenderer.shutdown();
+		}
+		this.pipeline.shutdown();
+	}
+
+	@Benchmark
+	public Rasterizer renderFrame() {
+		this.rasterizer.clear(0xFF000000);
+		this.pipeline.beginFrame(this.viewMatrix, this.projectionMatrix, this.cameraLocation, this.lightDirection);
+		this.pipeline.submit(this.mesh, this.worldMatrix);
+		this.pipeline.endFrame(this.rasterizer);
+		return this.rasterizer;
+	}
+}
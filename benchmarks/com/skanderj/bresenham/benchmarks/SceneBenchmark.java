@@ -0,0 +1,75 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Camera;
+import com.skanderj.bresenham.LevelsOfDetail;
+import com.skanderj.bresenham.Mesh;
+import com.skanderj.bresenham.Pipeline;
+import com.skanderj.bresenham.Rasterizer;
+import com.skanderj.bresenham.Scene;
+import com.skanderj.bresenham.main.Headless;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Scene update & one frame of a grid of instances sharing a single mesh, seen
+ * from above the first row - instances past the edges of the screen are culled
+ * at the root of the mesh's hierarchy, distant ones drop to coarser levels of
+ * detail when enabled
+ */
+@State(Scope.Thread)
+public class SceneBenchmark {
+	@Param({ "teapot.obj" })
+	public String model;
+
+	@Param({ "1", "100", "1000" })
+	public int instances;
+
+	@Param({ "true", "false" })
+	public boolean levelsOfDetail;
+
+	private Pipeline pipeline;
+	private Rasterizer rasterizer;
+	private Scene scene;
+	private Matrix4 projectionMatrix;
+	private Vector4D lightDirection;
+	private Camera camera;
+	private double focalLength;
+
+	@Setup
+	public void setup() throws IOException {
+		Mesh mesh = Mesh.loadFromFile(Models.path(this.model));
+		this.pipeline = new Pipeline(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		this.rasterizer = new Rasterizer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		this.scene = new Scene();
+		Headless.createGrid(this.scene, mesh, this.levelsOfDetail ? new LevelsOfDetail(mesh) : null, this.instances, 8.0);
+		this.projectionMatrix = Matrix4.projection(Bresenham.FIELD_OF_VIEW_IN_DEGREES, Bresenham.ASPECT_RATIO, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD, new Matrix4());
+		this.lightDirection = Vector4D.normalize(new Vector4D(0.0, 1.0, -1.0));
+		this.camera = new Camera(new Vector4D(0.0, 10.0, -10.0), 0.0);
+		this.focalLength = this.projectionMatrix.data[5] * Bresenham.VERTICAL_SCALING_FACTOR;
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.pipeline.shutdown();
+	}
+
+	@Benchmark
+	public Rasterizer renderFrame() {
+		this.scene.update(this.camera.location, this.focalLength);
+		this.rasterizer.clear(0xFF000000);
+		this.pipeline.beginFrame(this.camera.getViewMatrix(), this.projectionMatrix, this.camera.location, this.lightDirection);
+		this.scene.submit(this.pipeline);
+		this.pipeline.endFrame(this.rasterizer);
+		return this.rasterizer;
+	}
+}
@@ -0,0 +1,79 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.skanderj.bresenham.Palette;
+import com.skanderj.bresenham.RadixSort;
+import com.skanderj.bresenham.Triangle;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Painter's algorithm sorts - the original Triangle.compareTo sort against the
+ * radix sort on one float key per triangle used by the pipeline. Triangle
+ * counts match the visible halves of the bundled models
+ */
+@State(Scope.Thread)
+public class SortBenchmark {
+	@Param({ "1000", "3200", "10000" })
+	public int triangleCount;
+
+	private Triangle[] triangles;
+	private Vector<Triangle> queueVector;
+	private float[] depthKeys;
+	private int[] order;
+	private RadixSort radixSort;
+
+	@Setup(Level.Trial)
+	public void createTriangles() {
+		Random random = new Random(42L);
+		this.triangles = new Triangle[this.triangleCount];
+		for (int index = 0; index < this.triangleCount; index += 1) {
+			Vector4D[] vectors = new Vector4D[Triangle.SIDES];
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				vectors[side] = new Vector4D(random.nextDouble() * 750.0, random.nextDouble() * 750.0, random.nextDouble());
+			}
+			this.triangles[index] = new Triangle(vectors[0], vectors[1], vectors[2], Palette.WHITE);
+		}
+		this.queueVector = new Vector<Triangle>(this.triangleCount);
+		this.depthKeys = new float[this.triangleCount];
+		for (int index = 0; index < this.triangleCount; index += 1) {
+			Triangle triangle = this.triangles[index];
+			this.depthKeys[index] = (float) ((triangle.vectors[0].z + triangle.vectors[1].z + triangle.vectors[2].z) / 3.0);
+		}
+		this.order = new int[this.triangleCount];
+		this.radixSort = new RadixSort();
+	}
+
+	/**
+	 * Puts the triangles back in their (random) creation order - collectionsSort
+	 * sorts the vector in place
+	 */
+	@Setup(Level.Invocation)
+	public void refill() {
+		this.queueVector.clear();
+		for (Triangle triangle : this.triangles) {
+			this.queueVector.add(triangle);
+		}
+	}
+
+	@Benchmark
+	public Vector<Triangle> collectionsSort() {
+		Collections.sort(this.queueVector);
+		return this.queueVector;
+	}
+
+	@Benchmark
+	public int[] radixSort() {
+		this.radixSort.sortDescending(this.depthKeys, this.triangleCount, this.order);
+		return this.order;
+	}
+}
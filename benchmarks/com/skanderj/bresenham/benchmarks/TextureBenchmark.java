@@ -0,0 +1,67 @@
+package com.skanderj.bresenham.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Mesh;
+import com.skanderj.bresenham.Palette;
+import com.skanderj.bresenham.Pipeline;
+import com.skanderj.bresenham.Rasterizer;
+import com.skanderj.bresenham.Texture;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Cost of texturing - one full frame of the textured model on a single thread,
+ * untextured as a baseline, then sampling the nearest texel or blending 4
+ */
+@State(Scope.Thread)
+public class TextureBenchmark {
+	@Param({ "NONE", "NEAREST", "BILINEAR" })
+	public String filter;
+
+	private Mesh mesh;
+	private Pipeline pipeline;
+	private Rasterizer rasterizer;
+	private Matrix4 projectionMatrix, worldMatrix, viewMatrix;
+	private Vector4D cameraLocation, lightDirection;
+
+	@Setup
+	public void setup() throws IOException {
+		this.mesh = Mesh.loadFromFile(Models.path("MaleLow.obj"));
+		this.pipeline = new Pipeline(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		if (!this.filter.equals("NONE")) {
+			this.pipeline.setTexture(Texture.checkerboard(1024, 64, Palette.WHITE, Palette.pack(192, 64, 32)));
+			this.pipeline.setTextureFilter(Texture.Filter.valueOf(this.filter));
+		}
+		this.rasterizer = new Rasterizer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		this.projectionMatrix = Matrix4.projection(Bresenham.FIELD_OF_VIEW_IN_DEGREES, Bresenham.ASPECT_RATIO, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD, new Matrix4());
+		// Model centred & filling most of the screen
+		this.worldMatrix = Matrix4.translation(-this.mesh.centerX, -this.mesh.centerY, (1.5 * this.mesh.boundingRadius) - this.mesh.centerZ, new Matrix4());
+		this.cameraLocation = new Vector4D(0.0, 0.0, 0.0);
+		this.lightDirection = Vector4D.normalize(new Vector4D(0.0, 1.0, -1.0));
+		Matrix4 cameraMatrix = Matrix4.pointAt(this.cameraLocation, new Vector4D(0.0, 0.0, 1.0), new Vector4D(0.0, 1.0, 0.0, 1.0), new Matrix4());
+		this.viewMatrix = Matrix4.inverse(cameraMatrix, new Matrix4());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.pipeline.shutdown();
+	}
+
+	@Benchmark
+	public Rasterizer renderFrame() {
+		this.rasterizer.clear(0xFF000000);
+		this.pipeline.beginFrame(this.viewMatrix, this.projectionMatrix, this.cameraLocation, this.lightDirection);
+		this.pipeline.submit(this.mesh, this.worldMatrix);
+		this.pipeline.endFrame(this.rasterizer);
+		return this.rasterizer;
+	}
+}
@@ -0,0 +1,87 @@
+package com.skanderj.bresenham.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.skanderj.bresenham.Palette;
+import com.skanderj.bresenham.Triangle;
+import com.skanderj.bresenham.math.Matrix;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Vector operations used per vertex & per triangle by the original render loop
+ */
+@State(Scope.Thread)
+public class VectorBenchmark {
+	private Vector4D firstVector, secondVector;
+	private Matrix matrix;
+	private Matrix4 matrix4;
+	private Triangle triangle;
+
+	@Setup
+	public void setup() {
+		this.firstVector = new Vector4D(1.0, -2.0, 3.0);
+		this.secondVector = new Vector4D(-0.5, 4.0, 2.0);
+		this.matrix = Matrix.random(4, 4, 10);
+		this.matrix4 = new Matrix4(this.matrix);
+		this.triangle = new Triangle(this.firstVector, this.secondVector, new Vector4D(2.0, 2.0, 2.0), Palette.WHITE);
+	}
+
+	@Benchmark
+	public Vector4D applyMatrixToVector_PW() {
+		return Vector4D.applyMatrixToVector_PW(this.firstVector, this.matrix);
+	}
+
+	@Benchmark
+	public Vector4D applyMatrixToVector_MPW() {
+		return Vector4D.applyMatrixToVector_MPW(this.firstVector, this.matrix);
+	}
+
+	@Benchmark
+	public Vector4D applyMatrixToVector_MPWMatrix4() {
+		return Vector4D.applyMatrixToVector_MPW(this.firstVector, this.matrix4);
+	}
+
+	@Benchmark
+	public Vector4D add() {
+		return Vector4D.add(this.firstVector, this.secondVector);
+	}
+
+	@Benchmark
+	public double dotProduct() {
+		return Vector4D.dotProduct(this.firstVector, this.secondVector);
+	}
+
+	@Benchmark
+	public Vector4D crossProduct() {
+		return Vector4D.crossProduct(this.firstVector, this.secondVector);
+	}
+
+	@Benchmark
+	public Vector4D normalize() {
+		return Vector4D.normalize(this.firstVector);
+	}
+
+	@Benchmark
+	public Vector4D normalToTriangle() {
+		return Vector4D.normalToTriangle(this.triangle);
+	}
+
+	@Benchmark
+	public Triangle applyMatrixToTriangle_OW() {
+		return Triangle.applyMatrixToTriangle_OW(this.triangle, this.matrix);
+	}
+
+	@Benchmark
+	public Triangle applyMatrixToTriangle_NW() {
+		return Triangle.applyMatrixToTriangle_NW(this.triangle, this.matrix);
+	}
+
+	@Benchmark
+	public Triangle applyMatrixToTriangle_NWMatrix4() {
+		return Triangle.applyMatrixToTriangle_NW(this.triangle, this.matrix4);
+	}
+}
@@ -0,0 +1,186 @@
+package com.skanderj.bresenham;
+
+import java.util.Arrays;
+
+/**
+ * Bounding volume hierarchy over the triangles of a mesh - a binary tree of
+ * axis aligned boxes built once at load time, splitting the triangles at their
+ * median centroid along the longest axis until a node holds at most LEAF_SIZE
+ * of them. Nodes are stored depth first in flat arrays (a node's left child
+ * comes right after it) & every node covers a contiguous range of the triangle
+ * order, so a whole subtree is a single range. Each submesh of the mesh gets a
+ * tree of its own, so triangles never leave their material's range
+ */
+public final class BoundingVolumeHierarchy {
+	// Most triangles in a leaf - smaller leaves cull tighter, larger ones make
+	// the tree cheaper to walk
+	public static final int LEAF_SIZE = 32;
+	// Values per node in the bounds array (minX, minY, minZ, maxX, maxY, maxZ)
+	public static final int BOUNDS_STRIDE = 6;
+
+	// Triangle indices, grouped by node
+	public final int[] triangles;
+	// Bounding box of every node's triangles
+	public final double[] bounds;
+	// Range of every node in the triangle order & index of its right child, -1
+	// for leaves
+	public final int[] starts, counts, rightChildren;
+	public final int nodeCount;
+	// Root node of every submesh's tree
+	public final int[] roots;
+
+	// Build state - the node arrays are trimmed once the tree is complete
+	private double[] nodeBounds;
+	private int[] nodeStarts, nodeCounts, nodeRightChildren;
+	private int builtNodes;
+
+	/**
+	 * Builds the trees over every triangle of the mesh, one per submesh
+	 */
+	public BoundingVolumeHierarchy(Mesh mesh) {
+		int triangleCount = mesh.triangleCount;
+		this.triangles = new int[triangleCount];
+		// Sums of the 3 positions - a third of that is the centroid, the order is
+		// the same
+		double[] centroids = new double[triangleCount * 3];
+		for (int triangle = 0; triangle < triangleCount; triangle += 1) {
+			this.triangles[triangle] = triangle;
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				int vertex = mesh.indices[(triangle * Triangle.SIDES) + side];
+				centroids[triangle * 3] += mesh.positionsX[vertex];
+				centroids[(triangle * 3) + 1] += mesh.positionsY[vertex];
+				centroids[(triangle * 3) + 2] += mesh.positionsZ[vertex];
+			}
+		}
+		// Median splits leave at least LEAF_SIZE / 2 triangles per leaf
+		int submeshCount = mesh.submeshCount(), capacity = 0;
+		for (int submesh = 0; submesh < submeshCount; submesh += 1) {
+			int submeshTriangles = mesh.submeshStarts[submesh + 1] - mesh.submeshStarts[submesh];
+			capacity += (2 * ((submeshTriangles / (BoundingVolumeHierarchy.LEAF_SIZE / 2)) + 1)) - 1;
+		}
+		this.nodeBounds = new double[capacity * BoundingVolumeHierarchy.BOUNDS_STRIDE];
+		this.nodeStarts = new int[capacity];
+		this.nodeCounts = new int[capacity];
+		this.nodeRightChildren = new int[capacity];
+		this.builtNodes = 0;
+		this.roots = new int[submeshCount];
+		for (int submesh = 0; submesh < submeshCount; submesh += 1) {
+			this.roots[submesh] = this.build(mesh, centroids, mesh.submeshStarts[submesh], mesh.submeshStarts[submesh + 1]);
+		}
+		this.nodeCount = this.builtNodes;
+		this.bounds = Arrays.copyOf(this.nodeBounds, this.nodeCount * BoundingVolumeHierarchy.BOUNDS_STRIDE);
+		this.starts = Arrays.copyOf(this.nodeStarts, this.nodeCount);
+		this.counts = Arrays.copyOf(this.nodeCounts, this.nodeCount);
+		this.rightChildren = Arrays.copyOf(this.nodeRightChildren, this.nodeCount);
+		this.nodeBounds = null;
+		this.nodeStarts = null;
+		this.nodeCounts = null;
+		this.nodeRightChildren = null;
+	}
+
+	/**
+	 * Creates the node covering the given range of the triangle order, then its
+	 * children - returns the node's index
+	 */
+	private int build(Mesh mesh, double[] centroids, int start, int end) {
+		int node = this.builtNodes;
+		this.builtNodes += 1;
+		this.nodeStarts[node] = start;
+		this.nodeCounts[node] = end - start;
+		this.nodeRightChildren[node] = -1;
+		// Bounding box of the triangles & of their centroids
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		double[] centroidMinimum = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] centroidMaximum = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (int index = start; index < end; index += 1) {
+			int triangle = this.triangles[index];
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				int vertex = mesh.indices[(triangle * Triangle.SIDES) + side];
+				minX = Math.min(minX, mesh.positionsX[vertex]);
+				minY = Math.min(minY, mesh.positionsY[vertex]);
+				minZ = Math.min(minZ, mesh.positionsZ[vertex]);
+				maxX = Math.max(maxX, mesh.positionsX[vertex]);
+				maxY = Math.max(maxY, mesh.positionsY[vertex]);
+				maxZ = Math.max(maxZ, mesh.positionsZ[vertex]);
+			}
+			for (int axis = 0; axis < 3; axis += 1) {
+				centroidMinimum[axis] = Math.min(centroidMinimum[axis], centroids[(triangle * 3) + axis]);
+				centroidMaximum[axis] = Math.max(centroidMaximum[axis], centroids[(triangle * 3) + axis]);
+			}
+		}
+		int offset = node * BoundingVolumeHierarchy.BOUNDS_STRIDE;
+		if (start == end) {
+			// Empty submesh - an empty box at the origin
+			minX = minY = minZ = maxX = maxY = maxZ = 0.0;
+		}
+		this.nodeBounds[offset] = minX;
+		this.nodeBounds[offset + 1] = minY;
+		this.nodeBounds[offset + 2] = minZ;
+		this.nodeBounds[offset + 3] = maxX;
+		this.nodeBounds[offset + 4] = maxY;
+		this.nodeBounds[offset + 5] = maxZ;
+		if ((end - start) <= BoundingVolumeHierarchy.LEAF_SIZE) {
+			return node;
+		}
+		// Split along the longest axis of the centroids - all centroids at the
+		// same place can't be split
+		int axis = 0;
+		for (int other = 1; other < 3; other += 1) {
+			if ((centroidMaximum[other] - centroidMinimum[other]) > (centroidMaximum[axis] - centroidMinimum[axis])) {
+				axis = other;
+			}
+		}
+		if (centroidMaximum[axis] == centroidMinimum[axis]) {
+			return node;
+		}
+		int middle = (start + end) >>> 1;
+		this.select(centroids, axis, start, end, middle);
+		this.build(mesh, centroids, start, middle);
+		this.nodeRightChildren[node] = this.build(mesh, centroids, middle, end);
+		return node;
+	}
+
+	/**
+	 * Partially sorts a range of the triangle order (quickselect) so that the
+	 * triangle at nth has the nth smallest centroid along the axis, smaller ones
+	 * before it & larger ones after it
+	 */
+	private void select(double[] centroids, int axis, int start, int end, int nth) {
+		int[] triangles = this.triangles;
+		int left = start, right = end - 1;
+		while (left < right) {
+			double pivot = centroids[(triangles[(left + right) >>> 1] * 3) + axis];
+			int lower = left, upper = right;
+			while (lower <= upper) {
+				while (centroids[(triangles[lower] * 3) + axis] < pivot) {
+					lower += 1;
+				}
+				while (centroids[(triangles[upper] * 3) + axis] > pivot) {
+					upper -= 1;
+				}
+				if (lower <= upper) {
+					int swapped = triangles[lower];
+					triangles[lower] = triangles[upper];
+					triangles[upper] = swapped;
+					lower += 1;
+					upper -= 1;
+				}
+			}
+			if (nth <= upper) {
+				right = upper;
+			} else if (nth >= lower) {
+				left = lower;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns true for nodes without children
+	 */
+	public boolean isLeaf(int node) {
+		return this.rightChildren[node] == -1;
+	}
+}
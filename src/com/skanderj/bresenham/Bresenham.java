@@ -5,11 +5,13 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.event.KeyEvent;
-import java.io.IOException;
-import java.util.Collections;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
 
 import com.skanderj.bresenham.math.Matrix;
+import com.skanderj.bresenham.math.Matrix4;
 import com.skanderj.bresenham.math.Vector4D;
 import com.skanderj.gingerbread.SimpleThread;
 import com.skanderj.gingerbread.core.Game;
@@ -31,6 +33,8 @@ public final class Bresenham extends Game {
 	public static final String WINDOW_TITLE = "Bresenham";
 	public static final int ORIGIN_COORD_X = 0, ORIGIN_COORD_Y = 0;
 	public static final int SCALE = 3, BUFFER_MODE = 2;
+	// Framebuffers of the render thread - one drawn while the other is shown
+	public static final int FRAME_BUFFERS = FrameRing.MINIMUM_SIZE;
 	public static final int WINDOW_WIDTH = (int) (Bresenham.WIDTH * Bresenham.SCALE), WINDOW_HEIGHT = (int) (Bresenham.HEIGHT * Bresenham.SCALE);
 
 	// 3D properties
@@ -38,72 +42,159 @@ public final class Bresenham extends Game {
 	public static final double HORIZONTAL_SCALING_FACTOR = 0.5 * Bresenham.WINDOW_WIDTH, VERTICAL_SCALING_FACTOR = 0.5 * Bresenham.WINDOW_HEIGHT;
 
 	// Matrices
-	private Matrix projectionMatrix, translationMatrix, zRotationMatrix, xRotationMatrix, worldMatrix, cameraMatrix, viewMatrix;
+	private Matrix4 projectionMatrix, translationMatrix, zRotationMatrix, xRotationMatrix;
 	private double rotationAngle;
 
 	// Individual vectors
-	private Vector4D cameraLocation, lightDirection, upAxis, gaze, target;
-	private double yaw;
-
-	private Mesh mainMesh;
+	private Vector4D lightDirection;
+
+	// Camera location, yaw & view matrix - moved by update, copied to the render
+	// thread's own camera every frame
+	private Camera camera, renderCamera;
+
+	// Frames are drawn by the render thread into a ring of framebuffers, render
+	// only shows the newest one. Update hands the latest view over, the scene,
+	// pipeline & rasterizer belong to the render thread
+	private FrameRing ring;
+	private Thread renderThread;
+	private volatile boolean rendering;
+	private volatile View view;
+	// Time spent showing frames, added to the next frame drawn
+	private final AtomicLong blitNanos;
+
+	// Scene drawn every frame - the main node shows the latest mesh published
+	// by the background loader
+	private Scene scene;
+	private SceneNode mainNode;
 	private String meshFileName;
+	private MeshLoader meshLoader;
+	private boolean loadFailureReported;
+
+	// Software rasterizer - draws every frame into a framebuffer of the ring
+	private Rasterizer rasterizer;
+	// Preallocated transform pipeline feeding the rasterizer
+	private Pipeline pipeline;
+	// Parallel tile rasterization - null on single core machines
+	private TileRenderer tileRenderer;
+	// Stage timings & counters, also published through JMX - the overlay is
+	// toggled with F3
+	private FrameProfiler profiler;
+	private boolean overlayVisible, overlayKeyHeld;
+	// Lighting, F4 goes through the shading modes
+	private Pipeline.Shading shading;
+	private boolean shadingKeyHeld;
 
 	private Bresenham() {
 		super(Bresenham.PROCESS_IDENTIFIER, Bresenham.UPDATES_PER_SECOND, Bresenham.WINDOW_TITLE, Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT, Bresenham.BUFFER_MODE);
 		this.meshFileName = "teapot.obj";
+		this.blitNanos = new AtomicLong();
+	}
+
+	/**
+	 * What update hands over to the render thread - camera location & yaw,
+	 * rotation angle & shading as of one update
+	 */
+	private static final class View {
+		private final double x, y, z, yaw, rotationAngle;
+		private final Pipeline.Shading shading;
+
+		private View(Camera camera, double rotationAngle, Pipeline.Shading shading) {
+			this.x = camera.location.x;
+			this.y = camera.location.y;
+			this.z = camera.location.z;
+			this.yaw = camera.yaw;
+			this.rotationAngle = rotationAngle;
+			this.shading = shading;
+		}
 	}
 
 	@Override
 	protected void create() {
 		// Initialise camera location & lighting
 		{
-			// Camera location as vector
-			this.cameraLocation = new Vector4D(0.0, 0.0, 0.0);
+			// Camera at the origin, facing the positive z axis
+			this.camera = new Camera(new Vector4D(0.0, 0.0, 0.0), 0.0);
+			this.renderCamera = new Camera(new Vector4D(0.0, 0.0, 0.0), 0.0);
 			// Light direction as negative z axis - "coming towards the player" to allow
 			// lighting
 			this.lightDirection = new Vector4D(0.0, 1.0, -1.0);
 			// Normalise light vector
 			this.lightDirection = Vector4D.normalize(this.lightDirection);
-			// Up vector
-			this.upAxis = new Vector4D(0.0, 1.0, 0.0, 1.0);
-			// Gaze
-			this.gaze = new Vector4D(0.0, 0.0, 1.0);
-			// Target
-			this.target = new Vector4D(0.0, 0.0, 1.0);
-			// Yaw
-			this.yaw = 0.0;
 		}
 		// Initialise program matrices
 		{
 			// Projection matrix
-			this.projectionMatrix = this.createProjectionMatrix(Bresenham.FIELD_OF_VIEW_IN_DEGREES, Bresenham.ASPECT_RATIO, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD);
+			this.projectionMatrix = new Matrix4(this.createProjectionMatrix(Bresenham.FIELD_OF_VIEW_IN_DEGREES, Bresenham.ASPECT_RATIO, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD));
 			// Translation matrix
-			this.translationMatrix = this.createTranslationMatrix(0.0, 0.0, 8.0);
+			this.translationMatrix = new Matrix4(this.createTranslationMatrix(0.0, 0.0, 8.0));
 			// Initialise rotation angle
 			this.rotationAngle = 0.0;
 			// Create z axis rotation matrix
-			this.zRotationMatrix = this.createZRotationMatrix(this.rotationAngle);
+			this.zRotationMatrix = new Matrix4(this.createZRotationMatrix(this.rotationAngle));
 			// Create x axis rotation matrix
-			this.xRotationMatrix = this.createXRotationMatrix(this.rotationAngle);
-			// Create world-view matrix
-			this.worldMatrix = Matrix.identity(4);
-			// Create camera matrices
-			this.cameraMatrix = new Matrix(4, 4);
-			this.viewMatrix = new Matrix(4, 4);
+			this.xRotationMatrix = new Matrix4(this.createXRotationMatrix(this.rotationAngle));
 		}
-		// Spaceship mesh
-		try {
-			this.mainMesh = Mesh.loadFromFile(this.meshFileName);
-		} catch (NumberFormatException | IOException exception) {
-			exception.printStackTrace();
-			// Can't load mesh so exit
-			System.exit(SimpleThread.EXIT_FAILURE);
+		// Initialise pipeline, framebuffer & depth buffer
+		{
+			this.rasterizer = new Rasterizer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+			// Transform large meshes & rasterize tiles in parallel when there are
+			// cores to spare
+			int processors = Runtime.getRuntime().availableProcessors();
+			this.pipeline = new Pipeline(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT, processors);
+			if (processors > 1) {
+				this.tileRenderer = new TileRenderer(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT, processors);
+				this.pipeline.setTileRenderer(this.tileRenderer);
+			}
+			this.profiler = new FrameProfiler();
+			this.pipeline.setProfiler(this.profiler);
+			try {
+				this.profiler.register();
+			} catch (JMException exception) {
+				exception.printStackTrace();
+			}
+			this.overlayVisible = false;
+			this.overlayKeyHeld = false;
+			this.shading = Pipeline.Shading.FLAT;
+			this.shadingKeyHeld = false;
+			this.pipeline.setShading(this.shading);
+			// Textures of the meshes' materials
+			this.pipeline.setTextureCache(new TextureCache());
+		}
+		// Main mesh - loaded in the background, drawn as it arrives
+		{
+			this.meshLoader = MeshLoader.start(this.meshFileName);
+			this.loadFailureReported = false;
+			this.scene = new Scene();
+			this.mainNode = this.scene.add(new SceneNode(this.meshLoader.getMesh()));
+			this.mainNode.localMatrix.set(this.translationMatrix);
+			this.scene.update();
+		}
+		// Render thread
+		{
+			this.ring = new FrameRing(Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT, Bresenham.FRAME_BUFFERS);
+			this.view = new View(this.camera, this.rotationAngle, this.shading);
+			this.rendering = true;
+			this.renderThread = new Thread(this::renderFrames, "frame-renderer");
+			this.renderThread.setDaemon(true);
+			this.renderThread.start();
 		}
 		super.create();
 	}
 
 	@Override
 	protected void destroy() {
+		// Abandoning the ring stops the render thread from waiting for a slot
+		this.rendering = false;
+		this.ring.abandon();
+		try {
+			this.renderThread.join();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		if (this.tileRenderer != null) {
+			this.tileRenderer.shutdown();
+		}
+		this.pipeline.shutdown();
 		super.destroy();
 		System.exit(SimpleThread.EXIT_SUCCESS);
 	}
@@ -125,39 +216,53 @@ public final class Bresenham extends Game {
 			boolean dKeyHeld = this.keyboard.isKeyDown(KeyEvent.VK_D);
 			boolean zKeyHeld = this.keyboard.isKeyDown(KeyEvent.VK_Z);
 			boolean sKeyHeld = this.keyboard.isKeyDown(KeyEvent.VK_S);
+			boolean overlayKeyHeld = this.keyboard.isKeyDown(KeyEvent.VK_F3);
+			boolean shadingKeyHeld = this.keyboard.isKeyDown(KeyEvent.VK_F4);
+			// Toggle the profiler overlay & switch shading once per key press
+			{
+				if (overlayKeyHeld && !this.overlayKeyHeld) {
+					this.overlayVisible = !this.overlayVisible;
+				}
+				this.overlayKeyHeld = overlayKeyHeld;
+				if (shadingKeyHeld && !this.shadingKeyHeld) {
+					Pipeline.Shading[] shadings = Pipeline.Shading.values();
+					this.shading = shadings[(this.shading.ordinal() + 1) % shadings.length];
+				}
+				this.shadingKeyHeld = shadingKeyHeld;
+			}
 			// Move camera
 			{
 				if (upKeyHeld) {
-					this.cameraLocation.y += 0.5 * delta;
+					this.camera.location.y += 0.5 * delta;
 				}
 				if (downKeyHeld) {
-					this.cameraLocation.y -= 0.5 * delta;
+					this.camera.location.y -= 0.5 * delta;
 				}
 				if (rightKeyHeld) {
-					this.cameraLocation.x -= 0.5 * delta;
+					this.camera.location.x -= 0.5 * delta;
 				}
 				if (leftKeyHeld) {
-					this.cameraLocation.x += 0.5 * delta;
+					this.camera.location.x += 0.5 * delta;
 				}
 			}
-			Vector4D scaledDirection = Vector4D.multiply(this.gaze, 0.5 * delta);
+			Vector4D scaledDirection = Vector4D.multiply(this.camera.getGaze(), 0.5 * delta);
 			// Handle camera rotation
 			{
 				// Turn left
 				if (qKeyHeld) {
-					this.yaw -= 0.05 * delta;
+					this.camera.yaw -= 0.05 * delta;
 				}
 				// Turn right
 				if (dKeyHeld) {
-					this.yaw += 0.05 * delta;
+					this.camera.yaw += 0.05 * delta;
 				}
 				// Go forward
 				if (zKeyHeld) {
-					this.cameraLocation = Vector4D.add(this.cameraLocation, scaledDirection);
+					this.camera.location = Vector4D.add(this.camera.location, scaledDirection);
 				}
 				// Go backwards
 				if (sKeyHeld) {
-					this.cameraLocation = Vector4D.subtract(this.cameraLocation, scaledDirection);
+					this.camera.location = Vector4D.subtract(this.camera.location, scaledDirection);
 				}
 			}
 		}
@@ -165,30 +270,20 @@ public final class Bresenham extends Game {
 		{
 			// this.rotationAngle += 0.05 * delta;
 		}
-		// Update rotation matrices
+		// Camera handling
 		{
-			// Update z rotation matrix
-			this.updateZRotationMatrix(this.zRotationMatrix, this.rotationAngle * 0.5);
-			// Update x rotation matrix
-			this.updateXRotationMatrix(this.xRotationMatrix, this.rotationAngle);
+			this.camera.update();
 		}
-		// Create transformation matrix
+		// Hand the view over to the render thread
 		{
-			// Z * X rotation product
-			this.worldMatrix = Matrix.product(this.zRotationMatrix, this.xRotationMatrix);
-			// Translation
-			this.worldMatrix = Matrix.product(this.worldMatrix, this.translationMatrix);
+			this.view = new View(this.camera, this.rotationAngle, this.shading);
 		}
-		// Camera handling
+		// Report a failed load once
 		{
-			this.target = new Vector4D(0.0, 0.0, 1.0);
-			Matrix cameraRotationMatrix = this.createYRotationMatrix(this.yaw);
-			this.gaze = Vector4D.applyMatrixToVector_MPW(this.target, cameraRotationMatrix);
-			this.target = Vector4D.add(this.cameraLocation, this.gaze);
-			this.cameraMatrix = this.pointAt(this.cameraLocation, this.target, this.upAxis);
-			// Uses quick inverse - does real inverse work? Is it slower?
-			// this.viewMatrix = this.quickInverse(this.cameraMatrix);
-			this.viewMatrix = this.realInverse(this.cameraMatrix);
+			if ((this.meshLoader.getFailure() != null) && !this.loadFailureReported) {
+				this.meshLoader.getFailure().printStackTrace();
+				this.loadFailureReported = true;
+			}
 		}
 		// Update keyboard & mouse
 		{
@@ -197,98 +292,92 @@ public final class Bresenham extends Game {
 		}
 	}
 
-	@Override
-	public void render(Graphics graphics) {
-		// Clear the screen
-		graphics.setColor(Color.BLACK);
-		graphics.fillRect(Bresenham.ORIGIN_COORD_X, Bresenham.ORIGIN_COORD_Y, Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
-		// Triangles transform
-		Vector<Triangle> queueVector = new Vector<Triangle>();
-		{
-			// Parse triangles in cube mesh
-			for (Triangle triangle : this.mainMesh.triangles) {
-				// Copy data from current triangle - we don't want to change the original data!
-				Triangle localTriangle = new Triangle(triangle);
-				// Transform localTriangle
-				localTriangle = Triangle.applyMatrixToTriangle_NW(localTriangle, this.worldMatrix);
-				// Calculate normal data
-				Vector4D normalVector = Vector4D.normalToTriangle(localTriangle);
-				normalVector = Vector4D.normalize(normalVector);
-				// Calculate camera ray
-				Vector4D cameraRay = Vector4D.subtract(localTriangle.vectors[0], this.cameraLocation);
-				// Calculate dot product to evaluate if triangle is in view
-				double normalCameraDotProduct = Vector4D.dotProduct(normalVector, cameraRay);
-				if (normalCameraDotProduct < 0.0) {
-					// Set colour
-					float dotProduct = (float) Math.max(0.1f, Vector4D.dotProduct(this.lightDirection, normalVector));
-					localTriangle.color = new Color(dotProduct, dotProduct, dotProduct);
-					// Transform world space to view space
-					localTriangle = Triangle.applyMatrixToTriangle_NW(localTriangle, this.viewMatrix);
-					// Clipping
-					Vector<Triangle> newTriangles = this.clipAgainstPlane(new Vector4D(0.0, 0.0, 0.001), new Vector4D(0.0, 0.0, 1.0), localTriangle);
-					for (Triangle clippedTriangle : newTriangles) {
-						// Multiply by protection matrix 3D -> 2D
-						localTriangle = Triangle.applyMatrixToTriangle_NW(clippedTriangle, this.projectionMatrix);
-						// Normalise
-						localTriangle = Triangle.normalizeTriangle(localTriangle);
-						// Flip XY
-						localTriangle = Triangle.flipXYCoordinates(localTriangle);
-						// Scale into view
-						Vector4D viewOffset = new Vector4D(1.0, 1.0, 0.0);
-						localTriangle = Triangle.addVectorToTriangle(localTriangle, viewOffset);
-						localTriangle = Triangle.scaleTriangleToView(localTriangle);
-						// Add to vector
-						queueVector.add(localTriangle);
-					}
+	/**
+	 * Render thread - draws the latest view handed over by update into the next
+	 * free framebuffer of the ring & publishes it, until destroyed
+	 */
+	private void renderFrames() {
+		try {
+			while (this.rendering) {
+				int slot = this.ring.acquire();
+				// Returns right away once abandoned
+				if (!this.rendering) {
+					break;
 				}
-			}
-		}
-		// Sort all the vectors
-		Collections.sort(queueVector);
-		// Draw sorted triangles
-		{
-			for (Triangle orderedTriangle : queueVector) {
-				Vector<Triangle> newTriangles = new Vector<Triangle>();
-				// Add initial triangle
-				newTriangles.add(orderedTriangle);
-				int newTrianglesCount = 1;
-				for (int plane = 0; plane < 4; plane += 1) {
-					while (newTrianglesCount > 0) {
-						// Take triangle from front of queue
-						Triangle currentElement = newTriangles.firstElement();
-						newTriangles.remove(0);
-						newTrianglesCount -= 1;
-						// Clip it against a plane. We only need to test each
-						// subsequent plane, against subsequent new triangles
-						// as all triangles after a plane clip are guaranteed
-						// to lie on the inside of the plane. I like how this
-						// comment is almost completely and utterly justified
-						switch (plane) {
-						case 0:
-							newTriangles.addAll(this.clipAgainstPlane(new Vector4D(0.0, 0.0, 0.0), new Vector4D(0.0, 1.0, 0.0), currentElement));
-							break;
-						case 1:
-							newTriangles.addAll(this.clipAgainstPlane(new Vector4D(0.0, Bresenham.WINDOW_HEIGHT - 1, 0.0), new Vector4D(0.0, -1.0, 0.0), currentElement));
-							break;
-						case 2:
-							newTriangles.addAll(this.clipAgainstPlane(new Vector4D(0.0, 0.0, 0.0), new Vector4D(1.0, 0.0, 0.0), currentElement));
-							break;
-						case 3:
-							newTriangles.addAll(this.clipAgainstPlane(new Vector4D(Bresenham.WINDOW_WIDTH - 1, 0.0, 0.0), new Vector4D(-1.0, 0.0, 0.0), currentElement));
-							break;
-						}
-						// Clipping may yield a variable number of triangles, so
-						// add these new ones to the back of the queue for subsequent
-						// clipping against next planes
-					}
-					newTrianglesCount = newTriangles.size();
+				View view = this.view;
+				this.profiler.beginFrame();
+				this.profiler.addTime(FrameProfiler.Stage.BLIT, this.blitNanos.getAndSet(0));
+				// Camera & shading as of the last update
+				{
+					this.renderCamera.location.x = view.x;
+					this.renderCamera.location.y = view.y;
+					this.renderCamera.location.z = view.z;
+					this.renderCamera.yaw = view.yaw;
+					this.renderCamera.update();
+					this.pipeline.setShading(view.shading);
+				}
+				// Create the main node's transformation matrix
+				{
+					// Update z rotation matrix
+					this.updateZRotationMatrix(this.zRotationMatrix, view.rotationAngle * 0.5);
+					// Update x rotation matrix
+					this.updateXRotationMatrix(this.xRotationMatrix, view.rotationAngle);
+					// Z * X rotation product
+					Matrix4.product(this.zRotationMatrix, this.xRotationMatrix, this.mainNode.localMatrix);
+					// Translation
+					Matrix4.product(this.mainNode.localMatrix, this.translationMatrix, this.mainNode.localMatrix);
 				}
-				// Draw the transformed, viewed, clipped, projected, sorted, clipped triangles
-				for (Triangle currentTriangle : newTriangles) {
-					graphics.setColor(currentTriangle.color);
-					this.fillTriangle(graphics, currentTriangle);
+				// Pick up the latest part of the mesh or its levels of detail
+				{
+					if (this.meshLoader.getLevelsOfDetail() != null) {
+						this.mainNode.setLevelsOfDetail(this.meshLoader.getLevelsOfDetail());
+					} else {
+						this.mainNode.setMesh(this.meshLoader.getMesh());
+					}
 				}
+				// World matrices, levels of detail & instance batches
+				this.scene.update(this.renderCamera.location, this.projectionMatrix.data[5] * Bresenham.VERTICAL_SCALING_FACTOR);
+				// Clear the framebuffer & depth buffer
+				this.rasterizer.setTarget(this.ring.getImage(slot));
+				this.rasterizer.clear(Palette.BLACK);
+				// Transform, cull, light, clip & project - nothing is allocated here
+				this.pipeline.beginFrame(this.renderCamera.getViewMatrix(), this.projectionMatrix, this.renderCamera.location, this.lightDirection);
+				this.scene.submit(this.pipeline);
+				// Sort, clip against the screen edges & rasterize
+				this.pipeline.endFrame(this.rasterizer);
+				this.profiler.endFrame();
+				this.ring.publish();
 			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void render(Graphics graphics) {
+		// Show the newest frame drawn, again if there is no newer one - black
+		// until the first one
+		int slot = this.ring.takeLatest();
+		if (slot == -1) {
+			graphics.setColor(Color.BLACK);
+			graphics.fillRect(Bresenham.ORIGIN_COORD_X, Bresenham.ORIGIN_COORD_Y, Bresenham.WINDOW_WIDTH, Bresenham.WINDOW_HEIGHT);
+		} else {
+			long blitStart = System.nanoTime();
+			graphics.drawImage(this.ring.getImage(slot), Bresenham.ORIGIN_COORD_X, Bresenham.ORIGIN_COORD_Y, null);
+			this.blitNanos.addAndGet(System.nanoTime() - blitStart);
+		}
+		if (this.overlayVisible) {
+			this.profiler.drawOverlay(graphics, Bresenham.ORIGIN_COORD_X + 10, Bresenham.ORIGIN_COORD_Y + 40);
+		}
+		// Loading state
+		if (!this.meshLoader.isDone()) {
+			graphics.setColor(Color.WHITE);
+			graphics.drawString(String.format("Loading %s - %d triangles", this.meshFileName, this.meshLoader.getMesh().triangleCount), Bresenham.ORIGIN_COORD_X + 10, Bresenham.ORIGIN_COORD_Y + 20);
+		} else if (this.meshLoader.getFailure() != null) {
+			// Runtime exceptions don't always have a message
+			Exception failure = this.meshLoader.getFailure();
+			graphics.setColor(Color.RED);
+			graphics.drawString(String.format("Can't load %s: %s", this.meshFileName, failure.getMessage() == null ? failure.getClass().getSimpleName() : failure.getMessage()), Bresenham.ORIGIN_COORD_X + 10, Bresenham.ORIGIN_COORD_Y + 20);
 		}
 	}
 
@@ -301,10 +390,10 @@ public final class Bresenham extends Game {
 
 	/**
 	 * Draws triangle using the standard Java 2D graphics implementation - fastest
-	 * available
+	 * available, the packed color goes through a java.awt.Color
 	 */
-	public void drawTriangle(Graphics graphics, double firstX, double firstY, double secondX, double secondY, double thirdX, double thirdY, Color color) {
-		graphics.setColor(color);
+	public void drawTriangle(Graphics graphics, double firstX, double firstY, double secondX, double secondY, double thirdX, double thirdY, int color) {
+		graphics.setColor(new Color(color));
 		graphics.drawPolygon(new int[] { (int) firstX, (int) secondX, (int) thirdX }, new int[] { (int) firstY, (int) secondY, (int) thirdY }, 3);
 	}
 
@@ -317,10 +406,10 @@ public final class Bresenham extends Game {
 
 	/**
 	 * Fills triangle using the standard Java 2D graphics implementation - massive
-	 * slow down, to optimise
+	 * slow down, the render loop uses the software rasterizer instead
 	 */
-	public void fillTriangle(Graphics graphics, double firstX, double firstY, double secondX, double secondY, double thirdX, double thirdY, Color color) {
-		graphics.setColor(color);
+	public void fillTriangle(Graphics graphics, double firstX, double firstY, double secondX, double secondY, double thirdX, double thirdY, int color) {
+		graphics.setColor(new Color(color));
 		graphics.fillPolygon(new int[] { (int) firstX, (int) secondX, (int) thirdX }, new int[] { (int) firstY, (int) secondY, (int) thirdY }, 3);
 	}
 
@@ -328,7 +417,7 @@ public final class Bresenham extends Game {
 	 * Returns shortest distance from point to plane, plane normal must be
 	 * normalised
 	 */
-	public double distancePointToPlane(Vector4D planePoint, Vector4D planeNormal, Vector4D target) {
+	public static double distancePointToPlane(Vector4D planePoint, Vector4D planeNormal, Vector4D target) {
 		target = Vector4D.normalize(target);
 		return (((planeNormal.x * target.x) + (planeNormal.y * target.y) + (planeNormal.z * target.z)) - Vector4D.dotProduct(planeNormal, planePoint));
 	}
@@ -336,14 +425,14 @@ public final class Bresenham extends Game {
 	/**
 	 * \// TODO
 	 */
-	public Vector<Triangle> clipAgainstPlane(Vector4D planePoint, Vector4D planeNormal, Triangle input) {
+	public static Vector<Triangle> clipAgainstPlane(Vector4D planePoint, Vector4D planeNormal, Triangle input) {
 		Vector<Triangle> newTriangles = new Vector<Triangle>();
 		planeNormal = Vector4D.normalize(planeNormal);
 		Vector4D[] pointsInside = new Vector4D[3], pointsOutside = new Vector4D[3];
 		int pointsInsideCount = 0, pointsOutsideCount = 0;
-		double firstDistance = this.distancePointToPlane(planePoint, planeNormal, input.vectors[0]);
-		double secondDistance = this.distancePointToPlane(planePoint, planeNormal, input.vectors[1]);
-		double thirdDistance = this.distancePointToPlane(planePoint, planeNormal, input.vectors[2]);
+		double firstDistance = Bresenham.distancePointToPlane(planePoint, planeNormal, input.vectors[0]);
+		double secondDistance = Bresenham.distancePointToPlane(planePoint, planeNormal, input.vectors[1]);
+		double thirdDistance = Bresenham.distancePointToPlane(planePoint, planeNormal, input.vectors[2]);
 		if (firstDistance >= 0) {
 			pointsInside[pointsInsideCount] = input.vectors[0];
 			pointsInsideCount += 1;
@@ -480,6 +569,13 @@ public final class Bresenham extends Game {
 		xMatrix.data[3][3] = 1.0;
 	}
 
+	/**
+	 * Updates the x-rotation matrix in place - fixed-size version
+	 */
+	public void updateXRotationMatrix(Matrix4 xMatrix, double angle) {
+		Matrix4.xRotation(angle, xMatrix);
+	}
+
 	/**
 	 * Updates the y-rotation matrix to match the value of the new angle - must be
 	 * called every cycle but is never currently used
@@ -493,6 +589,14 @@ public final class Bresenham extends Game {
 		yMatrix.data[3][3] = 1.0;
 	}
 
+	/**
+	 * Updates the y-rotation matrix in place - fixed-size version, used for the
+	 * camera yaw
+	 */
+	public void updateYRotationMatrix(Matrix4 yMatrix, double angle) {
+		Matrix4.yRotation(angle, yMatrix);
+	}
+
 	/**
 	 * Updates the z-rotation matrix to match the value of the new angle - must be
 	 * called every cycle
@@ -506,6 +610,13 @@ public final class Bresenham extends Game {
 		zMatrix.data[3][3] = 1.0;
 	}
 
+	/**
+	 * Updates the z-rotation matrix in place - fixed-size version
+	 */
+	public void updateZRotationMatrix(Matrix4 zMatrix, double angle) {
+		Matrix4.zRotation(angle, zMatrix);
+	}
+
 	/**
 	 * Returns the "eye" matrix relative to the object position and an "up" vector
 	 */
@@ -544,11 +655,18 @@ public final class Bresenham extends Game {
 		return resultMatrix;
 	}
 
+	/**
+	 * Writes the "eye" matrix into the result - fixed-size version
+	 */
+	public Matrix4 pointAt(Vector4D position, Vector4D target, Vector4D reference, Matrix4 resultMatrix) {
+		return Matrix4.pointAt(position, target, reference, resultMatrix);
+	}
+
 	/**
 	 * Quick inverse for 4-by-4 matrices - messy - refactor - only works for
 	 * rotation/translation matrices
 	 */
-	public Matrix quickInverse(Matrix matrix) {
+	public static Matrix quickInverse(Matrix matrix) {
 		Matrix resultMatrix = new Matrix(4, 4);
 		// Fill inverse matrix
 		{
@@ -576,13 +694,27 @@ public final class Bresenham extends Game {
 		return resultMatrix;
 	}
 
+	/**
+	 * Quick inverse written into the result - works for any affine matrix
+	 */
+	public static Matrix4 quickInverse(Matrix4 matrix, Matrix4 resultMatrix) {
+		return Matrix4.affineInverse(matrix, resultMatrix);
+	}
+
 	/**
 	 * Real inverse of any n-by-n matrix
 	 */
-	public Matrix realInverse(Matrix matrix) {
+	public static Matrix realInverse(Matrix matrix) {
 		return Matrix.inverse(matrix);
 	}
 
+	/**
+	 * Real inverse of any 4-by-4 matrix written into the result - closed form
+	 */
+	public static Matrix4 realInverse(Matrix4 matrix, Matrix4 resultMatrix) {
+		return Matrix4.inverse(matrix, resultMatrix);
+	}
+
 	/**
 	 * Lowers the rendering quality of the graphics object as much as possible - no
 	 * noticeable performance gain
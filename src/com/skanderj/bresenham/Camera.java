@@ -0,0 +1,58 @@
+package com.skanderj.bresenham;
+
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * First person camera - a location & a yaw around the y axis, turned into a
+ * view matrix once per update
+ */
+public final class Camera {
+	// Direction faced at a yaw of 0
+	private static final Vector4D FORWARD = new Vector4D(0.0, 0.0, 1.0);
+
+	public Vector4D location;
+	public double yaw;
+
+	private final Vector4D upAxis;
+	private Vector4D gaze;
+	private final Matrix4 rotationMatrix, cameraMatrix, viewMatrix;
+
+	public Camera(Vector4D location, double yaw) {
+		this.location = location;
+		this.yaw = yaw;
+		this.upAxis = new Vector4D(0.0, 1.0, 0.0, 1.0);
+		this.gaze = Camera.FORWARD.copy();
+		this.rotationMatrix = Matrix4.identity();
+		this.cameraMatrix = new Matrix4();
+		this.viewMatrix = new Matrix4();
+		this.update();
+	}
+
+	/**
+	 * Recomputes the gaze & the view matrix from the location & yaw
+	 */
+	public void update() {
+		Matrix4.yRotation(this.yaw, this.rotationMatrix);
+		this.gaze = Vector4D.applyMatrixToVector_MPW(Camera.FORWARD, this.rotationMatrix);
+		Vector4D target = Vector4D.add(this.location, this.gaze);
+		Matrix4.pointAt(this.location, target, this.upAxis, this.cameraMatrix);
+		// Closed-form inverse, no allocation - the camera matrix is rigid so
+		// Matrix4.affineInverse works too
+		Matrix4.inverse(this.cameraMatrix, this.viewMatrix);
+	}
+
+	/**
+	 * Returns the direction faced as of the last update
+	 */
+	public Vector4D getGaze() {
+		return this.gaze;
+	}
+
+	/**
+	 * Returns the world->view matrix as of the last update
+	 */
+	public Matrix4 getViewMatrix() {
+		return this.viewMatrix;
+	}
+}
@@ -0,0 +1,106 @@
+package com.skanderj.bresenham;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Present thread of a frame ring - takes frames in order & hands them to an
+ * output while the render thread draws the next ones. Whatever the output
+ * throws is kept & reported by finish, later frames are released without being
+ * shown, & the ring is abandoned if the thread stops early, so the render
+ * thread never waits on a dead presenter
+ */
+public final class FramePresenter implements Runnable {
+	/**
+	 * Where frames go - a window, files... Called on the present thread only
+	 */
+	public static interface Output {
+		void present(long frame, BufferedImage image, int[] pixels) throws IOException;
+	}
+
+	/**
+	 * Starts presenting the frames of the ring on a new thread
+	 */
+	public static FramePresenter start(FrameRing ring, FramePresenter.Output output) {
+		FramePresenter presenter = new FramePresenter(ring, output);
+		presenter.thread.start();
+		return presenter;
+	}
+
+	private final FrameRing ring;
+	private final FramePresenter.Output output;
+	private final Thread thread;
+	// Frames presented & the time spent presenting them, only read once the
+	// thread is over
+	private long presentedCount, presentNanos;
+	private volatile Throwable failure;
+
+	private FramePresenter(FrameRing ring, FramePresenter.Output output) {
+		this.ring = ring;
+		this.output = output;
+		this.thread = new Thread(this, "frame-presenter");
+		this.thread.setDaemon(true);
+		this.presentedCount = 0;
+		this.presentNanos = 0;
+		this.failure = null;
+	}
+
+	@Override
+	public void run() {
+		try {
+			int slot;
+			while ((slot = this.ring.take()) != -1) {
+				if (this.failure == null) {
+					long start = System.nanoTime();
+					try {
+						this.output.present(this.presentedCount, this.ring.getImage(slot), this.ring.getPixels(slot));
+					} catch (Throwable throwable) {
+						// ImageIO throws unchecked exceptions too
+						this.failure = throwable;
+					}
+					this.presentNanos += System.nanoTime() - start;
+				}
+				this.presentedCount += 1;
+				this.ring.release();
+			}
+		} catch (InterruptedException exception) {
+			this.failure = exception;
+			Thread.currentThread().interrupt();
+		} finally {
+			// No-op once every frame was presented
+			this.ring.abandon();
+		}
+	}
+
+	/**
+	 * Closes the ring, waits for the frames already published to be presented &
+	 * throws the output's failure, if any - errors as they are, I/O exceptions
+	 * too, anything else wrapped in one
+	 */
+	public void finish() throws IOException, InterruptedException {
+		this.ring.close();
+		this.thread.join();
+		if (this.failure instanceof Error) {
+			throw (Error) this.failure;
+		} else if (this.failure instanceof IOException) {
+			throw (IOException) this.failure;
+		} else if (this.failure != null) {
+			throw new IOException("Can't present frame", this.failure);
+		}
+	}
+
+	/**
+	 * Returns the first failure of the output so far, null if none
+	 */
+	public Throwable getFailure() {
+		return this.failure;
+	}
+
+	/**
+	 * Returns the time spent in the output, in nanoseconds - complete once
+	 * finished
+	 */
+	public long getPresentNanos() {
+		return this.presentNanos;
+	}
+}
@@ -0,0 +1,328 @@
+package com.skanderj.bresenham;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-stage frame timings & triangle/pixel counters kept in ring buffers of
+ * the last frames - stages are timed with System.nanoTime around whole loops,
+ * never per triangle, & recording a frame only writes into preallocated
+ * arrays. Readers (overlay, JMX, dumps) average whatever frames are in the
+ * ring without locking, so they may be a frame apart from one another
+ */
+public final class FrameProfiler implements FrameProfilerMBean {
+	// Frames kept in the ring buffers by default - a couple of seconds at 60 fps
+	public static final int DEFAULT_CAPACITY = 128;
+	// Name the profiler is registered under with the platform MBean server
+	public static final String OBJECT_NAME = "com.skanderj.bresenham:type=FrameProfiler";
+
+	/**
+	 * Timed stages - CULL is the bounding volume hierarchy walk, TRANSFORM the
+	 * per-triangle loop (vertex transforms, back-face culling, lighting &
+	 * projection) minus the time spent in CLIP
+	 */
+	public static enum Stage {
+		TRANSFORM, CULL, CLIP, SORT, RASTER, BLIT;
+	}
+
+	/**
+	 * Counted events - triangles submitted, dropped (frustum, back-face,
+	 * degenerate or outside a plane), clipped against a plane & sent to the
+	 * rasterizer, pixels written
+	 */
+	public static enum Counter {
+		TRIANGLES_IN, TRIANGLES_CULLED, TRIANGLES_CLIPPED, TRIANGLES_EMITTED, PIXELS_SHADED;
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+	private static final Counter[] COUNTERS = Counter.values();
+
+	private final int capacity;
+	// Ring buffers - one slot per frame, [stage or counter][slot]
+	private final long[][] stageTimes, counters;
+	private final long[] frameTimes;
+	// Next slot written & number of frames recorded so far
+	private volatile int slot;
+	private volatile long frameCount;
+	// Sums over every frame since the last reset
+	private final long[] totalTimes, totalCounters;
+	// Frame being recorded
+	private final long[] currentTimes, currentCounters;
+	private long frameStart;
+
+	public FrameProfiler() {
+		this(FrameProfiler.DEFAULT_CAPACITY);
+	}
+
+	public FrameProfiler(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.stageTimes = new long[FrameProfiler.STAGES.length][capacity];
+		this.counters = new long[FrameProfiler.COUNTERS.length][capacity];
+		this.frameTimes = new long[capacity];
+		this.totalTimes = new long[FrameProfiler.STAGES.length];
+		this.totalCounters = new long[FrameProfiler.COUNTERS.length];
+		this.currentTimes = new long[FrameProfiler.STAGES.length];
+		this.currentCounters = new long[FrameProfiler.COUNTERS.length];
+		this.slot = 0;
+		this.frameCount = 0;
+	}
+
+	/**
+	 * Starts recording a frame - everything added until endFrame belongs to it
+	 */
+	public void beginFrame() {
+		Arrays.fill(this.currentTimes, 0);
+		Arrays.fill(this.currentCounters, 0);
+		this.frameStart = System.nanoTime();
+	}
+
+	/**
+	 * Adds time to a stage of the current frame - stages can be entered several
+	 * times per frame, once per mesh for instance
+	 */
+	public void addTime(Stage stage, long nanoseconds) {
+		this.currentTimes[stage.ordinal()] += nanoseconds;
+	}
+
+	/**
+	 * Adds to a counter of the current frame
+	 */
+	public void addCount(Counter counter, long count) {
+		this.currentCounters[counter.ordinal()] += count;
+	}
+
+	/**
+	 * Stores the current frame in the ring buffers, overwriting the oldest one
+	 * once they are full
+	 */
+	public void endFrame() {
+		int slot = this.slot;
+		this.frameTimes[slot] = System.nanoTime() - this.frameStart;
+		for (int index = 0; index < this.currentTimes.length; index += 1) {
+			this.stageTimes[index][slot] = this.currentTimes[index];
+			this.totalTimes[index] += this.currentTimes[index];
+		}
+		for (int index = 0; index < this.currentCounters.length; index += 1) {
+			this.counters[index][slot] = this.currentCounters[index];
+			this.totalCounters[index] += this.currentCounters[index];
+		}
+		this.slot = (slot + 1) % this.capacity;
+		this.frameCount += 1;
+	}
+
+	/**
+	 * Forgets every recorded frame
+	 */
+	@Override
+	public void reset() {
+		this.frameCount = 0;
+		this.slot = 0;
+		Arrays.fill(this.totalTimes, 0);
+		Arrays.fill(this.totalCounters, 0);
+	}
+
+	/**
+	 * Returns the number of frames the averages are taken over
+	 */
+	public int getSampleCount() {
+		return (int) Math.min(this.frameCount, this.capacity);
+	}
+
+	/**
+	 * Returns the average time of a stage over the recorded frames, in
+	 * milliseconds
+	 */
+	public double getAverageMillis(Stage stage) {
+		return FrameProfiler.average(this.stageTimes[stage.ordinal()], this.getSampleCount()) / 1e6;
+	}
+
+	/**
+	 * Returns the time spent in a stage since the last reset, in milliseconds
+	 */
+	public double getTotalMillis(Stage stage) {
+		return this.totalTimes[stage.ordinal()] / 1e6;
+	}
+
+	/**
+	 * Returns the sum of a counter since the last reset
+	 */
+	public long getTotalCount(Counter counter) {
+		return this.totalCounters[counter.ordinal()];
+	}
+
+	/**
+	 * Returns the average value of a counter over the recorded frames
+	 */
+	public double getAverageCount(Counter counter) {
+		return FrameProfiler.average(this.counters[counter.ordinal()], this.getSampleCount());
+	}
+
+	@Override
+	public long getFrameCount() {
+		return this.frameCount;
+	}
+
+	@Override
+	public double getFrameMillis() {
+		return FrameProfiler.average(this.frameTimes, this.getSampleCount()) / 1e6;
+	}
+
+	@Override
+	public double getFramesPerSecond() {
+		double frameMillis = this.getFrameMillis();
+		return frameMillis == 0.0 ? 0.0 : 1000.0 / frameMillis;
+	}
+
+	@Override
+	public double getTransformMillis() {
+		return this.getAverageMillis(Stage.TRANSFORM);
+	}
+
+	@Override
+	public double getCullMillis() {
+		return this.getAverageMillis(Stage.CULL);
+	}
+
+	@Override
+	public double getClipMillis() {
+		return this.getAverageMillis(Stage.CLIP);
+	}
+
+	@Override
+	public double getSortMillis() {
+		return this.getAverageMillis(Stage.SORT);
+	}
+
+	@Override
+	public double getRasterMillis() {
+		return this.getAverageMillis(Stage.RASTER);
+	}
+
+	@Override
+	public double getBlitMillis() {
+		return this.getAverageMillis(Stage.BLIT);
+	}
+
+	@Override
+	public double getTrianglesIn() {
+		return this.getAverageCount(Counter.TRIANGLES_IN);
+	}
+
+	@Override
+	public double getTrianglesCulled() {
+		return this.getAverageCount(Counter.TRIANGLES_CULLED);
+	}
+
+	@Override
+	public double getTrianglesClipped() {
+		return this.getAverageCount(Counter.TRIANGLES_CLIPPED);
+	}
+
+	@Override
+	public double getTrianglesEmitted() {
+		return this.getAverageCount(Counter.TRIANGLES_EMITTED);
+	}
+
+	@Override
+	public double getPixelsShaded() {
+		return this.getAverageCount(Counter.PIXELS_SHADED);
+	}
+
+	/**
+	 * Registers the profiler with the platform MBean server, under OBJECT_NAME -
+	 * a single profiler can be registered per JVM
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(FrameProfiler.OBJECT_NAME));
+	}
+
+	/**
+	 * Unregisters the profiler from the platform MBean server
+	 */
+	public void unregister() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(FrameProfiler.OBJECT_NAME));
+	}
+
+	/**
+	 * Draws the averages in the top left corner of the graphics object - one
+	 * line for the frame, one per stage & one for the counters
+	 */
+	public void drawOverlay(Graphics graphics, int x, int y) {
+		int lineHeight = graphics.getFontMetrics().getHeight();
+		graphics.setColor(Color.YELLOW);
+		graphics.drawString(String.format("%.1f fps, %.3f ms over %d frames", this.getFramesPerSecond(), this.getFrameMillis(), this.getSampleCount()), x, y);
+		for (Stage stage : FrameProfiler.STAGES) {
+			y += lineHeight;
+			graphics.drawString(String.format("%s %.3f ms", stage.name().toLowerCase(Locale.ROOT), this.getAverageMillis(stage)), x, y);
+		}
+		y += lineHeight;
+		graphics.drawString(String.format("triangles %.0f in, %.0f culled, %.0f clipped, %.0f emitted", this.getTrianglesIn(), this.getTrianglesCulled(), this.getTrianglesClipped(), this.getTrianglesEmitted()), x, y);
+		y += lineHeight;
+		graphics.drawString(String.format("pixels %.0f shaded", this.getPixelsShaded()), x, y);
+	}
+
+	/**
+	 * Writes the column names matching writeCsvRow
+	 */
+	public void writeCsvHeader(Appendable output) throws IOException {
+		output.append("frame,fps,frame_ms");
+		for (Stage stage : FrameProfiler.STAGES) {
+			output.append(',').append(stage.name().toLowerCase(Locale.ROOT)).append("_ms");
+		}
+		for (Counter counter : FrameProfiler.COUNTERS) {
+			output.append(',').append(counter.name().toLowerCase(Locale.ROOT));
+		}
+		output.append('\n');
+	}
+
+	/**
+	 * Writes the current averages as a CSV row
+	 */
+	public void writeCsvRow(Appendable output) throws IOException {
+		output.append(String.format(Locale.ROOT, "%d,%.2f,%.4f", this.frameCount, this.getFramesPerSecond(), this.getFrameMillis()));
+		for (Stage stage : FrameProfiler.STAGES) {
+			output.append(String.format(Locale.ROOT, ",%.4f", this.getAverageMillis(stage)));
+		}
+		for (Counter counter : FrameProfiler.COUNTERS) {
+			output.append(String.format(Locale.ROOT, ",%.1f", this.getAverageCount(counter)));
+		}
+		output.append('\n');
+	}
+
+	/**
+	 * Writes the current averages as a single line JSON object - a file of
+	 * these is one object per line
+	 */
+	public void writeJson(Appendable output) throws IOException {
+		output.append(String.format(Locale.ROOT, "{\"frame\":%d,\"fps\":%.2f,\"frame_ms\":%.4f,\"stages_ms\":{", this.frameCount, this.getFramesPerSecond(), this.getFrameMillis()));
+		for (Stage stage : FrameProfiler.STAGES) {
+			output.append(stage.ordinal() == 0 ? "" : ",").append(String.format(Locale.ROOT, "\"%s\":%.4f", stage.name().toLowerCase(Locale.ROOT), this.getAverageMillis(stage)));
+		}
+		output.append("},\"counters\":{");
+		for (Counter counter : FrameProfiler.COUNTERS) {
+			output.append(counter.ordinal() == 0 ? "" : ",").append(String.format(Locale.ROOT, "\"%s\":%.1f", counter.name().toLowerCase(Locale.ROOT), this.getAverageCount(counter)));
+		}
+		output.append("}}\n");
+	}
+
+	private static double average(long[] values, int count) {
+		if (count == 0) {
+			return 0.0;
+		}
+		long sum = 0;
+		for (int index = 0; index < count; index += 1) {
+			sum += values[index];
+		}
+		return (double) sum / count;
+	}
+}
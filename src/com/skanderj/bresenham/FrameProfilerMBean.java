@@ -0,0 +1,37 @@
+package com.skanderj.bresenham;
+
+/**
+ * Management interface of the frame profiler - averages over the frames in
+ * its ring buffers, times in milliseconds, counts per frame
+ */
+public interface FrameProfilerMBean {
+	public long getFrameCount();
+
+	public double getFrameMillis();
+
+	public double getFramesPerSecond();
+
+	public double getTransformMillis();
+
+	public double getCullMillis();
+
+	public double getClipMillis();
+
+	public double getSortMillis();
+
+	public double getRasterMillis();
+
+	public double getBlitMillis();
+
+	public double getTrianglesIn();
+
+	public double getTrianglesCulled();
+
+	public double getTrianglesClipped();
+
+	public double getTrianglesEmitted();
+
+	public double getPixelsShaded();
+
+	public void reset();
+}
@@ -0,0 +1,166 @@
+package com.skanderj.bresenham;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring of 2 or 3 framebuffers handed from a render thread to a present thread
+ * - frame n is drawn into slot n % size, the render thread fills one slot while
+ * the present thread shows an older one, so throughput is bounded by the
+ * slower of the two rather than their sum. Frames taken are presented in
+ * order, none is dropped - a window that only shows the newest frame skips to
+ * it with takeLatest instead. The handoff is two counters, each written by a
+ * single thread: nothing is locked, a side only parks when the ring is full
+ * (render) or empty (present) & is unparked by the other one
+ */
+public final class FrameRing {
+	public static final int MINIMUM_SIZE = 2, MAXIMUM_SIZE = 3;
+
+	public final int width, height, size;
+	// Framebuffers & their pixels, in the rasterizer's format
+	private final BufferedImage[] images;
+	private final int[][] pixels;
+	// Frames published by the render thread & released by the present thread
+	// since the start - a slot is free once the frame drawn in it before is
+	// released
+	private final AtomicLong published, released;
+	// Closed by the render thread, abandoned by the present thread
+	private volatile boolean closed, abandoned;
+	// Threads to unpark, registered when they first wait
+	private volatile Thread renderThread, presentThread;
+
+	public FrameRing(int width, int height, int size) {
+		if ((size < FrameRing.MINIMUM_SIZE) || (size > FrameRing.MAXIMUM_SIZE)) {
+			throw new IllegalArgumentException("Frame rings hold " + FrameRing.MINIMUM_SIZE + " to " + FrameRing.MAXIMUM_SIZE + " framebuffers: " + size);
+		}
+		this.width = width;
+		this.height = height;
+		this.size = size;
+		this.images = new BufferedImage[size];
+		this.pixels = new int[size][];
+		for (int index = 0; index < size; index += 1) {
+			this.images[index] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			this.pixels[index] = ((DataBufferInt) this.images[index].getRaster().getDataBuffer()).getData();
+		}
+		this.published = new AtomicLong();
+		this.released = new AtomicLong();
+		this.closed = false;
+		this.abandoned = false;
+	}
+
+	/**
+	 * Render thread - waits until the next slot has been presented & returns it,
+	 * right away once the ring is abandoned (nothing is presented anymore)
+	 */
+	public int acquire() throws InterruptedException {
+		if (this.closed) {
+			throw new IllegalStateException("Frame ring is closed");
+		}
+		this.renderThread = Thread.currentThread();
+		long frame = this.published.get();
+		while (!this.abandoned && ((frame - this.released.get()) >= this.size)) {
+			FrameRing.park(this);
+		}
+		return (int) (frame % this.size);
+	}
+
+	/**
+	 * Render thread - hands the slot returned by the last acquire over to the
+	 * present thread
+	 */
+	public void publish() {
+		// Volatile store - the pixels written before are visible to whoever reads
+		// the new count, & the present thread is read after it, so a thread that
+		// just registered can't miss its wake up
+		this.published.incrementAndGet();
+		LockSupport.unpark(this.presentThread);
+	}
+
+	/**
+	 * Present thread - waits for the next published frame & returns its slot,
+	 * -1 once the ring is closed & every frame was presented
+	 */
+	public int take() throws InterruptedException {
+		this.presentThread = Thread.currentThread();
+		long frame = this.released.get();
+		while (frame == this.published.get()) {
+			if (this.closed) {
+				// Frames published right before closing still count
+				if (frame == this.published.get()) {
+					return -1;
+				}
+				break;
+			}
+			FrameRing.park(this);
+		}
+		return (int) (frame % this.size);
+	}
+
+	/**
+	 * Present thread - never waits: releases every published frame but the
+	 * newest & returns its slot, -1 if nothing was published yet. The newest
+	 * frame stays taken until a newer one is published, so it can be shown
+	 * again in the meantime
+	 */
+	public int takeLatest() {
+		this.presentThread = Thread.currentThread();
+		long published = this.published.get();
+		if (published == this.released.get()) {
+			return -1;
+		}
+		if ((published - this.released.get()) > 1) {
+			// Only written by this thread
+			this.released.set(published - 1);
+			LockSupport.unpark(this.renderThread);
+		}
+		return (int) ((published - 1) % this.size);
+	}
+
+	/**
+	 * Present thread - gives the slot returned by the last take back to the
+	 * render thread
+	 */
+	public void release() {
+		this.released.incrementAndGet();
+		LockSupport.unpark(this.renderThread);
+	}
+
+	/**
+	 * Render thread - no frame follows the last published one, the present
+	 * thread stops once it is shown
+	 */
+	public void close() {
+		this.closed = true;
+		LockSupport.unpark(this.presentThread);
+	}
+
+	/**
+	 * Present thread - it won't take frames anymore, the render thread stops
+	 * waiting for slots
+	 */
+	public void abandon() {
+		this.abandoned = true;
+		LockSupport.unpark(this.renderThread);
+	}
+
+	public BufferedImage getImage(int slot) {
+		return this.images[slot];
+	}
+
+	public int[] getPixels(int slot) {
+		return this.pixels[slot];
+	}
+
+	/**
+	 * Parks until unparked - the caller checks its condition again, spurious
+	 * wake ups included
+	 */
+	private static void park(Object blocker) throws InterruptedException {
+		LockSupport.park(blocker);
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+}
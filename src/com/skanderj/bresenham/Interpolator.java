@@ -0,0 +1,79 @@
+package com.skanderj.bresenham;
+
+/**
+ * Values interpolated across a triangle by the rasterizer (light intensity,
+ * normal, texture coordinates...) - each one is a screen space plane equation in fixed point, so
+ * stepping one pixel to the right is one add per value & one row down is one
+ * add per value too. Integer steps are exact, so a pixel gets the same values
+ * whatever pixel the stepping started from & tiles match a whole frame. Every
+ * thread rasterizing needs its own
+ */
+public final class Interpolator {
+	// Most values interpolated at once - a normal & texture coordinates
+	public static final int MAXIMUM_VARYINGS = 6;
+	// Fixed-point precision of the values
+	public static final int FRACTION_BITS = 16;
+	public static final long ONE = 1L << Interpolator.FRACTION_BITS, HALF = Interpolator.ONE >> 1;
+
+	// Value at the reference pixel & steps along x & y, per value
+	final long[] origins, stepsX, stepsY;
+	// Value at the current pixel & at the start of the current row
+	final long[] values, rows;
+	int count;
+	int referenceX, referenceY;
+
+	public Interpolator() {
+		this.origins = new long[Interpolator.MAXIMUM_VARYINGS];
+		this.stepsX = new long[Interpolator.MAXIMUM_VARYINGS];
+		this.stepsY = new long[Interpolator.MAXIMUM_VARYINGS];
+		this.values = new long[Interpolator.MAXIMUM_VARYINGS];
+		this.rows = new long[Interpolator.MAXIMUM_VARYINGS];
+		this.count = 0;
+	}
+
+	/**
+	 * Sets the values up for a triangle - the value of each at the reference
+	 * pixel & its change per pixel along x & y
+	 */
+	void setup(int count, int referenceX, int referenceY) {
+		this.count = count;
+		this.referenceX = referenceX;
+		this.referenceY = referenceY;
+	}
+
+	void set(int varying, double origin, double stepX, double stepY) {
+		this.origins[varying] = Math.round(origin * Interpolator.ONE);
+		this.stepsX[varying] = Math.round(stepX * Interpolator.ONE);
+		this.stepsY[varying] = Math.round(stepY * Interpolator.ONE);
+	}
+
+	/**
+	 * Moves to the first pixel of the row y, at column x
+	 */
+	void startRow(int x, int y) {
+		long columns = x - this.referenceX, rows = y - this.referenceY;
+		for (int varying = 0; varying < this.count; varying += 1) {
+			this.rows[varying] = this.origins[varying] + (columns * this.stepsX[varying]) + (rows * this.stepsY[varying]);
+			this.values[varying] = this.rows[varying];
+		}
+	}
+
+	/**
+	 * Moves one pixel to the right
+	 */
+	void stepX() {
+		for (int varying = 0; varying < this.count; varying += 1) {
+			this.values[varying] += this.stepsX[varying];
+		}
+	}
+
+	/**
+	 * Moves one row down, back to the first column of the row
+	 */
+	void stepY() {
+		for (int varying = 0; varying < this.count; varying += 1) {
+			this.rows[varying] += this.stepsY[varying];
+			this.values[varying] = this.rows[varying];
+		}
+	}
+}
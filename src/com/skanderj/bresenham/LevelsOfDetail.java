@@ -0,0 +1,63 @@
+package com.skanderj.bresenham;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decimated versions of a mesh, built once at load time - each level has about
+ * a quarter of the triangles of the previous one, level 0 being the mesh
+ * itself. A level is picked per object & per frame from the size of its
+ * bounding sphere on screen
+ */
+public final class LevelsOfDetail {
+	// Triangle count ratio between two levels
+	public static final int REDUCTION = 4;
+	// No level gets coarser than that
+	public static final int MINIMUM_TRIANGLES = 64;
+	// Screen area, in pixels, worth one triangle
+	public static final double PIXELS_PER_TRIANGLE = 8.0;
+
+	// Finest first
+	public final Mesh[] levels;
+
+	/**
+	 * Decimates the mesh level after level until it gets too coarse or
+	 * decimation stops making progress
+	 */
+	public LevelsOfDetail(Mesh mesh) {
+		List<Mesh> levels = new ArrayList<Mesh>();
+		levels.add(mesh);
+		Mesh level = mesh;
+		while ((level.triangleCount / LevelsOfDetail.REDUCTION) >= LevelsOfDetail.MINIMUM_TRIANGLES) {
+			Mesh decimated = MeshDecimator.decimate(level, level.triangleCount / LevelsOfDetail.REDUCTION);
+			// Less than a quarter off - the mesh can't be simplified much further
+			if ((decimated.triangleCount * 4) > (level.triangleCount * 3)) {
+				break;
+			}
+			levels.add(decimated);
+			level = decimated;
+		}
+		this.levels = levels.toArray(new Mesh[levels.size()]);
+	}
+
+	/**
+	 * Returns the coarsest level with enough triangles for a bounding sphere of
+	 * the given radius on screen, in pixels
+	 */
+	public int selectLevel(double projectedRadius) {
+		double wantedTriangles = (Math.PI * projectedRadius * projectedRadius) / LevelsOfDetail.PIXELS_PER_TRIANGLE;
+		for (int level = this.levels.length - 1; level > 0; level -= 1) {
+			if (this.levels[level].triangleCount >= wantedTriangles) {
+				return level;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the full mesh
+	 */
+	public Mesh getMesh() {
+		return this.levels[0];
+	}
+}
@@ -0,0 +1,40 @@
+package com.skanderj.bresenham;
+
+/**
+ * Surface of a submesh as described by a .mtl file - ambient, diffuse &
+ * specular colors (Ka, Kd & Ks) as packed colors & the diffuse texture
+ * (map_Kd), if any. The diffuse color tints the light & the texture, ambient
+ * & specular colors are kept for callers but not part of the lighting model
+ */
+public final class Material {
+	// Name of the material of triangles that don't name one
+	public static final String DEFAULT_NAME = "default";
+	// White & untextured - meshes without materials, names no library defines
+	public static final Material DEFAULT = new Material(Material.DEFAULT_NAME);
+
+	public final String name;
+	public final int ambient, diffuse, specular;
+	// Path of the diffuse texture, relative to the working directory - null
+	// for none
+	public final String textureFileName;
+
+	/**
+	 * White & untextured material of the given name
+	 */
+	public Material(String name) {
+		this(name, Palette.WHITE, Palette.WHITE, Palette.BLACK, null);
+	}
+
+	public Material(String name, int ambient, int diffuse, int specular, String textureFileName) {
+		this.name = name;
+		this.ambient = ambient;
+		this.diffuse = diffuse;
+		this.specular = specular;
+		this.textureFileName = textureFileName;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
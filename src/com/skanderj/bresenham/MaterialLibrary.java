@@ -0,0 +1,114 @@
+package com.skanderj.bresenham;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wavefront .mtl loader - newmtl, Ka, Kd, Ks & map_Kd, everything else is
+ * skipped. Libraries are small, so they are read line by line through
+ * BufferedReader rather than mapped like .obj files
+ */
+public final class MaterialLibrary {
+	private MaterialLibrary() {
+		return;
+	}
+
+	/**
+	 * Loads every material of a .mtl file by name, in file order - texture paths
+	 * are resolved against the library's directory
+	 */
+	public static Map<String, Material> load(String mtlName) throws IOException {
+		Map<String, Material> materials = new LinkedHashMap<String, Material>();
+		File mtlFile = new File(mtlName);
+		String name = null, textureFileName = null;
+		int ambient = Palette.WHITE, diffuse = Palette.WHITE, specular = Palette.BLACK;
+		try (BufferedReader bufferedReader = new BufferedReader(new FileReader(mtlFile))) {
+			String line;
+			while ((line = bufferedReader.readLine()) != null) {
+				String[] parts = line.trim().split("\\s+");
+				if ((parts.length < 2) || parts[0].startsWith("#")) {
+					continue;
+				} else if (parts[0].equals("newmtl")) {
+					if (name != null) {
+						materials.put(name, new Material(name, ambient, diffuse, specular, textureFileName));
+					}
+					name = line.trim().substring(parts[0].length()).trim();
+					textureFileName = null;
+					ambient = Palette.WHITE;
+					diffuse = Palette.WHITE;
+					specular = Palette.BLACK;
+				} else if (parts[0].equals("Ka")) {
+					ambient = MaterialLibrary.readColor(parts, mtlName, line);
+				} else if (parts[0].equals("Kd")) {
+					diffuse = MaterialLibrary.readColor(parts, mtlName, line);
+				} else if (parts[0].equals("Ks")) {
+					specular = MaterialLibrary.readColor(parts, mtlName, line);
+				} else if (parts[0].equals("map_Kd")) {
+					// Options (-s, -o, -clamp...) come first, the file name last
+					textureFileName = new File(mtlFile.getAbsoluteFile().getParentFile(), parts[parts.length - 1]).getPath();
+				}
+			}
+		}
+		if (name != null) {
+			materials.put(name, new Material(name, ambient, diffuse, specular, textureFileName));
+		}
+		return materials;
+	}
+
+	/**
+	 * Returns the materials of the given names, looked up in libraries relative
+	 * to a directory - a library that can't be read or a name none of them
+	 * defines is reported & gets a white untextured material
+	 */
+	public static Material[] resolve(File directory, String[] libraries, String[] names) {
+		Map<String, Material> materials = new HashMap<String, Material>();
+		boolean loaded = false;
+		for (String library : libraries) {
+			String mtlName = new File(directory, library).getPath();
+			try {
+				for (Map.Entry<String, Material> entry : MaterialLibrary.load(mtlName).entrySet()) {
+					// First definition wins, like the libraries' order on the mtllib line
+					if (!materials.containsKey(entry.getKey())) {
+						materials.put(entry.getKey(), entry.getValue());
+					}
+				}
+				loaded = true;
+			} catch (IOException exception) {
+				System.err.println("Can't read material library " + mtlName + ": " + exception.getMessage());
+			}
+		}
+		Material[] resolved = new Material[names.length];
+		for (int index = 0; index < names.length; index += 1) {
+			Material material = materials.get(names[index]);
+			if (material == null) {
+				// A missing library was already reported
+				if (loaded && !names[index].equals(Material.DEFAULT_NAME)) {
+					System.err.println("Undefined material " + names[index] + ", drawn white");
+				}
+				material = names[index].equals(Material.DEFAULT_NAME) ? Material.DEFAULT : new Material(names[index]);
+			}
+			resolved[index] = material;
+		}
+		return resolved;
+	}
+
+	/**
+	 * "Kx r g b" with channels between 0 & 1 - a single value is a grey, the
+	 * spectral & xyz forms aren't supported
+	 */
+	private static int readColor(String[] parts, String mtlName, String line) throws IOException {
+		try {
+			double red = Double.parseDouble(parts[1]);
+			double green = parts.length > 3 ? Double.parseDouble(parts[2]) : red;
+			double blue = parts.length > 3 ? Double.parseDouble(parts[3]) : red;
+			return Palette.pack(Palette.level(red), Palette.level(green), Palette.level(blue));
+		} catch (NumberFormatException exception) {
+			throw new IOException(String.format("Invalid color in %s: %s", mtlName, line));
+		}
+	}
+}
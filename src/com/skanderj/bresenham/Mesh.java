@@ -1,17 +1,22 @@
 package com.skanderj.bresenham;
 
-import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Vector;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import com.skanderj.bresenham.math.Vector4D;
 
 public class Mesh {
+	// Initial capacity of the buffers used while loading
+	private static final int INITIAL_CAPACITY = 1024;
+
 	/**
-	 * Load a mesh from a waveform .obj file
+	 * Load a mesh from a waveform .obj file - through its binary cache, see
+	 * MeshCache
 	 *
 	 * @param objName
 	 * @return a constructed mesh from the data
@@ -19,8 +24,18 @@ public class Mesh {
 	 * @throws IOException
 	 */
 	public static final Mesh loadFromFile(String objName) throws NumberFormatException, IOException {
-		Vector<Vector4D> vectors = new Vector<Vector4D>();
-		Vector<Triangle> triangles = new Vector<Triangle>();
+		return MeshCache.load(objName);
+	}
+
+	/**
+	 * Line by line loader through BufferedReader, String.split &
+	 * Double.valueOf - slow on large files, kept as the reference for ObjLoader
+	 */
+	public static final Mesh loadFromFileWithReader(String objName) throws NumberFormatException, IOException {
+		// Unique vertices & three indices per face, grown as the file is read
+		double[] positionsX = new double[Mesh.INITIAL_CAPACITY], positionsY = new double[Mesh.INITIAL_CAPACITY], positionsZ = new double[Mesh.INITIAL_CAPACITY];
+		int[] indices = new int[Mesh.INITIAL_CAPACITY * Triangle.SIDES];
+		int vertexCount = 0, indexCount = 0;
 		File objFile = new File(objName);
 		BufferedReader bufferedReader = new BufferedReader(new FileReader(objFile));
 		String line;
@@ -29,30 +44,328 @@ public class Mesh {
 				continue;
 			} else if (line.startsWith("v")) {
 				String[] parts = line.split("\\s+");
-				double x = Double.valueOf(parts[1]);
-				double y = Double.valueOf(parts[2]);
-				double z = Double.valueOf(parts[3]);
-				Vector4D vector = new Vector4D(x, y, z);
-				vectors.add(vector);
+				if (vertexCount == positionsX.length) {
+					positionsX = Arrays.copyOf(positionsX, vertexCount * 2);
+					positionsY = Arrays.copyOf(positionsY, vertexCount * 2);
+					positionsZ = Arrays.copyOf(positionsZ, vertexCount * 2);
+				}
+				positionsX[vertexCount] = Double.valueOf(parts[1]);
+				positionsY[vertexCount] = Double.valueOf(parts[2]);
+				positionsZ[vertexCount] = Double.valueOf(parts[3]);
+				vertexCount += 1;
 			} else if (line.startsWith("f")) {
-				int[] indices = new int[3];
 				String[] parts = line.split("\\s+");
-				indices[0] = Integer.valueOf(parts[1]);
-				indices[1] = Integer.valueOf(parts[2]);
-				indices[2] = Integer.valueOf(parts[3]);
-				triangles.add(new Triangle(vectors.get(indices[0] - 1), vectors.get(indices[1] - 1), vectors.get(indices[2] - 1), Color.WHITE));
+				if ((indexCount + Triangle.SIDES) > indices.length) {
+					indices = Arrays.copyOf(indices, indices.length * 2);
+				}
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					int vertex = Integer.valueOf(parts[side + 1]) - 1;
+					if ((vertex < 0) || (vertex >= vertexCount)) {
+						bufferedReader.close();
+						throw new IOException(String.format("Invalid vertex index in %s: %s", objName, line));
+					}
+					indices[indexCount] = vertex;
+					indexCount += 1;
+				}
 			}
 		}
 		bufferedReader.close();
-		return new Mesh(triangles.toArray(new Triangle[triangles.size()]));
+		return new Mesh(Arrays.copyOf(positionsX, vertexCount), Arrays.copyOf(positionsY, vertexCount), Arrays.copyOf(positionsZ, vertexCount), Arrays.copyOf(indices, indexCount));
 	}
 
-	protected final Triangle[] triangles;
+	// Vertex positions - structure of arrays, one entry per unique vertex
+	public final double[] positionsX, positionsY, positionsZ;
+	// Three vertex indices per triangle
+	public final int[] indices;
+	// Arrays are exactly that long, except for partial meshes still loading
+	public final int vertexCount, triangleCount;
+	// Texture coordinates & normals as read from the file, each with its own
+	// count - referenced per triangle corner through the matching index stream
+	// (null when the mesh has none, -1 for corners without one)
+	public final double[] texturesU, texturesV;
+	public final double[] normalsX, normalsY, normalsZ;
+	public final int[] textureIndices, normalIndices;
+	public final int textureCount, normalCount;
+	// Axis aligned bounding box of the positions, all 0 for an empty mesh
+	public final double minX, minY, minZ, maxX, maxY, maxZ;
+	// Bounding sphere around the centre of the box
+	public final double centerX, centerY, centerZ, boundingRadius;
+	// Unit normal of every triangle, (0, 0, 0) for degenerate ones - counter
+	// clockwise winding, computed once as the mesh is rigid
+	public final double[] faceNormalsX, faceNormalsY, faceNormalsZ;
+	// Unit normal of every vertex, the area weighted average of the normals of
+	// its triangles - null for partial meshes
+	public final double[] vertexNormalsX, vertexNormalsY, vertexNormalsZ;
+	// Triangles are grouped by material - submesh s covers the triangles from
+	// submeshStarts[s] to submeshStarts[s + 1] & is drawn with materials[s]
+	public final Material[] materials;
+	public final int[] submeshStarts;
+	// Material libraries named by the file, as written there - empty when none
+	public final String[] materialLibraries;
+	// Bounding boxes of groups of triangles, for frustum culling - null for
+	// partial meshes
+	public final BoundingVolumeHierarchy hierarchy;
 
+	public Mesh(double[] positionsX, double[] positionsY, double[] positionsZ, int[] indices) {
+		this(positionsX, positionsY, positionsZ, indices, new double[0], new double[0], null, new double[0], new double[0], new double[0], null);
+	}
+
+	public Mesh(double[] positionsX, double[] positionsY, double[] positionsZ, int[] indices, double[] texturesU, double[] texturesV, int[] textureIndices, double[] normalsX, double[] normalsY, double[] normalsZ, int[] normalIndices) {
+		this(positionsX, positionsY, positionsZ, indices, texturesU, texturesV, textureIndices, normalsX, normalsY, normalsZ, normalIndices, new String[0], new Material[] { Material.DEFAULT }, new int[] { 0, indices.length / Triangle.SIDES });
+	}
+
+	/**
+	 * Same as above, with triangles already grouped by material
+	 */
+	public Mesh(double[] positionsX, double[] positionsY, double[] positionsZ, int[] indices, double[] texturesU, double[] texturesV, int[] textureIndices, double[] normalsX, double[] normalsY, double[] normalsZ, int[] normalIndices, String[] materialLibraries, Material[] materials, int[] submeshStarts) {
+		Mesh.checkSubmeshes(materials, submeshStarts, indices.length / Triangle.SIDES);
+		this.positionsX = positionsX;
+		this.positionsY = positionsY;
+		this.positionsZ = positionsZ;
+		this.indices = indices;
+		this.vertexCount = positionsX.length;
+		this.triangleCount = indices.length / Triangle.SIDES;
+		this.texturesU = texturesU;
+		this.texturesV = texturesV;
+		this.textureIndices = textureIndices;
+		this.textureCount = texturesU.length;
+		this.normalsX = normalsX;
+		this.normalsY = normalsY;
+		this.normalsZ = normalsZ;
+		this.normalIndices = normalIndices;
+		this.normalCount = normalsX.length;
+		this.materials = materials;
+		this.submeshStarts = submeshStarts;
+		this.materialLibraries = materialLibraries;
+		this.minX = Mesh.minimum(positionsX);
+		this.minY = Mesh.minimum(positionsY);
+		this.minZ = Mesh.minimum(positionsZ);
+		this.maxX = Mesh.maximum(positionsX);
+		this.maxY = Mesh.maximum(positionsY);
+		this.maxZ = Mesh.maximum(positionsZ);
+		this.centerX = (this.minX + this.maxX) * 0.5;
+		this.centerY = (this.minY + this.maxY) * 0.5;
+		this.centerZ = (this.minZ + this.maxZ) * 0.5;
+		this.boundingRadius = this.computeBoundingRadius();
+		this.faceNormalsX = new double[this.triangleCount];
+		this.faceNormalsY = new double[this.triangleCount];
+		this.faceNormalsZ = new double[this.triangleCount];
+		this.vertexNormalsX = new double[this.vertexCount];
+		this.vertexNormalsY = new double[this.vertexCount];
+		this.vertexNormalsZ = new double[this.vertexCount];
+		this.computeNormals();
+		this.hierarchy = new BoundingVolumeHierarchy(this);
+	}
+
+	/**
+	 * Partial mesh of a loader - the first vertexCount positions & triangleCount
+	 * triangles (& face normals) of arrays that may be longer & still being
+	 * filled past those counts, no texture coordinates, file or vertex normals
+	 */
+	Mesh(double[] positionsX, double[] positionsY, double[] positionsZ, int vertexCount, int[] indices, int triangleCount, double[] faceNormalsX, double[] faceNormalsY, double[] faceNormalsZ, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		this.positionsX = positionsX;
+		this.positionsY = positionsY;
+		this.positionsZ = positionsZ;
+		this.indices = indices;
+		this.vertexCount = vertexCount;
+		this.triangleCount = triangleCount;
+		this.texturesU = new double[0];
+		this.texturesV = new double[0];
+		this.textureIndices = null;
+		this.textureCount = 0;
+		this.normalsX = new double[0];
+		this.normalsY = new double[0];
+		this.normalsZ = new double[0];
+		this.normalIndices = null;
+		this.normalCount = 0;
+		this.materials = new Material[] { Material.DEFAULT };
+		this.submeshStarts = new int[] { 0, triangleCount };
+		this.materialLibraries = new String[0];
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+		this.centerX = (minX + maxX) * 0.5;
+		this.centerY = (minY + maxY) * 0.5;
+		this.centerZ = (minZ + maxZ) * 0.5;
+		// Half the diagonal of the box - larger than needed, but no pass over the
+		// positions
+		this.boundingRadius = 0.5 * Math.sqrt(((maxX - minX) * (maxX - minX)) + ((maxY - minY) * (maxY - minY)) + ((maxZ - minZ) * (maxZ - minZ)));
+		this.faceNormalsX = faceNormalsX;
+		this.faceNormalsY = faceNormalsY;
+		this.faceNormalsZ = faceNormalsZ;
+		this.vertexNormalsX = null;
+		this.vertexNormalsY = null;
+		this.vertexNormalsZ = null;
+		this.hierarchy = null;
+	}
+
+	/**
+	 * Builds the vertex & index buffers from triangles - vectors shared between
+	 * triangles become a single vertex
+	 */
 	public Mesh(Triangle[] array) {
-		this.triangles = new Triangle[array.length];
+		this(array, Mesh.numberVertices(array));
+	}
+
+	private Mesh(Triangle[] array, Map<Vector4D, Integer> vertices) {
+		this(Mesh.collectPositions(vertices, 0), Mesh.collectPositions(vertices, 1), Mesh.collectPositions(vertices, 2), Mesh.collectIndices(array, vertices));
+	}
+
+	/**
+	 * Numbers the distinct vectors of the triangles in order of first use
+	 */
+	private static Map<Vector4D, Integer> numberVertices(Triangle[] array) {
+		Map<Vector4D, Integer> vertices = new IdentityHashMap<Vector4D, Integer>();
+		for (Triangle triangle : array) {
+			for (Vector4D vector : triangle.vectors) {
+				if (!vertices.containsKey(vector)) {
+					vertices.put(vector, vertices.size());
+				}
+			}
+		}
+		return vertices;
+	}
+
+	/**
+	 * Returns one coordinate (0 for x, 1 for y, 2 for z) of every numbered vector
+	 */
+	private static double[] collectPositions(Map<Vector4D, Integer> vertices, int axis) {
+		double[] positions = new double[vertices.size()];
+		for (Map.Entry<Vector4D, Integer> entry : vertices.entrySet()) {
+			positions[entry.getValue()] = axis == 0 ? entry.getKey().x : (axis == 1 ? entry.getKey().y : entry.getKey().z);
+		}
+		return positions;
+	}
+
+	private static int[] collectIndices(Triangle[] array, Map<Vector4D, Integer> vertices) {
+		int[] indices = new int[array.length * Triangle.SIDES];
 		for (int index = 0; index < array.length; index += 1) {
-			this.triangles[index] = array[index];
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				indices[(index * Triangle.SIDES) + side] = vertices.get(array[index].vectors[side]);
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Fills the face normals & accumulates the unnormalised ones (their length
+	 * is twice the triangle's area) into the vertex normals before normalising
+	 * those
+	 */
+	private void computeNormals() {
+		for (int triangle = 0; triangle < this.triangleCount; triangle += 1) {
+			int first = this.indices[triangle * Triangle.SIDES], second = this.indices[(triangle * Triangle.SIDES) + 1], third = this.indices[(triangle * Triangle.SIDES) + 2];
+			double firstAxisX = this.positionsX[second] - this.positionsX[first], firstAxisY = this.positionsY[second] - this.positionsY[first], firstAxisZ = this.positionsZ[second] - this.positionsZ[first];
+			double secondAxisX = this.positionsX[third] - this.positionsX[first], secondAxisY = this.positionsY[third] - this.positionsY[first], secondAxisZ = this.positionsZ[third] - this.positionsZ[first];
+			double normalX = (firstAxisY * secondAxisZ) - (firstAxisZ * secondAxisY);
+			double normalY = (firstAxisZ * secondAxisX) - (firstAxisX * secondAxisZ);
+			double normalZ = (firstAxisX * secondAxisY) - (firstAxisY * secondAxisX);
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				int vertex = this.indices[(triangle * Triangle.SIDES) + side];
+				this.vertexNormalsX[vertex] += normalX;
+				this.vertexNormalsY[vertex] += normalY;
+				this.vertexNormalsZ[vertex] += normalZ;
+			}
+			double length = Math.sqrt((normalX * normalX) + (normalY * normalY) + (normalZ * normalZ));
+			if (length != 0.0) {
+				this.faceNormalsX[triangle] = normalX / length;
+				this.faceNormalsY[triangle] = normalY / length;
+				this.faceNormalsZ[triangle] = normalZ / length;
+			}
+		}
+		for (int vertex = 0; vertex < this.vertexCount; vertex += 1) {
+			double length = Math.sqrt((this.vertexNormalsX[vertex] * this.vertexNormalsX[vertex]) + (this.vertexNormalsY[vertex] * this.vertexNormalsY[vertex]) + (this.vertexNormalsZ[vertex] * this.vertexNormalsZ[vertex]));
+			if (length != 0.0) {
+				this.vertexNormalsX[vertex] /= length;
+				this.vertexNormalsY[vertex] /= length;
+				this.vertexNormalsZ[vertex] /= length;
+			}
+		}
+	}
+
+	/**
+	 * Submeshes must cover every triangle in order, one material each - empty
+	 * ones are allowed
+	 */
+	private static void checkSubmeshes(Material[] materials, int[] submeshStarts, int triangleCount) {
+		if ((materials.length == 0) || (submeshStarts.length != (materials.length + 1)) || (submeshStarts[0] != 0) || (submeshStarts[materials.length] != triangleCount)) {
+			throw new IllegalArgumentException("Submeshes don't cover the " + triangleCount + " triangles: " + Arrays.toString(submeshStarts));
+		}
+		for (int submesh = 0; submesh < materials.length; submesh += 1) {
+			if ((materials[submesh] == null) || (submeshStarts[submesh + 1] < submeshStarts[submesh])) {
+				throw new IllegalArgumentException("Invalid submesh " + submesh + ": " + Arrays.toString(submeshStarts));
+			}
+		}
+	}
+
+	/**
+	 * Largest distance from the centre to a position
+	 */
+	private double computeBoundingRadius() {
+		double radius = 0.0;
+		for (int vertex = 0; vertex < this.vertexCount; vertex += 1) {
+			double x = this.positionsX[vertex] - this.centerX, y = this.positionsY[vertex] - this.centerY, z = this.positionsZ[vertex] - this.centerZ;
+			radius = Math.max(radius, (x * x) + (y * y) + (z * z));
+		}
+		return Math.sqrt(radius);
+	}
+
+	private static double minimum(double[] values) {
+		if (values.length == 0) {
+			return 0.0;
+		}
+		double minimum = values[0];
+		for (int index = 1; index < values.length; index += 1) {
+			minimum = Math.min(minimum, values[index]);
+		}
+		return minimum;
+	}
+
+	private static double maximum(double[] values) {
+		if (values.length == 0) {
+			return 0.0;
+		}
+		double maximum = values[0];
+		for (int index = 1; index < values.length; index += 1) {
+			maximum = Math.max(maximum, values[index]);
+		}
+		return maximum;
+	}
+
+	/**
+	 * Returns true when the file came with normals
+	 */
+	public boolean hasNormals() {
+		return this.normalIndices != null;
+	}
+
+	/**
+	 * Returns true when the file came with texture coordinates
+	 */
+	public boolean hasTextures() {
+		return this.textureIndices != null;
+	}
+
+	/**
+	 * Returns the number of materials the triangles are grouped by
+	 */
+	public int submeshCount() {
+		return this.materials.length;
+	}
+
+	/**
+	 * Returns the triangle at the given index as a new object - for code that
+	 * still works on triangles, never used by the render loop
+	 */
+	public Triangle getTriangle(int triangle) {
+		Vector4D[] vectors = new Vector4D[Triangle.SIDES];
+		for (int side = 0; side < Triangle.SIDES; side += 1) {
+			int vertex = this.indices[(triangle * Triangle.SIDES) + side];
+			vectors[side] = new Vector4D(this.positionsX[vertex], this.positionsY[vertex], this.positionsZ[vertex]);
 		}
+		return new Triangle(vectors[0], vectors[1], vectors[2], Palette.WHITE);
 	}
 }
@@ -0,0 +1,327 @@
+package com.skanderj.bresenham;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of a parsed .obj file, stored next to it - the first load parses
+ * the text & writes the cache, later loads map the cache read-only & copy the
+ * streams straight into the mesh arrays. The cache remembers the size & last
+ * modification time of its source & is rebuilt as soon as either changes
+ *
+ * Layout, little endian - a 56 bytes header (magic, version, flags, vertex,
+ * triangle, texture & normal counts, size of the material section, source size
+ * & time, CRC32 of the payload) followed by the
+ * payload: float32 positions (all x, all y, all z), texture coordinates (all u,
+ * all v) & normals (all x, all y, all z), then the position, texture & normal
+ * index streams as uint16 when their element count allows it (0xFFFF for a
+ * missing index), uint32 otherwise, then the material section - the library
+ * count & names, the submesh count & every submesh's first triangle & material
+ * name, names as uint16 length prefixed UTF-8. Materials themselves are read
+ * from their libraries again on load, so edited .mtl files are picked up. The
+ * cache gets the permissions of its source & is only ever a shortcut - a cache
+ * that can't be read is reported & the source parsed instead
+ */
+public final class MeshCache {
+	public static final String EXTENSION = ".mesh";
+	public static final int MAGIC = 0x534D5242, VERSION = 3;
+	private static final int HEADER_SIZE = 56;
+	// Offset of the payload's CRC32 in the header
+	private static final int CHECKSUM_OFFSET = 48;
+	// Header flags
+	private static final int HAS_TEXTURES = 1, HAS_NORMALS = 1 << 1, WIDE_INDICES = 1 << 2, WIDE_TEXTURE_INDICES = 1 << 3, WIDE_NORMAL_INDICES = 1 << 4;
+	// Largest element count that still fits 16 bits indices, 0xFFFF is missing
+	private static final int NARROW_LIMIT = 0xFFFF, MISSING_NARROW_INDEX = 0xFFFF;
+
+	private MeshCache() {
+		return;
+	}
+
+	/**
+	 * Loads a mesh through its cache - parses the .obj file & (re)writes the
+	 * cache when there is none or it is stale. The mesh always comes from the
+	 * cache when it could be written, so both ways give the same float32 data
+	 */
+	public static Mesh load(String objName) throws IOException {
+		return MeshCache.load(objName, null);
+	}
+
+	/**
+	 * Same as load, partial meshes are handed to the listener while the .obj
+	 * file is parsed - nothing is handed when the cache is used
+	 */
+	public static Mesh load(String objName, Consumer<Mesh> listener) throws IOException {
+		File objFile = new File(objName);
+		File cacheFile = new File(objName + MeshCache.EXTENSION);
+		Mesh mesh = null;
+		try {
+			mesh = MeshCache.read(cacheFile, objFile.length(), objFile.lastModified());
+		} catch (IOException exception) {
+			// Another user's cache, a file system that can't map... - a miss
+			System.err.println("Can't read mesh cache " + cacheFile + ", parsing " + objName + ": " + exception.getMessage());
+		}
+		if (mesh != null) {
+			return mesh;
+		}
+		mesh = ObjLoader.load(objName, listener);
+		Mesh cached = null;
+		try {
+			MeshCache.write(mesh, cacheFile, objFile);
+			// Libraries were just read by the loader
+			cached = MeshCache.read(cacheFile, objFile.length(), objFile.lastModified(), mesh.materials);
+		} catch (IOException exception) {
+			// Read-only directory & such - still usable, just slower next time
+			System.err.println("Can't write mesh cache " + cacheFile + ": " + exception.getMessage());
+		}
+		return cached == null ? mesh : cached;
+	}
+
+	/**
+	 * Maps & reads a cache file - returns null when it is missing, stale,
+	 * truncated, from another version or corrupted. Materials are resolved
+	 * against the libraries next to the cache file
+	 */
+	public static Mesh read(File cacheFile, long sourceLength, long sourceModified) throws IOException {
+		return MeshCache.read(cacheFile, sourceLength, sourceModified, null);
+	}
+
+	/**
+	 * Same as above, with the materials already resolved when not null
+	 */
+	private static Mesh read(File cacheFile, long sourceLength, long sourceModified, Material[] materials) throws IOException {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if ((size < MeshCache.HEADER_SIZE) || (size > Integer.MAX_VALUE)) {
+				return null;
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+			if ((buffer.getInt(0) != MeshCache.MAGIC) || (buffer.getInt(4) != MeshCache.VERSION)) {
+				return null;
+			}
+			int flags = buffer.getInt(8);
+			int vertexCount = buffer.getInt(12), triangleCount = buffer.getInt(16), textureCount = buffer.getInt(20), normalCount = buffer.getInt(24), materialSize = buffer.getInt(28);
+			if ((buffer.getLong(32) != sourceLength) || (buffer.getLong(40) != sourceModified)) {
+				return null;
+			}
+			if ((vertexCount < 0) || (triangleCount < 0) || (textureCount < 0) || (normalCount < 0) || (materialSize < 0) || ((MeshCache.payloadSize(flags, vertexCount, triangleCount, textureCount, normalCount) + materialSize) != (size - MeshCache.HEADER_SIZE))) {
+				return null;
+			}
+			CRC32 checksum = new CRC32();
+			buffer.position(MeshCache.HEADER_SIZE);
+			checksum.update(buffer);
+			if (checksum.getValue() != buffer.getLong(MeshCache.CHECKSUM_OFFSET)) {
+				return null;
+			}
+			buffer.position(MeshCache.HEADER_SIZE);
+			double[] positionsX = MeshCache.readFloats(buffer, vertexCount), positionsY = MeshCache.readFloats(buffer, vertexCount), positionsZ = MeshCache.readFloats(buffer, vertexCount);
+			double[] texturesU = MeshCache.readFloats(buffer, textureCount), texturesV = MeshCache.readFloats(buffer, textureCount);
+			double[] normalsX = MeshCache.readFloats(buffer, normalCount), normalsY = MeshCache.readFloats(buffer, normalCount), normalsZ = MeshCache.readFloats(buffer, normalCount);
+			int indexCount = triangleCount * Triangle.SIDES;
+			int[] indices = MeshCache.readIndices(buffer, indexCount, (flags & MeshCache.WIDE_INDICES) != 0);
+			int[] textureIndices = (flags & MeshCache.HAS_TEXTURES) == 0 ? null : MeshCache.readIndices(buffer, indexCount, (flags & MeshCache.WIDE_TEXTURE_INDICES) != 0);
+			int[] normalIndices = (flags & MeshCache.HAS_NORMALS) == 0 ? null : MeshCache.readIndices(buffer, indexCount, (flags & MeshCache.WIDE_NORMAL_INDICES) != 0);
+			try {
+				String[] materialLibraries = new String[buffer.getInt()];
+				for (int library = 0; library < materialLibraries.length; library += 1) {
+					materialLibraries[library] = MeshCache.readName(buffer);
+				}
+				int submeshCount = buffer.getInt();
+				if ((submeshCount <= 0) || (submeshCount > (triangleCount + 1))) {
+					return null;
+				}
+				String[] materialNames = new String[submeshCount];
+				int[] submeshStarts = new int[submeshCount + 1];
+				for (int submesh = 0; submesh < submeshCount; submesh += 1) {
+					submeshStarts[submesh] = buffer.getInt();
+					materialNames[submesh] = MeshCache.readName(buffer);
+				}
+				submeshStarts[submeshCount] = triangleCount;
+				if ((materials == null) || (materials.length != submeshCount)) {
+					materials = MaterialLibrary.resolve(cacheFile.getAbsoluteFile().getParentFile(), materialLibraries, materialNames);
+				}
+				return new Mesh(positionsX, positionsY, positionsZ, indices, texturesU, texturesV, textureIndices, normalsX, normalsY, normalsZ, normalIndices, materialLibraries, materials, submeshStarts);
+			} catch (BufferUnderflowException | IllegalArgumentException exception) {
+				// Lengths that don't add up, submeshes out of order
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Writes the cache of a mesh parsed from the source file - to a temporary
+	 * file first, moved over the cache once complete so a reader never sees half
+	 * a file. The cache gets the source's permissions where the file system has
+	 * POSIX ones, whoever can read the model can read its cache
+	 */
+	public static void write(Mesh mesh, File cacheFile, File sourceFile) throws IOException {
+		int flags = 0;
+		if (mesh.hasTextures()) {
+			flags |= MeshCache.HAS_TEXTURES;
+			flags |= mesh.textureCount > MeshCache.NARROW_LIMIT ? MeshCache.WIDE_TEXTURE_INDICES : 0;
+		}
+		if (mesh.hasNormals()) {
+			flags |= MeshCache.HAS_NORMALS;
+			flags |= mesh.normalCount > MeshCache.NARROW_LIMIT ? MeshCache.WIDE_NORMAL_INDICES : 0;
+		}
+		flags |= mesh.vertexCount > MeshCache.NARROW_LIMIT ? MeshCache.WIDE_INDICES : 0;
+		byte[][] materialLibraries = new byte[mesh.materialLibraries.length][], materialNames = new byte[mesh.submeshCount()][];
+		int materialSize = 2 * Integer.BYTES;
+		for (int library = 0; library < materialLibraries.length; library += 1) {
+			materialLibraries[library] = MeshCache.encodeName(mesh.materialLibraries[library]);
+			materialSize += Short.BYTES + materialLibraries[library].length;
+		}
+		for (int submesh = 0; submesh < materialNames.length; submesh += 1) {
+			materialNames[submesh] = MeshCache.encodeName(mesh.materials[submesh].name);
+			materialSize += Integer.BYTES + Short.BYTES + materialNames[submesh].length;
+		}
+		long payloadSize = MeshCache.payloadSize(flags, mesh.vertexCount, mesh.triangleCount, mesh.textureCount, mesh.normalCount) + materialSize;
+		if ((MeshCache.HEADER_SIZE + payloadSize) > Integer.MAX_VALUE) {
+			throw new IOException("Mesh too large");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) (MeshCache.HEADER_SIZE + payloadSize)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MeshCache.MAGIC).putInt(MeshCache.VERSION).putInt(flags);
+		buffer.putInt(mesh.vertexCount).putInt(mesh.triangleCount).putInt(mesh.textureCount).putInt(mesh.normalCount).putInt(materialSize);
+		buffer.putLong(sourceFile.length()).putLong(sourceFile.lastModified());
+		// Checksum goes in once the payload is written
+		buffer.putLong(0L);
+		MeshCache.writeFloats(buffer, mesh.positionsX, mesh.vertexCount);
+		MeshCache.writeFloats(buffer, mesh.positionsY, mesh.vertexCount);
+		MeshCache.writeFloats(buffer, mesh.positionsZ, mesh.vertexCount);
+		MeshCache.writeFloats(buffer, mesh.texturesU, mesh.textureCount);
+		MeshCache.writeFloats(buffer, mesh.texturesV, mesh.textureCount);
+		MeshCache.writeFloats(buffer, mesh.normalsX, mesh.normalCount);
+		MeshCache.writeFloats(buffer, mesh.normalsY, mesh.normalCount);
+		MeshCache.writeFloats(buffer, mesh.normalsZ, mesh.normalCount);
+		MeshCache.writeIndices(buffer, mesh.indices, (flags & MeshCache.WIDE_INDICES) != 0);
+		if (mesh.hasTextures()) {
+			MeshCache.writeIndices(buffer, mesh.textureIndices, (flags & MeshCache.WIDE_TEXTURE_INDICES) != 0);
+		}
+		if (mesh.hasNormals()) {
+			MeshCache.writeIndices(buffer, mesh.normalIndices, (flags & MeshCache.WIDE_NORMAL_INDICES) != 0);
+		}
+		buffer.putInt(materialLibraries.length);
+		for (byte[] library : materialLibraries) {
+			buffer.putShort((short) library.length).put(library);
+		}
+		buffer.putInt(materialNames.length);
+		for (int submesh = 0; submesh < materialNames.length; submesh += 1) {
+			buffer.putInt(mesh.submeshStarts[submesh]);
+			buffer.putShort((short) materialNames[submesh].length).put(materialNames[submesh]);
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(buffer.array(), MeshCache.HEADER_SIZE, (int) payloadSize);
+		buffer.putLong(MeshCache.CHECKSUM_OFFSET, checksum.getValue());
+		buffer.flip();
+		Path target = cacheFile.toPath();
+		Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), cacheFile.getName(), ".tmp");
+		try {
+			// Temporary files are only readable by their owner
+			if (Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+				Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(sourceFile.toPath()));
+			}
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * UTF-8 bytes of a name, which must fit a uint16 length
+	 */
+	private static byte[] encodeName(String name) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) {
+			throw new IOException("Name too long: " + name.substring(0, 32) + "...");
+		}
+		return bytes;
+	}
+
+	private static String readName(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Size of the payload in bytes for the given flags & counts, material
+	 * section excluded
+	 */
+	private static long payloadSize(int flags, int vertexCount, int triangleCount, int textureCount, int normalCount) {
+		long indexCount = (long) triangleCount * Triangle.SIDES;
+		long size = ((3L * vertexCount) + (2L * textureCount) + (3L * normalCount)) * Float.BYTES;
+		size += indexCount * ((flags & MeshCache.WIDE_INDICES) != 0 ? Integer.BYTES : Short.BYTES);
+		if ((flags & MeshCache.HAS_TEXTURES) != 0) {
+			size += indexCount * ((flags & MeshCache.WIDE_TEXTURE_INDICES) != 0 ? Integer.BYTES : Short.BYTES);
+		}
+		if ((flags & MeshCache.HAS_NORMALS) != 0) {
+			size += indexCount * ((flags & MeshCache.WIDE_NORMAL_INDICES) != 0 ? Integer.BYTES : Short.BYTES);
+		}
+		return size;
+	}
+
+	private static double[] readFloats(ByteBuffer buffer, int count) {
+		FloatBuffer floats = buffer.asFloatBuffer();
+		double[] values = new double[count];
+		for (int index = 0; index < count; index += 1) {
+			values[index] = floats.get(index);
+		}
+		buffer.position(buffer.position() + (count * Float.BYTES));
+		return values;
+	}
+
+	private static void writeFloats(ByteBuffer buffer, double[] values, int count) {
+		for (int index = 0; index < count; index += 1) {
+			buffer.putFloat((float) values[index]);
+		}
+	}
+
+	private static int[] readIndices(ByteBuffer buffer, int count, boolean wide) {
+		int[] indices = new int[count];
+		if (wide) {
+			IntBuffer ints = buffer.asIntBuffer();
+			ints.get(indices);
+			buffer.position(buffer.position() + (count * Integer.BYTES));
+		} else {
+			ShortBuffer shorts = buffer.asShortBuffer();
+			for (int index = 0; index < count; index += 1) {
+				int value = shorts.get(index) & 0xFFFF;
+				indices[index] = value == MeshCache.MISSING_NARROW_INDEX ? -1 : value;
+			}
+			buffer.position(buffer.position() + (count * Short.BYTES));
+		}
+		return indices;
+	}
+
+	private static void writeIndices(ByteBuffer buffer, int[] indices, boolean wide) {
+		for (int index = 0; index < indices.length; index += 1) {
+			if (wide) {
+				buffer.putInt(indices[index]);
+			} else {
+				buffer.putShort((short) (indices[index] < 0 ? MeshCache.MISSING_NARROW_INDEX : indices[index]));
+			}
+		}
+	}
+}
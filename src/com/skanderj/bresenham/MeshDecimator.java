@@ -0,0 +1,706 @@
+package com.skanderj.bresenham;
+
+import java.util.Arrays;
+
+/**
+ * Quadric error edge collapse decimation (Garland & Heckbert) - every vertex
+ * sums the planes of its triangles into a quadric, edges are collapsed
+ * cheapest first, the cost of an edge being the squared distance from its
+ * merged vertex to the planes of both ends. Vertices sharing a position are
+ * welded first so seams don't open, open borders get extra planes
+ * perpendicular to them so they keep their outline & collapses that would flip
+ * a triangle are skipped. Materials, texture coordinates & file normals
+ * survive - corners keep pointing into the source's streams, a merged vertex
+ * takes the attributes of the end closer to its position & vertices on a
+ * texture or normal seam (corners with different attributes) aren't collapsed,
+ * so charts don't bleed into each other
+ */
+public final class MeshDecimator {
+	// Coefficients of a quadric - upper half of a symmetric 4x4 matrix, aa ab
+	// ac ad bb bc bd cc cd dd
+	private static final int QUADRIC_SIZE = 10;
+	// Weight of the border planes, relative to triangle planes
+	private static final double BORDER_WEIGHT = 1000.0;
+	// Smallest cosine between a triangle's normal before & after a collapse
+	private static final double FLIP_THRESHOLD = 0.2;
+	// Below this (relative to the cube of the trace), the quadric has no single
+	// minimum & the merged vertex is picked among the ends & the middle
+	private static final double SINGULAR_DETERMINANT = 1e-9;
+	// Corners closer than this cosine between their normals (about 2.5
+	// degrees) or this distance between their texture coordinates aren't a seam -
+	// exporters write the same attribute several times with rounding errors
+	private static final double SEAM_NORMAL_COSINE = 0.999, SEAM_TEXTURE_DISTANCE = 1e-5;
+	// Initial capacity of the heap & of the per-vertex triangle lists
+	private static final int INITIAL_CAPACITY = 1024, INITIAL_LIST_CAPACITY = 8;
+
+	/**
+	 * Returns a mesh with at most the target number of triangles, or as close as
+	 * collapses allow - the given mesh is left untouched
+	 */
+	public static Mesh decimate(Mesh mesh, int targetTriangles) {
+		return new MeshDecimator(mesh).run(targetTriangles);
+	}
+
+	// Materials of the source, carried over to the triangles that survive
+	private final String[] materialLibraries;
+	private final Material[] materials;
+	private final int[] submeshStarts;
+	// Texture coordinates & file normals of the source, shared with the result,
+	// & working copies of their per corner index streams - null when it has none
+	private final double[] texturesU, texturesV, normalsX, normalsY, normalsZ;
+	private final int[] textureIndices, normalIndices;
+	// Working copy - welded positions, triangles & their state
+	private final double[] positionsX, positionsY, positionsZ;
+	private final int[] indices;
+	private final boolean[] removedTriangles, removedVertices;
+	private int triangleCount;
+	private final double[] quadrics;
+	// Live & removed triangles around every vertex, cleaned up as collapses go
+	private final int[][] vertexTriangles;
+	private final int[] vertexTriangleCounts;
+	// Bumped by every collapse touching the vertex - heap entries recorded with
+	// older versions are stale
+	private final int[] versions;
+	// Marks of the neighbour search, valid when equal to the current mark
+	private final int[] neighbourMarks;
+	private int mark;
+
+	// Binary min-heap of candidate collapses
+	private double[] heapCosts;
+	private int[] heapFirst, heapSecond, heapFirstVersions, heapSecondVersions;
+	private int heapSize;
+
+	// Merged vertex of the last evaluated collapse & its cost
+	private double collapseX, collapseY, collapseZ, collapseCost;
+
+	private MeshDecimator(Mesh mesh) {
+		int vertexCount = mesh.vertexCount;
+		this.materialLibraries = mesh.materialLibraries;
+		this.materials = mesh.materials;
+		this.submeshStarts = mesh.submeshStarts;
+		this.texturesU = mesh.texturesU;
+		this.texturesV = mesh.texturesV;
+		this.normalsX = mesh.normalsX;
+		this.normalsY = mesh.normalsY;
+		this.normalsZ = mesh.normalsZ;
+		this.textureIndices = mesh.textureIndices == null ? null : Arrays.copyOf(mesh.textureIndices, mesh.triangleCount * Triangle.SIDES);
+		this.normalIndices = mesh.normalIndices == null ? null : Arrays.copyOf(mesh.normalIndices, mesh.triangleCount * Triangle.SIDES);
+		this.positionsX = Arrays.copyOf(mesh.positionsX, vertexCount);
+		this.positionsY = Arrays.copyOf(mesh.positionsY, vertexCount);
+		this.positionsZ = Arrays.copyOf(mesh.positionsZ, vertexCount);
+		this.triangleCount = mesh.triangleCount;
+		this.indices = Arrays.copyOf(mesh.indices, mesh.triangleCount * Triangle.SIDES);
+		int[] welded = this.weld();
+		for (int index = 0; index < this.indices.length; index += 1) {
+			this.indices[index] = welded[this.indices[index]];
+		}
+		this.removedTriangles = new boolean[this.triangleCount];
+		this.removedVertices = new boolean[vertexCount];
+		this.quadrics = new double[vertexCount * MeshDecimator.QUADRIC_SIZE];
+		this.vertexTriangles = new int[vertexCount][];
+		this.vertexTriangleCounts = new int[vertexCount];
+		this.versions = new int[vertexCount];
+		this.neighbourMarks = new int[vertexCount];
+		this.mark = 0;
+		this.heapCosts = new double[MeshDecimator.INITIAL_CAPACITY];
+		this.heapFirst = new int[MeshDecimator.INITIAL_CAPACITY];
+		this.heapSecond = new int[MeshDecimator.INITIAL_CAPACITY];
+		this.heapFirstVersions = new int[MeshDecimator.INITIAL_CAPACITY];
+		this.heapSecondVersions = new int[MeshDecimator.INITIAL_CAPACITY];
+		this.heapSize = 0;
+	}
+
+	/**
+	 * Maps every vertex to the first vertex with the same position
+	 */
+	private int[] weld() {
+		int vertexCount = this.positionsX.length;
+		Integer[] order = new Integer[vertexCount];
+		for (int vertex = 0; vertex < vertexCount; vertex += 1) {
+			order[vertex] = vertex;
+		}
+		// Stable sort - among vertices at the same position, the lowest index
+		// comes first & is the one kept
+		Arrays.sort(order, this::comparePositions);
+		int[] welded = new int[vertexCount];
+		for (int index = 0; index < vertexCount; index += 1) {
+			int vertex = order[index];
+			welded[vertex] = ((index > 0) && (this.comparePositions(order[index - 1], vertex) == 0)) ? welded[order[index - 1]] : vertex;
+		}
+		return welded;
+	}
+
+	private int comparePositions(int first, int second) {
+		int comparison = Double.compare(this.positionsX[first], this.positionsX[second]);
+		if (comparison == 0) {
+			comparison = Double.compare(this.positionsY[first], this.positionsY[second]);
+		}
+		if (comparison == 0) {
+			comparison = Double.compare(this.positionsZ[first], this.positionsZ[second]);
+		}
+		return comparison;
+	}
+
+	private Mesh run(int targetTriangles) {
+		this.removeDegenerateTriangles();
+		this.buildAdjacency();
+		this.accumulateQuadrics();
+		for (int triangle = 0; triangle < this.removedTriangles.length; triangle += 1) {
+			if (!this.removedTriangles[triangle]) {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					this.pushEdge(this.indices[(triangle * Triangle.SIDES) + side], this.indices[(triangle * Triangle.SIDES) + ((side + 1) % Triangle.SIDES)]);
+				}
+			}
+		}
+		while ((this.triangleCount > targetTriangles) && (this.heapSize > 0)) {
+			int first = this.heapFirst[0], second = this.heapSecond[0];
+			boolean stale = (this.heapFirstVersions[0] != this.versions[first]) || (this.heapSecondVersions[0] != this.versions[second]);
+			this.popEdge();
+			if (stale || this.removedVertices[first] || this.removedVertices[second]) {
+				continue;
+			}
+			if (this.sharesTooManyNeighbours(first, second) || this.isOnSeam(first) || this.isOnSeam(second)) {
+				continue;
+			}
+			this.evaluateCollapse(first, second);
+			if (this.flipsTriangle(first, second) || this.flipsTriangle(second, first)) {
+				continue;
+			}
+			this.collapse(first, second);
+		}
+		return this.compact();
+	}
+
+	/**
+	 * Welding can leave triangles with twice the same vertex
+	 */
+	private void removeDegenerateTriangles() {
+		for (int triangle = 0; triangle < this.removedTriangles.length; triangle += 1) {
+			int first = this.indices[triangle * Triangle.SIDES], second = this.indices[(triangle * Triangle.SIDES) + 1], third = this.indices[(triangle * Triangle.SIDES) + 2];
+			if ((first == second) || (second == third) || (third == first)) {
+				this.removedTriangles[triangle] = true;
+				this.triangleCount -= 1;
+			}
+		}
+	}
+
+	private void buildAdjacency() {
+		for (int triangle = 0; triangle < this.removedTriangles.length; triangle += 1) {
+			if (!this.removedTriangles[triangle]) {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					this.addVertexTriangle(this.indices[(triangle * Triangle.SIDES) + side], triangle);
+				}
+			}
+		}
+	}
+
+	private void addVertexTriangle(int vertex, int triangle) {
+		int[] triangles = this.vertexTriangles[vertex];
+		int count = this.vertexTriangleCounts[vertex];
+		if (triangles == null) {
+			triangles = new int[MeshDecimator.INITIAL_LIST_CAPACITY];
+		} else if (count == triangles.length) {
+			triangles = Arrays.copyOf(triangles, count * 2);
+		}
+		triangles[count] = triangle;
+		this.vertexTriangles[vertex] = triangles;
+		this.vertexTriangleCounts[vertex] = count + 1;
+	}
+
+	/**
+	 * Area weighted plane of every triangle, plus a plane perpendicular to every
+	 * open border edge (used by a single triangle)
+	 */
+	private void accumulateQuadrics() {
+		for (int triangle = 0; triangle < this.removedTriangles.length; triangle += 1) {
+			if (this.removedTriangles[triangle]) {
+				continue;
+			}
+			int first = this.indices[triangle * Triangle.SIDES], second = this.indices[(triangle * Triangle.SIDES) + 1], third = this.indices[(triangle * Triangle.SIDES) + 2];
+			double normalX = this.normalX(first, second, third), normalY = this.normalY(first, second, third), normalZ = this.normalZ(first, second, third);
+			double length = Math.sqrt((normalX * normalX) + (normalY * normalY) + (normalZ * normalZ));
+			if (length != 0.0) {
+				normalX /= length;
+				normalY /= length;
+				normalZ /= length;
+				double distance = -((normalX * this.positionsX[first]) + (normalY * this.positionsY[first]) + (normalZ * this.positionsZ[first]));
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					this.addPlane(this.indices[(triangle * Triangle.SIDES) + side], normalX, normalY, normalZ, distance, length * 0.5);
+				}
+			}
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				int start = this.indices[(triangle * Triangle.SIDES) + side], end = this.indices[(triangle * Triangle.SIDES) + ((side + 1) % Triangle.SIDES)];
+				if (this.countEdgeTriangles(start, end) == 1) {
+					this.addBorderPlane(triangle, side);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of live triangles using both vertices
+	 */
+	private int countEdgeTriangles(int start, int end) {
+		int[] triangles = this.vertexTriangles[start];
+		int count = 0;
+		for (int index = 0; index < this.vertexTriangleCounts[start]; index += 1) {
+			int offset = triangles[index] * Triangle.SIDES;
+			if (!this.removedTriangles[triangles[index]] && ((this.indices[offset] == end) || (this.indices[offset + 1] == end) || (this.indices[offset + 2] == end))) {
+				count += 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Plane through a border edge, perpendicular to its triangle
+	 */
+	private void addBorderPlane(int triangle, int side) {
+		int start = this.indices[(triangle * Triangle.SIDES) + side], end = this.indices[(triangle * Triangle.SIDES) + ((side + 1) % Triangle.SIDES)];
+		int first = this.indices[triangle * Triangle.SIDES], second = this.indices[(triangle * Triangle.SIDES) + 1], third = this.indices[(triangle * Triangle.SIDES) + 2];
+		double normalX = this.normalX(first, second, third), normalY = this.normalY(first, second, third), normalZ = this.normalZ(first, second, third);
+		double edgeX = this.positionsX[end] - this.positionsX[start], edgeY = this.positionsY[end] - this.positionsY[start], edgeZ = this.positionsZ[end] - this.positionsZ[start];
+		double planeX = (edgeY * normalZ) - (edgeZ * normalY), planeY = (edgeZ * normalX) - (edgeX * normalZ), planeZ = (edgeX * normalY) - (edgeY * normalX);
+		double length = Math.sqrt((planeX * planeX) + (planeY * planeY) + (planeZ * planeZ));
+		if (length == 0.0) {
+			return;
+		}
+		planeX /= length;
+		planeY /= length;
+		planeZ /= length;
+		double distance = -((planeX * this.positionsX[start]) + (planeY * this.positionsY[start]) + (planeZ * this.positionsZ[start]));
+		double weight = MeshDecimator.BORDER_WEIGHT * ((edgeX * edgeX) + (edgeY * edgeY) + (edgeZ * edgeZ));
+		this.addPlane(start, planeX, planeY, planeZ, distance, weight);
+		this.addPlane(end, planeX, planeY, planeZ, distance, weight);
+	}
+
+	private void addPlane(int vertex, double a, double b, double c, double d, double weight) {
+		double[] quadric = this.quadrics;
+		int offset = vertex * MeshDecimator.QUADRIC_SIZE;
+		quadric[offset] += weight * a * a;
+		quadric[offset + 1] += weight * a * b;
+		quadric[offset + 2] += weight * a * c;
+		quadric[offset + 3] += weight * a * d;
+		quadric[offset + 4] += weight * b * b;
+		quadric[offset + 5] += weight * b * c;
+		quadric[offset + 6] += weight * b * d;
+		quadric[offset + 7] += weight * c * c;
+		quadric[offset + 8] += weight * c * d;
+		quadric[offset + 9] += weight * d * d;
+	}
+
+	/**
+	 * Finds the merged vertex of an edge & its cost - the minimum of the summed
+	 * quadric when there is a single one close to the edge, the best of both
+	 * ends & the middle otherwise
+	 */
+	private void evaluateCollapse(int first, int second) {
+		double[] quadric = this.quadrics;
+		int firstOffset = first * MeshDecimator.QUADRIC_SIZE, secondOffset = second * MeshDecimator.QUADRIC_SIZE;
+		double aa = quadric[firstOffset] + quadric[secondOffset], ab = quadric[firstOffset + 1] + quadric[secondOffset + 1], ac = quadric[firstOffset + 2] + quadric[secondOffset + 2], ad = quadric[firstOffset + 3] + quadric[secondOffset + 3];
+		double bb = quadric[firstOffset + 4] + quadric[secondOffset + 4], bc = quadric[firstOffset + 5] + quadric[secondOffset + 5], bd = quadric[firstOffset + 6] + quadric[secondOffset + 6];
+		double cc = quadric[firstOffset + 7] + quadric[secondOffset + 7], cd = quadric[firstOffset + 8] + quadric[secondOffset + 8], dd = quadric[firstOffset + 9] + quadric[secondOffset + 9];
+		double middleX = (this.positionsX[first] + this.positionsX[second]) * 0.5, middleY = (this.positionsY[first] + this.positionsY[second]) * 0.5, middleZ = (this.positionsZ[first] + this.positionsZ[second]) * 0.5;
+		double edgeX = this.positionsX[second] - this.positionsX[first], edgeY = this.positionsY[second] - this.positionsY[first], edgeZ = this.positionsZ[second] - this.positionsZ[first];
+		double edgeLengthSquared = (edgeX * edgeX) + (edgeY * edgeY) + (edgeZ * edgeZ);
+		// Cramer's rule on the 3x3 part
+		double cofactor00 = (bb * cc) - (bc * bc), cofactor01 = (bc * ac) - (ab * cc), cofactor02 = (ab * bc) - (bb * ac);
+		double determinant = (aa * cofactor00) + (ab * cofactor01) + (ac * cofactor02);
+		double trace = aa + bb + cc;
+		if (Math.abs(determinant) > (MeshDecimator.SINGULAR_DETERMINANT * trace * trace * trace)) {
+			double cofactor11 = (aa * cc) - (ac * ac), cofactor12 = (ab * ac) - (aa * bc), cofactor22 = (aa * bb) - (ab * ab);
+			double x = -((cofactor00 * ad) + (cofactor01 * bd) + (cofactor02 * cd)) / determinant;
+			double y = -((cofactor01 * ad) + (cofactor11 * bd) + (cofactor12 * cd)) / determinant;
+			double z = -((cofactor02 * ad) + (cofactor12 * bd) + (cofactor22 * cd)) / determinant;
+			double offsetX = x - middleX, offsetY = y - middleY, offsetZ = z - middleZ;
+			// Nearly singular quadrics can put the minimum far away
+			if (((offsetX * offsetX) + (offsetY * offsetY) + (offsetZ * offsetZ)) <= edgeLengthSquared) {
+				this.collapseX = x;
+				this.collapseY = y;
+				this.collapseZ = z;
+				this.collapseCost = MeshDecimator.error(aa, ab, ac, ad, bb, bc, bd, cc, cd, dd, x, y, z);
+				return;
+			}
+		}
+		double firstCost = MeshDecimator.error(aa, ab, ac, ad, bb, bc, bd, cc, cd, dd, this.positionsX[first], this.positionsY[first], this.positionsZ[first]);
+		double secondCost = MeshDecimator.error(aa, ab, ac, ad, bb, bc, bd, cc, cd, dd, this.positionsX[second], this.positionsY[second], this.positionsZ[second]);
+		double middleCost = MeshDecimator.error(aa, ab, ac, ad, bb, bc, bd, cc, cd, dd, middleX, middleY, middleZ);
+		if ((middleCost <= firstCost) && (middleCost <= secondCost)) {
+			this.collapseX = middleX;
+			this.collapseY = middleY;
+			this.collapseZ = middleZ;
+			this.collapseCost = middleCost;
+		} else {
+			int best = firstCost <= secondCost ? first : second;
+			this.collapseX = this.positionsX[best];
+			this.collapseY = this.positionsY[best];
+			this.collapseZ = this.positionsZ[best];
+			this.collapseCost = Math.min(firstCost, secondCost);
+		}
+	}
+
+	/**
+	 * vT.Q.v for v = (x, y, z, 1)
+	 */
+	private static double error(double aa, double ab, double ac, double ad, double bb, double bc, double bd, double cc, double cd, double dd, double x, double y, double z) {
+		return (aa * x * x) + (2.0 * ab * x * y) + (2.0 * ac * x * z) + (2.0 * ad * x) + (bb * y * y) + (2.0 * bc * y * z) + (2.0 * bd * y) + (cc * z * z) + (2.0 * cd * z) + dd;
+	}
+
+	/**
+	 * Returns true when the ends of the edge have more than the 2 neighbours of
+	 * the triangles on the edge in common - collapsing would pinch the surface
+	 * into a non manifold one
+	 */
+	private boolean sharesTooManyNeighbours(int first, int second) {
+		this.mark += 1;
+		int[] triangles = this.vertexTriangles[first];
+		for (int index = 0; index < this.vertexTriangleCounts[first]; index += 1) {
+			if (!this.removedTriangles[triangles[index]]) {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					this.neighbourMarks[this.indices[(triangles[index] * Triangle.SIDES) + side]] = this.mark;
+				}
+			}
+		}
+		int firstMark = this.mark;
+		// Second mark so that each shared neighbour only counts once
+		this.mark += 1;
+		int shared = 0;
+		triangles = this.vertexTriangles[second];
+		for (int index = 0; index < this.vertexTriangleCounts[second]; index += 1) {
+			if (!this.removedTriangles[triangles[index]]) {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					int vertex = this.indices[(triangles[index] * Triangle.SIDES) + side];
+					if ((vertex != first) && (vertex != second) && (this.neighbourMarks[vertex] == firstMark)) {
+						this.neighbourMarks[vertex] = this.mark;
+						shared += 1;
+					}
+				}
+			}
+		}
+		return shared > 2;
+	}
+
+	/**
+	 * Returns true when the live corners of the vertex don't all have the same
+	 * texture coordinates & normal - it sits on a seam
+	 */
+	private boolean isOnSeam(int vertex) {
+		if ((this.textureIndices == null) && (this.normalIndices == null)) {
+			return false;
+		}
+		int[] triangles = this.vertexTriangles[vertex];
+		int corner = -1;
+		for (int index = 0; index < this.vertexTriangleCounts[vertex]; index += 1) {
+			if (!this.removedTriangles[triangles[index]]) {
+				int other = this.cornerOf(triangles[index], vertex);
+				if (corner == -1) {
+					corner = other;
+				} else if (!this.hasSameAttributes(corner, other)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the corner of a triangle using the vertex
+	 */
+	private int cornerOf(int triangle, int vertex) {
+		int offset = triangle * Triangle.SIDES;
+		return this.indices[offset] == vertex ? offset : (this.indices[offset + 1] == vertex ? offset + 1 : offset + 2);
+	}
+
+	/**
+	 * Returns true when both corners have the same texture coordinates & normal -
+	 * same index or close enough values
+	 */
+	private boolean hasSameAttributes(int first, int second) {
+		if (this.textureIndices != null) {
+			int firstTexture = this.textureIndices[first], secondTexture = this.textureIndices[second];
+			if (firstTexture != secondTexture) {
+				if ((firstTexture == -1) || (secondTexture == -1)) {
+					return false;
+				}
+				if ((Math.abs(this.texturesU[firstTexture] - this.texturesU[secondTexture]) > MeshDecimator.SEAM_TEXTURE_DISTANCE) || (Math.abs(this.texturesV[firstTexture] - this.texturesV[secondTexture]) > MeshDecimator.SEAM_TEXTURE_DISTANCE)) {
+					return false;
+				}
+			}
+		}
+		if (this.normalIndices != null) {
+			int firstNormal = this.normalIndices[first], secondNormal = this.normalIndices[second];
+			if (firstNormal != secondNormal) {
+				if ((firstNormal == -1) || (secondNormal == -1)) {
+					return false;
+				}
+				double firstX = this.normalsX[firstNormal], firstY = this.normalsY[firstNormal], firstZ = this.normalsZ[firstNormal];
+				double secondX = this.normalsX[secondNormal], secondY = this.normalsY[secondNormal], secondZ = this.normalsZ[secondNormal];
+				// File normals aren't always unit length
+				double dotProduct = (firstX * secondX) + (firstY * secondY) + (firstZ * secondZ);
+				double lengths = Math.sqrt(((firstX * firstX) + (firstY * firstY) + (firstZ * firstZ)) * ((secondX * secondX) + (secondY * secondY) + (secondZ * secondZ)));
+				if (dotProduct < (MeshDecimator.SEAM_NORMAL_COSINE * lengths)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a live corner using the vertex, -1 if none
+	 */
+	private int findCorner(int vertex) {
+		int[] triangles = this.vertexTriangles[vertex];
+		for (int index = 0; index < this.vertexTriangleCounts[vertex]; index += 1) {
+			if (!this.removedTriangles[triangles[index]]) {
+				return this.cornerOf(triangles[index], vertex);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true when moving the vertex to the merged position turns one of
+	 * its triangles (other than those on the collapsed edge) too far around
+	 */
+	private boolean flipsTriangle(int vertex, int other) {
+		int[] triangles = this.vertexTriangles[vertex];
+		for (int index = 0; index < this.vertexTriangleCounts[vertex]; index += 1) {
+			int triangle = triangles[index];
+			if (this.removedTriangles[triangle]) {
+				continue;
+			}
+			int offset = triangle * Triangle.SIDES;
+			int first = this.indices[offset], second = this.indices[offset + 1], third = this.indices[offset + 2];
+			if ((first == other) || (second == other) || (third == other)) {
+				continue;
+			}
+			double normalX = this.normalX(first, second, third), normalY = this.normalY(first, second, third), normalZ = this.normalZ(first, second, third);
+			double x = this.positionsX[vertex], y = this.positionsY[vertex], z = this.positionsZ[vertex];
+			this.positionsX[vertex] = this.collapseX;
+			this.positionsY[vertex] = this.collapseY;
+			this.positionsZ[vertex] = this.collapseZ;
+			double movedX = this.normalX(first, second, third), movedY = this.normalY(first, second, third), movedZ = this.normalZ(first, second, third);
+			this.positionsX[vertex] = x;
+			this.positionsY[vertex] = y;
+			this.positionsZ[vertex] = z;
+			double dotProduct = (normalX * movedX) + (normalY * movedY) + (normalZ * movedZ);
+			double lengths = Math.sqrt(((normalX * normalX) + (normalY * normalY) + (normalZ * normalZ)) * ((movedX * movedX) + (movedY * movedY) + (movedZ * movedZ)));
+			if ((lengths == 0.0) || (dotProduct < (MeshDecimator.FLIP_THRESHOLD * lengths))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Merges the second vertex into the first at the evaluated position - the
+	 * triangles on the edge disappear, the others move over to the first vertex.
+	 * Neither end is on a seam, all corners of the merged vertex get the
+	 * attributes of the end closer to its position
+	 */
+	private void collapse(int first, int second) {
+		double firstX = this.positionsX[first] - this.collapseX, firstY = this.positionsY[first] - this.collapseY, firstZ = this.positionsZ[first] - this.collapseZ;
+		double secondX = this.positionsX[second] - this.collapseX, secondY = this.positionsY[second] - this.collapseY, secondZ = this.positionsZ[second] - this.collapseZ;
+		boolean firstCloser = ((firstX * firstX) + (firstY * firstY) + (firstZ * firstZ)) <= ((secondX * secondX) + (secondY * secondY) + (secondZ * secondZ));
+		int source = this.findCorner(firstCloser ? first : second);
+		int texture = ((this.textureIndices == null) || (source == -1)) ? -1 : this.textureIndices[source];
+		int normal = ((this.normalIndices == null) || (source == -1)) ? -1 : this.normalIndices[source];
+		this.positionsX[first] = this.collapseX;
+		this.positionsY[first] = this.collapseY;
+		this.positionsZ[first] = this.collapseZ;
+		for (int coefficient = 0; coefficient < MeshDecimator.QUADRIC_SIZE; coefficient += 1) {
+			this.quadrics[(first * MeshDecimator.QUADRIC_SIZE) + coefficient] += this.quadrics[(second * MeshDecimator.QUADRIC_SIZE) + coefficient];
+		}
+		this.removedVertices[second] = true;
+		this.versions[first] += 1;
+		this.versions[second] += 1;
+		int[] triangles = this.vertexTriangles[second];
+		for (int index = 0; index < this.vertexTriangleCounts[second]; index += 1) {
+			int triangle = triangles[index];
+			if (this.removedTriangles[triangle]) {
+				continue;
+			}
+			int offset = triangle * Triangle.SIDES;
+			if ((this.indices[offset] == first) || (this.indices[offset + 1] == first) || (this.indices[offset + 2] == first)) {
+				this.removedTriangles[triangle] = true;
+				this.triangleCount -= 1;
+			} else {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					if (this.indices[offset + side] == second) {
+						this.indices[offset + side] = first;
+					}
+				}
+				this.addVertexTriangle(first, triangle);
+			}
+		}
+		this.vertexTriangles[second] = null;
+		this.vertexTriangleCounts[second] = 0;
+		// Drop removed triangles from the first vertex's list & queue its edges
+		// again with their new costs
+		triangles = this.vertexTriangles[first];
+		int kept = 0;
+		for (int index = 0; index < this.vertexTriangleCounts[first]; index += 1) {
+			int triangle = triangles[index];
+			if (!this.removedTriangles[triangle]) {
+				triangles[kept] = triangle;
+				kept += 1;
+				if (source != -1) {
+					int corner = this.cornerOf(triangle, first);
+					if (this.textureIndices != null) {
+						this.textureIndices[corner] = texture;
+					}
+					if (this.normalIndices != null) {
+						this.normalIndices[corner] = normal;
+					}
+				}
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					int vertex = this.indices[(triangle * Triangle.SIDES) + side];
+					if (vertex != first) {
+						this.pushEdge(first, vertex);
+					}
+				}
+			}
+		}
+		this.vertexTriangleCounts[first] = kept;
+	}
+
+	/**
+	 * Queues an edge with its current cost
+	 */
+	private void pushEdge(int first, int second) {
+		this.evaluateCollapse(first, second);
+		if (this.heapSize == this.heapCosts.length) {
+			int capacity = this.heapSize * 2;
+			this.heapCosts = Arrays.copyOf(this.heapCosts, capacity);
+			this.heapFirst = Arrays.copyOf(this.heapFirst, capacity);
+			this.heapSecond = Arrays.copyOf(this.heapSecond, capacity);
+			this.heapFirstVersions = Arrays.copyOf(this.heapFirstVersions, capacity);
+			this.heapSecondVersions = Arrays.copyOf(this.heapSecondVersions, capacity);
+		}
+		int slot = this.heapSize;
+		this.heapSize += 1;
+		// Sift up
+		while (slot > 0) {
+			int parent = (slot - 1) / 2;
+			if (this.heapCosts[parent] <= this.collapseCost) {
+				break;
+			}
+			this.moveEntry(parent, slot);
+			slot = parent;
+		}
+		this.heapCosts[slot] = this.collapseCost;
+		this.heapFirst[slot] = first;
+		this.heapSecond[slot] = second;
+		this.heapFirstVersions[slot] = this.versions[first];
+		this.heapSecondVersions[slot] = this.versions[second];
+	}
+
+	/**
+	 * Removes the cheapest entry
+	 */
+	private void popEdge() {
+		this.heapSize -= 1;
+		int last = this.heapSize;
+		double cost = this.heapCosts[last];
+		int slot = 0;
+		// Sift the last entry down from the top
+		while (true) {
+			int child = (slot * 2) + 1;
+			if (child >= last) {
+				break;
+			}
+			if (((child + 1) < last) && (this.heapCosts[child + 1] < this.heapCosts[child])) {
+				child += 1;
+			}
+			if (this.heapCosts[child] >= cost) {
+				break;
+			}
+			this.moveEntry(child, slot);
+			slot = child;
+		}
+		this.moveEntry(last, slot);
+	}
+
+	private void moveEntry(int source, int target) {
+		this.heapCosts[target] = this.heapCosts[source];
+		this.heapFirst[target] = this.heapFirst[source];
+		this.heapSecond[target] = this.heapSecond[source];
+		this.heapFirstVersions[target] = this.heapFirstVersions[source];
+		this.heapSecondVersions[target] = this.heapSecondVersions[source];
+	}
+
+	/**
+	 * Builds the decimated mesh from the live triangles & the vertices they use,
+	 * in their original order - so still grouped by material, submeshes left
+	 * without triangles are dropped. Texture coordinates & file normals are
+	 * shared with the source
+	 */
+	private Mesh compact() {
+		int[] remapped = new int[this.positionsX.length];
+		Arrays.fill(remapped, -1);
+		int[] indices = new int[this.triangleCount * Triangle.SIDES];
+		int[] textureIndices = this.textureIndices == null ? null : new int[indices.length];
+		int[] normalIndices = this.normalIndices == null ? null : new int[indices.length];
+		int vertexCount = 0, indexCount = 0;
+		Material[] materials = new Material[this.materials.length];
+		int[] submeshStarts = new int[this.materials.length + 1];
+		int submeshCount = 0;
+		for (int triangle = 0, submesh = 0; triangle < this.removedTriangles.length; triangle += 1) {
+			if (this.removedTriangles[triangle]) {
+				continue;
+			}
+			while (triangle >= this.submeshStarts[submesh + 1]) {
+				submesh += 1;
+			}
+			if ((submeshCount == 0) || (materials[submeshCount - 1] != this.materials[submesh])) {
+				materials[submeshCount] = this.materials[submesh];
+				submeshStarts[submeshCount] = indexCount / Triangle.SIDES;
+				submeshCount += 1;
+			}
+			for (int side = 0; side < Triangle.SIDES; side += 1) {
+				int vertex = this.indices[(triangle * Triangle.SIDES) + side];
+				if (remapped[vertex] == -1) {
+					remapped[vertex] = vertexCount;
+					vertexCount += 1;
+				}
+				indices[indexCount] = remapped[vertex];
+				if (textureIndices != null) {
+					textureIndices[indexCount] = this.textureIndices[(triangle * Triangle.SIDES) + side];
+				}
+				if (normalIndices != null) {
+					normalIndices[indexCount] = this.normalIndices[(triangle * Triangle.SIDES) + side];
+				}
+				indexCount += 1;
+			}
+		}
+		double[] positionsX = new double[vertexCount], positionsY = new double[vertexCount], positionsZ = new double[vertexCount];
+		for (int vertex = 0; vertex < remapped.length; vertex += 1) {
+			if (remapped[vertex] != -1) {
+				positionsX[remapped[vertex]] = this.positionsX[vertex];
+				positionsY[remapped[vertex]] = this.positionsY[vertex];
+				positionsZ[remapped[vertex]] = this.positionsZ[vertex];
+			}
+		}
+		if (submeshCount == 0) {
+			// Nothing left - a single empty submesh
+			materials[0] = this.materials[0];
+			submeshCount = 1;
+		}
+		submeshStarts[submeshCount] = indexCount / Triangle.SIDES;
+		return new Mesh(positionsX, positionsY, positionsZ, indices, this.texturesU, this.texturesV, textureIndices, this.normalsX, this.normalsY, this.normalsZ, normalIndices, this.materialLibraries, Arrays.copyOf(materials, submeshCount), Arrays.copyOf(submeshStarts, submeshCount + 1));
+	}
+
+	// Unnormalised triangle normal, counter clockwise winding
+	private double normalX(int first, int second, int third) {
+		return ((this.positionsY[second] - this.positionsY[first]) * (this.positionsZ[third] - this.positionsZ[first])) - ((this.positionsZ[second] - this.positionsZ[first]) * (this.positionsY[third] - this.positionsY[first]));
+	}
+
+	private double normalY(int first, int second, int third) {
+		return ((this.positionsZ[second] - this.positionsZ[first]) * (this.positionsX[third] - this.positionsX[first])) - ((this.positionsX[second] - this.positionsX[first]) * (this.positionsZ[third] - this.positionsZ[first]));
+	}
+
+	private double normalZ(int first, int second, int third) {
+		return ((this.positionsX[second] - this.positionsX[first]) * (this.positionsY[third] - this.positionsY[first])) - ((this.positionsY[second] - this.positionsY[first]) * (this.positionsX[third] - this.positionsX[first]));
+	}
+}
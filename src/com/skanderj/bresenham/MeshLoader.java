@@ -0,0 +1,93 @@
+package com.skanderj.bresenham;
+
+import java.io.IOException;
+
+/**
+ * Loads a mesh on a background thread - partial meshes are published as the
+ * file is parsed, so the render loop can draw whatever has arrived so far, then
+ * its levels of detail are built. Publication goes through volatile fields, the
+ * render path never locks
+ */
+public final class MeshLoader implements Runnable {
+	// Mesh drawn until the first chunk arrives
+	private static final Mesh EMPTY_MESH = new Mesh(new double[0], new double[0], new double[0], new int[0]);
+
+	/**
+	 * Starts loading the given .obj file on a new daemon thread
+	 */
+	public static MeshLoader start(String objName) {
+		MeshLoader loader = new MeshLoader(objName);
+		Thread thread = new Thread(loader, "mesh-loader");
+		thread.setDaemon(true);
+		thread.start();
+		return loader;
+	}
+
+	private final String objName;
+	private volatile Mesh mesh;
+	private volatile LevelsOfDetail levelsOfDetail;
+	private volatile boolean done;
+	private volatile Exception failure;
+
+	private MeshLoader(String objName) {
+		this.objName = objName;
+		this.mesh = MeshLoader.EMPTY_MESH;
+		this.levelsOfDetail = null;
+		this.done = false;
+		this.failure = null;
+	}
+
+	@Override
+	public void run() {
+		try {
+			Mesh mesh = MeshCache.load(this.objName, this::publish);
+			this.mesh = mesh;
+			this.levelsOfDetail = new LevelsOfDetail(mesh);
+		} catch (IOException | RuntimeException exception) {
+			// Malformed numbers, invalid meshes & decimation bugs are reported like
+			// unreadable files rather than lost on the uncaught exception handler
+			this.failure = exception;
+		} finally {
+			this.done = true;
+		}
+	}
+
+	private void publish(Mesh partialMesh) {
+		this.mesh = partialMesh;
+	}
+
+	/**
+	 * Returns the latest mesh - empty at first, partial while loading, complete
+	 * once done (unless loading failed)
+	 */
+	public Mesh getMesh() {
+		return this.mesh;
+	}
+
+	/**
+	 * Returns the levels of detail of the complete mesh, null until they are
+	 * built
+	 */
+	public LevelsOfDetail getLevelsOfDetail() {
+		return this.levelsOfDetail;
+	}
+
+	/**
+	 * Returns true once loading is over, successfully or not
+	 */
+	public boolean isDone() {
+		return this.done;
+	}
+
+	/**
+	 * Returns why loading failed - an I/O or runtime exception, null if it
+	 * didn't (yet)
+	 */
+	public Exception getFailure() {
+		return this.failure;
+	}
+
+	public String getObjName() {
+		return this.objName;
+	}
+}
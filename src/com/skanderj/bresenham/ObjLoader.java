@@ -0,0 +1,557 @@
+package com.skanderj.bresenham;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Wavefront .obj loader working straight on the memory-mapped file - bytes are
+ * scanned once, numbers are parsed in place & written to primitive arrays, no
+ * line, token or boxed number is ever created. Faces of any size are fan
+ * triangulated as they are read, every corner keeps its position, texture &
+ * normal index (v, v/vt, v//vn or v/vt/vn, negative indices count back from the
+ * last element read). Triangles are grouped by the material they were given by
+ * usemtl, keeping their file order within a material, & the materials are read
+ * from the libraries named by mtllib
+ */
+public final class ObjLoader {
+	// Initial capacity of the buffers used while loading
+	private static final int INITIAL_CAPACITY = 1024;
+	// Triangles read between two partial meshes
+	public static final int CHUNK_TRIANGLES = 65536;
+	// Significant digits that always fit in a double's mantissa
+	private static final int EXACT_DIGITS = 15;
+	// Powers of ten that are exact as doubles
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Loads a mesh from a wavefront .obj file - positions, texture coordinates,
+	 * normals, faces & materials, everything else is skipped
+	 */
+	public static Mesh load(String objName) throws IOException {
+		return ObjLoader.load(objName, null);
+	}
+
+	/**
+	 * Loads a mesh & hands partial meshes to the listener every CHUNK_TRIANGLES
+	 * triangles - positions & indices only, sharing the loader's arrays. The
+	 * loader never writes to the part of an array a partial mesh covers, so the
+	 * partial mesh can be read from another thread once safely published
+	 */
+	public static Mesh load(String objName, Consumer<Mesh> listener) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(objName), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(String.format("File too large: %s", objName));
+			}
+			return new ObjLoader(objName, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), listener).parse();
+		}
+	}
+
+	private final String objName;
+	private final ByteBuffer buffer;
+	private final int limit;
+	private int position;
+
+	// Unique vertices, texture coordinates & normals, grown as the file is read
+	private double[] positionsX, positionsY, positionsZ;
+	private double[] texturesU, texturesV;
+	private double[] normalsX, normalsY, normalsZ;
+	private int vertexCount, textureCount, normalCount;
+	// Three corners per triangle - position, texture & normal indices (-1 when
+	// the corner has none)
+	private int[] indices, textureIndices, normalIndices;
+	private int indexCount;
+	// Bounding box of the positions read so far, for partial meshes
+	private double minX, minY, minZ, maxX, maxY, maxZ;
+	private final Consumer<Mesh> listener;
+	private int publishedTriangles;
+	// Face normals of partial meshes, only kept with a listener
+	private double[] faceNormalsX, faceNormalsY, faceNormalsZ;
+	// Corners of the face being read
+	private int[] facePositions, faceTextures, faceNormals;
+	// Libraries & materials named by the file, materials in order of first use
+	private final List<String> materialLibraries, materialNames;
+	private final Map<String, Integer> materialIds;
+	// Material of every triangle, as an index in the names
+	private int[] triangleMaterials;
+	// Material named by the last usemtl & its index, -1 until a face uses it
+	private String currentMaterialName;
+	private int currentMaterial;
+
+	private ObjLoader(String objName, ByteBuffer buffer, Consumer<Mesh> listener) {
+		this.objName = objName;
+		this.buffer = buffer;
+		this.limit = buffer.limit();
+		this.position = 0;
+		this.positionsX = new double[ObjLoader.INITIAL_CAPACITY];
+		this.positionsY = new double[ObjLoader.INITIAL_CAPACITY];
+		this.positionsZ = new double[ObjLoader.INITIAL_CAPACITY];
+		this.texturesU = new double[ObjLoader.INITIAL_CAPACITY];
+		this.texturesV = new double[ObjLoader.INITIAL_CAPACITY];
+		this.normalsX = new double[ObjLoader.INITIAL_CAPACITY];
+		this.normalsY = new double[ObjLoader.INITIAL_CAPACITY];
+		this.normalsZ = new double[ObjLoader.INITIAL_CAPACITY];
+		this.vertexCount = 0;
+		this.textureCount = 0;
+		this.normalCount = 0;
+		this.indices = new int[ObjLoader.INITIAL_CAPACITY * Triangle.SIDES];
+		this.textureIndices = new int[ObjLoader.INITIAL_CAPACITY * Triangle.SIDES];
+		this.normalIndices = new int[ObjLoader.INITIAL_CAPACITY * Triangle.SIDES];
+		this.indexCount = 0;
+		this.facePositions = new int[Triangle.SIDES * 2];
+		this.faceTextures = new int[Triangle.SIDES * 2];
+		this.faceNormals = new int[Triangle.SIDES * 2];
+		this.materialLibraries = new ArrayList<String>();
+		this.materialNames = new ArrayList<String>();
+		this.materialIds = new HashMap<String, Integer>();
+		this.triangleMaterials = new int[ObjLoader.INITIAL_CAPACITY];
+		this.currentMaterialName = Material.DEFAULT_NAME;
+		this.currentMaterial = -1;
+		this.listener = listener;
+		this.publishedTriangles = 0;
+		this.faceNormalsX = listener == null ? null : new double[ObjLoader.INITIAL_CAPACITY];
+		this.faceNormalsY = listener == null ? null : new double[ObjLoader.INITIAL_CAPACITY];
+		this.faceNormalsZ = listener == null ? null : new double[ObjLoader.INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Reads the whole file, one statement per line
+	 */
+	private Mesh parse() throws IOException {
+		while (this.position < this.limit) {
+			this.skipBlanks();
+			int start = this.position;
+			if (this.isKeyword("v")) {
+				this.readVertex();
+			} else if (this.isKeyword("vt")) {
+				this.readTexture();
+			} else if (this.isKeyword("vn")) {
+				this.readNormal();
+			} else if (this.isKeyword("f")) {
+				this.readFace(start);
+				if ((this.listener != null) && (((this.indexCount / Triangle.SIDES) - this.publishedTriangles) >= ObjLoader.CHUNK_TRIANGLES)) {
+					this.publishedTriangles = this.indexCount / Triangle.SIDES;
+					this.listener.accept(new Mesh(this.positionsX, this.positionsY, this.positionsZ, this.vertexCount, this.indices, this.publishedTriangles, this.faceNormalsX, this.faceNormalsY, this.faceNormalsZ, this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ));
+				}
+			} else if (this.isKeyword("usemtl")) {
+				String name = this.readName();
+				this.currentMaterialName = name.isEmpty() ? Material.DEFAULT_NAME : name;
+				this.currentMaterial = -1;
+			} else if (this.isKeyword("mtllib")) {
+				for (String library : this.readName().split("\\s+")) {
+					if (!library.isEmpty()) {
+						this.materialLibraries.add(library);
+					}
+				}
+			}
+			this.skipLine();
+		}
+		int[] submeshStarts = this.groupByMaterial();
+		double[] positionsX = Arrays.copyOf(this.positionsX, this.vertexCount), positionsY = Arrays.copyOf(this.positionsY, this.vertexCount), positionsZ = Arrays.copyOf(this.positionsZ, this.vertexCount);
+		double[] texturesU = Arrays.copyOf(this.texturesU, this.textureCount), texturesV = Arrays.copyOf(this.texturesV, this.textureCount);
+		double[] normalsX = Arrays.copyOf(this.normalsX, this.normalCount), normalsY = Arrays.copyOf(this.normalsY, this.normalCount), normalsZ = Arrays.copyOf(this.normalsZ, this.normalCount);
+		// No index streams when the file has no such data
+		int[] textureIndices = this.textureCount == 0 ? null : Arrays.copyOf(this.textureIndices, this.indexCount);
+		int[] normalIndices = this.normalCount == 0 ? null : Arrays.copyOf(this.normalIndices, this.indexCount);
+		String[] materialLibraries = this.materialLibraries.toArray(new String[this.materialLibraries.size()]);
+		String[] materialNames = this.materialNames.isEmpty() ? new String[] { Material.DEFAULT_NAME } : this.materialNames.toArray(new String[this.materialNames.size()]);
+		Material[] materials = MaterialLibrary.resolve(new File(this.objName).getAbsoluteFile().getParentFile(), materialLibraries, materialNames);
+		return new Mesh(positionsX, positionsY, positionsZ, Arrays.copyOf(this.indices, this.indexCount), texturesU, texturesV, textureIndices, normalsX, normalsY, normalsZ, normalIndices, materialLibraries, materials, submeshStarts);
+	}
+
+	/**
+	 * Sorts the triangles by material, keeping the file order within one
+	 * (counting sort over the three index streams) - returns the start of every
+	 * material's range, followed by the triangle count
+	 */
+	private int[] groupByMaterial() {
+		int triangleCount = this.indexCount / Triangle.SIDES, materialCount = Math.max(1, this.materialNames.size());
+		int[] starts = new int[materialCount + 1];
+		for (int triangle = 0; triangle < triangleCount; triangle += 1) {
+			starts[this.triangleMaterials[triangle] + 1] += 1;
+		}
+		for (int material = 0; material < materialCount; material += 1) {
+			starts[material + 1] += starts[material];
+		}
+		if (materialCount == 1) {
+			return starts;
+		}
+		int[] indices = new int[this.indexCount], textureIndices = new int[this.indexCount], normalIndices = new int[this.indexCount];
+		int[] next = Arrays.copyOf(starts, materialCount);
+		for (int triangle = 0; triangle < triangleCount; triangle += 1) {
+			int target = next[this.triangleMaterials[triangle]] * Triangle.SIDES;
+			next[this.triangleMaterials[triangle]] += 1;
+			System.arraycopy(this.indices, triangle * Triangle.SIDES, indices, target, Triangle.SIDES);
+			System.arraycopy(this.textureIndices, triangle * Triangle.SIDES, textureIndices, target, Triangle.SIDES);
+			System.arraycopy(this.normalIndices, triangle * Triangle.SIDES, normalIndices, target, Triangle.SIDES);
+		}
+		this.indices = indices;
+		this.textureIndices = textureIndices;
+		this.normalIndices = normalIndices;
+		return starts;
+	}
+
+	/**
+	 * "v x y z" - an optional w is ignored
+	 */
+	private void readVertex() throws IOException {
+		if (this.vertexCount == this.positionsX.length) {
+			this.positionsX = Arrays.copyOf(this.positionsX, this.vertexCount * 2);
+			this.positionsY = Arrays.copyOf(this.positionsY, this.vertexCount * 2);
+			this.positionsZ = Arrays.copyOf(this.positionsZ, this.vertexCount * 2);
+		}
+		this.positionsX[this.vertexCount] = this.readDouble();
+		this.positionsY[this.vertexCount] = this.readDouble();
+		this.positionsZ[this.vertexCount] = this.readDouble();
+		if (this.vertexCount == 0) {
+			this.minX = this.maxX = this.positionsX[0];
+			this.minY = this.maxY = this.positionsY[0];
+			this.minZ = this.maxZ = this.positionsZ[0];
+		} else {
+			this.minX = Math.min(this.minX, this.positionsX[this.vertexCount]);
+			this.minY = Math.min(this.minY, this.positionsY[this.vertexCount]);
+			this.minZ = Math.min(this.minZ, this.positionsZ[this.vertexCount]);
+			this.maxX = Math.max(this.maxX, this.positionsX[this.vertexCount]);
+			this.maxY = Math.max(this.maxY, this.positionsY[this.vertexCount]);
+			this.maxZ = Math.max(this.maxZ, this.positionsZ[this.vertexCount]);
+		}
+		this.vertexCount += 1;
+	}
+
+	/**
+	 * "vt u v" - an optional w is ignored
+	 */
+	private void readTexture() throws IOException {
+		if (this.textureCount == this.texturesU.length) {
+			this.texturesU = Arrays.copyOf(this.texturesU, this.textureCount * 2);
+			this.texturesV = Arrays.copyOf(this.texturesV, this.textureCount * 2);
+		}
+		this.texturesU[this.textureCount] = this.readDouble();
+		this.skipBlanks();
+		// v is optional too
+		this.texturesV[this.textureCount] = (this.position < this.limit) && !this.isBlankOrEndOfLine(this.buffer.get(this.position)) ? this.readDouble() : 0.0;
+		this.textureCount += 1;
+	}
+
+	/**
+	 * "vn x y z"
+	 */
+	private void readNormal() throws IOException {
+		if (this.normalCount == this.normalsX.length) {
+			this.normalsX = Arrays.copyOf(this.normalsX, this.normalCount * 2);
+			this.normalsY = Arrays.copyOf(this.normalsY, this.normalCount * 2);
+			this.normalsZ = Arrays.copyOf(this.normalsZ, this.normalCount * 2);
+		}
+		this.normalsX[this.normalCount] = this.readDouble();
+		this.normalsY[this.normalCount] = this.readDouble();
+		this.normalsZ[this.normalCount] = this.readDouble();
+		this.normalCount += 1;
+	}
+
+	/**
+	 * "f a b c ..." - reads every corner, then emits a fan of triangles around
+	 * the first one
+	 */
+	private void readFace(int start) throws IOException {
+		int corners = 0;
+		while (true) {
+			this.skipBlanks();
+			if ((this.position == this.limit) || this.isBlankOrEndOfLine(this.buffer.get(this.position))) {
+				break;
+			}
+			if (corners == this.facePositions.length) {
+				this.facePositions = Arrays.copyOf(this.facePositions, corners * 2);
+				this.faceTextures = Arrays.copyOf(this.faceTextures, corners * 2);
+				this.faceNormals = Arrays.copyOf(this.faceNormals, corners * 2);
+			}
+			this.facePositions[corners] = this.resolveIndex(this.readInteger(start), this.vertexCount, start);
+			this.faceTextures[corners] = -1;
+			this.faceNormals[corners] = -1;
+			// v/vt, v//vn or v/vt/vn
+			if ((this.position < this.limit) && (this.buffer.get(this.position) == '/')) {
+				this.position += 1;
+				if ((this.position < this.limit) && (this.buffer.get(this.position) != '/')) {
+					this.faceTextures[corners] = this.resolveIndex(this.readInteger(start), this.textureCount, start);
+				}
+				if ((this.position < this.limit) && (this.buffer.get(this.position) == '/')) {
+					this.position += 1;
+					this.faceNormals[corners] = this.resolveIndex(this.readInteger(start), this.normalCount, start);
+				}
+			}
+			if ((this.position < this.limit) && !this.isBlankOrEndOfLine(this.buffer.get(this.position))) {
+				throw new IOException(String.format("Invalid face in %s: %s", this.objName, this.lineAt(start)));
+			}
+			corners += 1;
+		}
+		if (corners < Triangle.SIDES) {
+			throw new IOException(String.format("Invalid face in %s: %s", this.objName, this.lineAt(start)));
+		}
+		int triangles = corners - 2;
+		if ((this.indexCount + (triangles * Triangle.SIDES)) > this.indices.length) {
+			int capacity = this.indices.length * 2;
+			while (capacity < (this.indexCount + (triangles * Triangle.SIDES))) {
+				capacity *= 2;
+			}
+			this.indices = Arrays.copyOf(this.indices, capacity);
+			this.textureIndices = Arrays.copyOf(this.textureIndices, capacity);
+			this.normalIndices = Arrays.copyOf(this.normalIndices, capacity);
+		}
+		if (this.currentMaterial == -1) {
+			Integer material = this.materialIds.get(this.currentMaterialName);
+			if (material == null) {
+				material = this.materialNames.size();
+				this.materialNames.add(this.currentMaterialName);
+				this.materialIds.put(this.currentMaterialName, material);
+			}
+			this.currentMaterial = material;
+		}
+		if (((this.indexCount / Triangle.SIDES) + triangles) > this.triangleMaterials.length) {
+			this.triangleMaterials = Arrays.copyOf(this.triangleMaterials, Math.max(this.triangleMaterials.length * 2, (this.indexCount / Triangle.SIDES) + triangles));
+		}
+		for (int corner = 1; corner <= triangles; corner += 1) {
+			this.triangleMaterials[this.indexCount / Triangle.SIDES] = this.currentMaterial;
+			this.addCorner(0);
+			this.addCorner(corner);
+			this.addCorner(corner + 1);
+			if (this.listener != null) {
+				this.addFaceNormal();
+			}
+		}
+	}
+
+	/**
+	 * Unit normal of the last triangle added, for partial meshes
+	 */
+	private void addFaceNormal() {
+		int triangle = (this.indexCount / Triangle.SIDES) - 1;
+		if (triangle == this.faceNormalsX.length) {
+			this.faceNormalsX = Arrays.copyOf(this.faceNormalsX, triangle * 2);
+			this.faceNormalsY = Arrays.copyOf(this.faceNormalsY, triangle * 2);
+			this.faceNormalsZ = Arrays.copyOf(this.faceNormalsZ, triangle * 2);
+		}
+		int first = this.indices[this.indexCount - 3], second = this.indices[this.indexCount - 2], third = this.indices[this.indexCount - 1];
+		double firstAxisX = this.positionsX[second] - this.positionsX[first], firstAxisY = this.positionsY[second] - this.positionsY[first], firstAxisZ = this.positionsZ[second] - this.positionsZ[first];
+		double secondAxisX = this.positionsX[third] - this.positionsX[first], secondAxisY = this.positionsY[third] - this.positionsY[first], secondAxisZ = this.positionsZ[third] - this.positionsZ[first];
+		double normalX = (firstAxisY * secondAxisZ) - (firstAxisZ * secondAxisY);
+		double normalY = (firstAxisZ * secondAxisX) - (firstAxisX * secondAxisZ);
+		double normalZ = (firstAxisX * secondAxisY) - (firstAxisY * secondAxisX);
+		double length = Math.sqrt((normalX * normalX) + (normalY * normalY) + (normalZ * normalZ));
+		this.faceNormalsX[triangle] = length == 0.0 ? 0.0 : normalX / length;
+		this.faceNormalsY[triangle] = length == 0.0 ? 0.0 : normalY / length;
+		this.faceNormalsZ[triangle] = length == 0.0 ? 0.0 : normalZ / length;
+	}
+
+	private void addCorner(int corner) {
+		this.indices[this.indexCount] = this.facePositions[corner];
+		this.textureIndices[this.indexCount] = this.faceTextures[corner];
+		this.normalIndices[this.indexCount] = this.faceNormals[corner];
+		this.indexCount += 1;
+	}
+
+	/**
+	 * Turns a 1-based (or negative, relative to the end) index into a 0-based
+	 * one - only elements read so far can be referenced
+	 */
+	private int resolveIndex(int index, int count, int start) throws IOException {
+		int resolved = index < 0 ? count + index : index - 1;
+		if ((index == 0) || (resolved < 0) || (resolved >= count)) {
+			throw new IOException(String.format("Invalid vertex index in %s: %s", this.objName, this.lineAt(start)));
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns true & skips the keyword when the current statement starts with
+	 * the given keyword followed by a blank
+	 */
+	private boolean isKeyword(String keyword) {
+		int length = keyword.length();
+		if ((this.position + length) >= this.limit) {
+			return false;
+		}
+		for (int index = 0; index < length; index += 1) {
+			if (this.buffer.get(this.position + index) != keyword.charAt(index)) {
+				return false;
+			}
+		}
+		byte next = this.buffer.get(this.position + length);
+		if ((next == ' ') || (next == '\t')) {
+			this.position += length;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Parses a decimal number - exact for up to 15 significant digits & small
+	 * exponents, anything longer goes through Double.parseDouble
+	 */
+	private double readDouble() throws IOException {
+		this.skipBlanks();
+		ByteBuffer buffer = this.buffer;
+		int start = this.position;
+		boolean negative = false;
+		if ((this.position < this.limit) && ((buffer.get(this.position) == '-') || (buffer.get(this.position) == '+'))) {
+			negative = buffer.get(this.position) == '-';
+			this.position += 1;
+		}
+		long mantissa = 0;
+		int digits = 0, significantDigits = 0, exponent = 0;
+		boolean fraction = false;
+		while (this.position < this.limit) {
+			byte character = buffer.get(this.position);
+			if ((character >= '0') && (character <= '9')) {
+				digits += 1;
+				if ((mantissa != 0) || (character != '0')) {
+					significantDigits += 1;
+				}
+				if (significantDigits <= 18) {
+					mantissa = (mantissa * 10) + (character - '0');
+					if (fraction) {
+						exponent -= 1;
+					}
+				} else if (!fraction) {
+					exponent += 1;
+				}
+			} else if ((character == '.') && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+			this.position += 1;
+		}
+		if (digits == 0) {
+			throw new IOException(String.format("Invalid number in %s: %s", this.objName, this.lineAt(start)));
+		}
+		if ((this.position < this.limit) && ((buffer.get(this.position) == 'e') || (buffer.get(this.position) == 'E'))) {
+			this.position += 1;
+			boolean negativeExponent = false;
+			if ((this.position < this.limit) && ((buffer.get(this.position) == '-') || (buffer.get(this.position) == '+'))) {
+				negativeExponent = buffer.get(this.position) == '-';
+				this.position += 1;
+			}
+			int exponentValue = 0, exponentDigits = 0;
+			while ((this.position < this.limit) && (buffer.get(this.position) >= '0') && (buffer.get(this.position) <= '9')) {
+				exponentValue = Math.min((exponentValue * 10) + (buffer.get(this.position) - '0'), 100000);
+				exponentDigits += 1;
+				this.position += 1;
+			}
+			if (exponentDigits == 0) {
+				throw new IOException(String.format("Invalid number in %s: %s", this.objName, this.lineAt(start)));
+			}
+			exponent += negativeExponent ? -exponentValue : exponentValue;
+		}
+		if ((this.position < this.limit) && !this.isBlankOrEndOfLine(buffer.get(this.position))) {
+			throw new IOException(String.format("Invalid number in %s: %s", this.objName, this.lineAt(start)));
+		}
+		// Both the mantissa & the power of ten are exact, a single operation
+		// rounds correctly
+		if ((significantDigits <= ObjLoader.EXACT_DIGITS) && (Math.abs(exponent) < ObjLoader.POWERS_OF_TEN.length)) {
+			double value = exponent < 0 ? mantissa / ObjLoader.POWERS_OF_TEN[-exponent] : mantissa * ObjLoader.POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+		byte[] bytes = new byte[this.position - start];
+		for (int index = 0; index < bytes.length; index += 1) {
+			bytes[index] = buffer.get(start + index);
+		}
+		return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Parses a decimal integer, stops at the first non digit
+	 */
+	private int readInteger(int lineStart) throws IOException {
+		this.skipBlanks();
+		ByteBuffer buffer = this.buffer;
+		boolean negative = false;
+		if ((this.position < this.limit) && ((buffer.get(this.position) == '-') || (buffer.get(this.position) == '+'))) {
+			negative = buffer.get(this.position) == '-';
+			this.position += 1;
+		}
+		long value = 0;
+		int digits = 0;
+		while ((this.position < this.limit) && (buffer.get(this.position) >= '0') && (buffer.get(this.position) <= '9')) {
+			value = Math.min((value * 10) + (buffer.get(this.position) - '0'), Integer.MAX_VALUE);
+			digits += 1;
+			this.position += 1;
+		}
+		if (digits == 0) {
+			throw new IOException(String.format("Invalid face in %s: %s", this.objName, this.lineAt(lineStart)));
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * Returns the rest of the line without its surrounding blanks - names are
+	 * rare, so they do become strings
+	 */
+	private String readName() {
+		this.skipBlanks();
+		int start = this.position, end = start;
+		while ((end < this.limit) && (this.buffer.get(end) != '\n') && (this.buffer.get(end) != '\r')) {
+			end += 1;
+		}
+		while ((end > start) && ((this.buffer.get(end - 1) == ' ') || (this.buffer.get(end - 1) == '\t'))) {
+			end -= 1;
+		}
+		byte[] bytes = new byte[end - start];
+		for (int index = 0; index < bytes.length; index += 1) {
+			bytes[index] = this.buffer.get(start + index);
+		}
+		this.position = end;
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void skipBlanks() {
+		while (this.position < this.limit) {
+			byte character = this.buffer.get(this.position);
+			if ((character != ' ') && (character != '\t')) {
+				return;
+			}
+			this.position += 1;
+		}
+	}
+
+	/**
+	 * Moves past the end of the current line
+	 */
+	private void skipLine() {
+		while (this.position < this.limit) {
+			byte character = this.buffer.get(this.position);
+			this.position += 1;
+			if (character == '\n') {
+				return;
+			}
+		}
+	}
+
+	private boolean isBlankOrEndOfLine(byte character) {
+		return (character == ' ') || (character == '\t') || (character == '\r') || (character == '\n');
+	}
+
+	/**
+	 * Returns the line starting at the given offset - error messages only
+	 */
+	private String lineAt(int start) {
+		int end = start;
+		while ((end < this.limit) && (this.buffer.get(end) != '\n') && (this.buffer.get(end) != '\r')) {
+			end += 1;
+		}
+		byte[] bytes = new byte[end - start];
+		for (int index = 0; index < bytes.length; index += 1) {
+			bytes[index] = this.buffer.get(start + index);
+		}
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,87 @@
+package com.skanderj.bresenham;
+
+/**
+ * Packed ARGB colors (0xAARRGGBB, alpha always opaque) - the format of the
+ * framebuffer, so shading never goes through java.awt.Color. Flat shading
+ * intensities are looked up in a precomputed table of 256 grey levels
+ */
+public final class Palette {
+	public static final int BLACK = 0xFF000000, WHITE = 0xFFFFFFFF;
+	// Grey levels, one per 8 bits intensity
+	public static final int LEVELS = 256;
+	private static final int[] GREYS = new int[Palette.LEVELS];
+
+	static {
+		for (int level = 0; level < Palette.LEVELS; level += 1) {
+			Palette.GREYS[level] = Palette.pack(level, level, level);
+		}
+	}
+
+	private Palette() {
+		return;
+	}
+
+	/**
+	 * Packs 8 bits channels into an opaque color
+	 */
+	public static int pack(int red, int green, int blue) {
+		return 0xFF000000 | (red << 16) | (green << 8) | blue;
+	}
+
+	/**
+	 * Returns the grey of an intensity between 0 & 1, rounded to the nearest
+	 * level - out of range intensities are clamped
+	 */
+	public static int grey(double intensity) {
+		return Palette.GREYS[Palette.level(intensity)];
+	}
+
+	/**
+	 * Returns the grey of a level between 0 & 255
+	 */
+	public static int grey(int level) {
+		return Palette.GREYS[level];
+	}
+
+	/**
+	 * Returns the 8 bits level of an intensity between 0 & 1, clamped
+	 */
+	public static int level(double intensity) {
+		return Palette.clampLevel((int) ((intensity * (Palette.LEVELS - 1)) + 0.5));
+	}
+
+	/**
+	 * Brings a level back between 0 & 255
+	 */
+	public static int clampLevel(int level) {
+		return level < 0 ? 0 : level > (Palette.LEVELS - 1) ? Palette.LEVELS - 1 : level;
+	}
+
+	/**
+	 * Returns a color lit at the given level - every channel scaled by level /
+	 * 255, straight from the grey levels for white
+	 */
+	public static int shade(int color, int level) {
+		if (color == Palette.WHITE) {
+			return Palette.GREYS[level];
+		}
+		int red = ((((color >> 16) & 0xFF) * level) + 127) / 255;
+		int green = ((((color >> 8) & 0xFF) * level) + 127) / 255;
+		int blue = (((color & 0xFF) * level) + 127) / 255;
+		return Palette.pack(red, green, blue);
+	}
+
+	/**
+	 * Tints a color channel by channel - every channel scaled by the tint's /
+	 * 255, so white tints leave the color as it is
+	 */
+	public static int multiply(int color, int tint) {
+		if (tint == Palette.WHITE) {
+			return color;
+		}
+		int red = ((((color >> 16) & 0xFF) * ((tint >> 16) & 0xFF)) + 127) / 255;
+		int green = ((((color >> 8) & 0xFF) * ((tint >> 8) & 0xFF)) + 127) / 255;
+		int blue = (((color & 0xFF) * (tint & 0xFF)) + 127) / 255;
+		return Palette.pack(red, green, blue);
+	}
+}
@@ -0,0 +1,1228 @@
+package com.skanderj.bresenham;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Transforms, lights, clips, sorts & rasterizes meshes using primitive arrays
+ * only - every buffer is preallocated (or grown once) so a steady frame doesn't
+ * allocate anything
+ */
+public final class Pipeline {
+	// Near clipping plane - view space depth, clip space w
+	public static final double NEAR_PLANE = 0.001;
+	// Minimal light intensity, faces turned away from the light still show
+	public static final float AMBIENT_LIGHT = 0.1f;
+	// Vertex stride in the vertex cache (x, y, z, w) - points in the clipping
+	// buffers are followed by the values of the shading mode & the texture
+	// coordinates
+	private static final int STRIDE = 4, POINT_CAPACITY = Pipeline.STRIDE + Interpolator.MAXIMUM_VARYINGS;
+	// A triangle gains at most one vertex per clipping plane
+	private static final int CLIP_CAPACITY = 16;
+	// Clip space planes, (a, b, c, d, e) each - near, far & the 4 edges of the
+	// guard band are clipped against, the 4 screen edges only reject
+	private static final int CLIP_PLANES = 6, OUTCODE_PLANES = 10, PLANE_STRIDE = 5;
+	private static final int CLIP_MASK = (1 << Pipeline.CLIP_PLANES) - 1;
+	// Default guard band, in pixels past each screen edge
+	public static final int GUARD_BAND = 1024;
+	// Widest guard band - keeps the rasterizer's fixed-point edge functions
+	// exact
+	public static final int MAXIMUM_GUARD_BAND = 1 << 20;
+	// Initial capacity of the emitted triangles buffers
+	private static final int INITIAL_CAPACITY = 1024;
+	// Meshes with at least this many triangles go through the parallel
+	// geometry stage by default
+	public static final int PARALLEL_THRESHOLD = 4096;
+	// Chunks per geometry thread - more chunks balance the load better
+	private static final int CHUNKS_PER_THREAD = 4;
+	// Frustum planes - near, far & the 4 screen edges, (a, b, c, d) each
+	private static final int FRUSTUM_PLANES = 6;
+	// Deepest bounding volume hierarchy walked - median splits of 2^31
+	// triangles stay well below that
+	private static final int MAXIMUM_DEPTH = 64;
+	// Initial capacity of the materials drawn in a frame
+	private static final int INITIAL_SLOTS = 16;
+
+	/**
+	 * How hidden surfaces are removed - DEPTH_BUFFER draws triangles grouped by
+	 * material & lets the depth test sort it out, PAINTER sorts them back to
+	 * front first (radix sort on one depth key per triangle) & still depth tests
+	 */
+	public static enum Visibility {
+		DEPTH_BUFFER, PAINTER;
+	}
+
+	/**
+	 * How triangles are lit - FLAT lights each triangle once with its face
+	 * normal, GOURAUD lights the corners with their vertex normals &
+	 * interpolates the intensity, PHONG interpolates the world space vertex
+	 * normals & lights every pixel. Vertex normals come from the file when it
+	 * has some, from the mesh's own averages otherwise
+	 */
+	public static enum Shading {
+		FLAT(0), GOURAUD(1), PHONG(3);
+
+		// Values interpolated across triangles
+		public final int varyings;
+
+		private Shading(int varyings) {
+			this.varyings = varyings;
+		}
+	}
+
+	private final int width, height;
+	private final double horizontalScalingFactor, verticalScalingFactor;
+
+	// Frame state - copies of the matrices, flattened row by row
+	private final double[] worldMatrix;
+	private double cameraX, cameraY, cameraZ;
+	private double lightX, lightY, lightZ;
+	// Mesh state - object->view & object->clip matrices, world->object matrix,
+	// camera & light in object space. Culling happens in object space, so does lighting when the
+	// world matrix is rigid (no scaling or shearing)
+	private final Matrix4 worldMatrix4, viewMatrix4, projectionMatrix4, worldViewMatrix4, inverseWorldMatrix4, clipMatrix4;
+	private final double[] worldViewMatrix, inverseWorldMatrix, clipMatrix;
+	private double objectCameraX, objectCameraY, objectCameraZ;
+	private double objectLightX, objectLightY, objectLightZ;
+	private boolean rigidWorld, mirroredWorld;
+
+	// Frustum culling through the mesh's bounding volume hierarchy - object
+	// space planes (a.x + b.y + c.z + d >= 0 inside), a loose set that only
+	// rejects nodes that can't show & a tight set that only accepts nodes that
+	// need no clipping at all. Surviving triangles are listed in tree order,
+	// as their bitwise complement when their node is fully inside
+	private boolean frustumCulling;
+	private final double[] rejectPlanes, acceptPlanes;
+	private final int[] nodeStack;
+	private int[] visibleTriangles;
+	private int visibleCount;
+
+	// Emitted screen space triangles & their drawing order
+	private final TriangleBuffer emitted;
+	private int[] order;
+	private Visibility visibility;
+	private final RadixSort radixSort;
+	// Lighting, interpolated values of the triangles drawn on the calling
+	// thread
+	private Shading shading;
+	private final Interpolator interpolator;
+	// Texture of the meshes submitted next, null for none, & how it is sampled
+	private Texture texture;
+	private Texture.Filter textureFilter;
+	// Where the textures of materials come from, null to ignore them
+	private TextureCache textureCache;
+	// Material state of the submesh being processed - base color, texture &
+	// slot among the materials of the frame
+	private int materialColor;
+	private Texture materialTexture;
+	private int materialSlot;
+	// Materials of the frame & the texture each was drawn with, by slot -
+	// emitted triangles only keep their slot. Start of every slot in the
+	// drawing order
+	private Material[] slotMaterials;
+	private Texture[] slotTextures;
+	private int[] slotStarts;
+	private int slotCount;
+
+	// Clip space planes, a.x + b.y + c.z + d.w + e >= 0 inside - bit i of an
+	// outcode is set when the vertex is outside plane i. Triangles within the
+	// guard band go to the rasterizer as they are, it only fills pixels on
+	// screen
+	private final double[] clipPlanes;
+	private int guardBand;
+
+	// Post-transform vertex cache - a vertex's clip space position & outcode are
+	// valid when its stamp matches the current one
+	private double[] clipVertices;
+	private int[] outcodes;
+	private int[] vertexStamps;
+	private int stamp;
+
+	// Parallel tile rasterization, null to draw on the calling thread
+	private TileRenderer tileRenderer;
+
+	// Parallel geometry stage, null pool when there is a single thread - every
+	// chunk is a contiguous range of triangles with its own output buffer,
+	// merged in chunk order so the result matches the serial stage
+	private final ForkJoinPool pool;
+	private final GeometryWorker[] workers;
+	private final TriangleBuffer[] chunks;
+	private final AtomicInteger nextChunk;
+	private int parallelThreshold;
+	private Mesh currentMesh;
+	private int[] currentTriangles;
+	private int currentStart, currentEnd;
+	private boolean transformingVertices;
+
+	// Stage timings & counters, null when nothing is recorded
+	private FrameProfiler profiler;
+
+	public Pipeline(int width, int height) {
+		this(width, height, 1);
+	}
+
+	public Pipeline(int width, int height, int parallelism) {
+		this.width = width;
+		this.height = height;
+		this.horizontalScalingFactor = 0.5 * width;
+		this.verticalScalingFactor = 0.5 * height;
+		this.worldMatrix4 = new Matrix4();
+		this.viewMatrix4 = new Matrix4();
+		this.projectionMatrix4 = new Matrix4();
+		this.worldViewMatrix4 = new Matrix4();
+		this.inverseWorldMatrix4 = new Matrix4();
+		this.clipMatrix4 = new Matrix4();
+		this.worldMatrix = this.worldMatrix4.data;
+		this.worldViewMatrix = this.worldViewMatrix4.data;
+		this.inverseWorldMatrix = this.inverseWorldMatrix4.data;
+		this.clipMatrix = this.clipMatrix4.data;
+		this.frustumCulling = true;
+		this.rejectPlanes = new double[Pipeline.FRUSTUM_PLANES * 4];
+		this.acceptPlanes = new double[Pipeline.FRUSTUM_PLANES * 4];
+		this.nodeStack = new int[Pipeline.MAXIMUM_DEPTH];
+		this.visibleTriangles = new int[0];
+		this.visibleCount = 0;
+		this.emitted = new TriangleBuffer(Pipeline.INITIAL_CAPACITY);
+		this.order = new int[Pipeline.INITIAL_CAPACITY];
+		this.visibility = Visibility.DEPTH_BUFFER;
+		this.radixSort = new RadixSort();
+		this.shading = Shading.FLAT;
+		this.interpolator = new Interpolator();
+		this.texture = null;
+		this.textureFilter = Texture.Filter.BILINEAR;
+		this.textureCache = null;
+		this.slotMaterials = new Material[Pipeline.INITIAL_SLOTS];
+		this.slotTextures = new Texture[Pipeline.INITIAL_SLOTS];
+		this.slotStarts = new int[Pipeline.INITIAL_SLOTS + 1];
+		this.slotCount = 0;
+		this.clipPlanes = new double[Pipeline.OUTCODE_PLANES * Pipeline.PLANE_STRIDE];
+		this.guardBand = Pipeline.GUARD_BAND;
+		this.prepareClipPlanes();
+		this.clipVertices = new double[0];
+		this.outcodes = new int[0];
+		this.vertexStamps = new int[0];
+		this.stamp = 0;
+		this.tileRenderer = null;
+		if (parallelism > 1) {
+			this.pool = new ForkJoinPool(parallelism);
+			this.workers = new GeometryWorker[parallelism];
+			for (int index = 0; index < parallelism; index += 1) {
+				this.workers[index] = new GeometryWorker();
+			}
+			this.chunks = new TriangleBuffer[parallelism * Pipeline.CHUNKS_PER_THREAD];
+			for (int index = 0; index < this.chunks.length; index += 1) {
+				this.chunks[index] = new TriangleBuffer(Pipeline.INITIAL_CAPACITY / Pipeline.CHUNKS_PER_THREAD);
+			}
+		} else {
+			this.pool = null;
+			this.workers = null;
+			this.chunks = null;
+		}
+		this.nextChunk = new AtomicInteger();
+		this.parallelThreshold = Pipeline.PARALLEL_THRESHOLD;
+		this.profiler = null;
+	}
+
+	/**
+	 * Starts a new frame - must be called before submitting meshes
+	 */
+	public void beginFrame(Matrix4 viewMatrix, Matrix4 projectionMatrix, Vector4D cameraLocation, Vector4D lightDirection) {
+		this.viewMatrix4.set(viewMatrix);
+		this.projectionMatrix4.set(projectionMatrix);
+		this.cameraX = cameraLocation.x;
+		this.cameraY = cameraLocation.y;
+		this.cameraZ = cameraLocation.z;
+		this.lightX = lightDirection.x;
+		this.lightY = lightDirection.y;
+		this.lightZ = lightDirection.z;
+		this.emitted.count = 0;
+		Arrays.fill(this.slotMaterials, 0, this.slotCount, null);
+		Arrays.fill(this.slotTextures, 0, this.slotCount, null);
+		this.slotCount = 0;
+	}
+
+	/**
+	 * Transforms, culls, lights, clips & projects every triangle of the mesh - visible triangles are queued for the end of the
+	 * frame. Parts of the mesh outside the frustum are skipped as a whole, large
+	 * meshes are split across the geometry threads. Submeshes are processed one
+	 * after the other with the state of their material set once for all their
+	 * triangles, vertices shared between submeshes are transformed once
+	 */
+	public void submit(Mesh mesh, Matrix4 worldMatrix) {
+		FrameProfiler profiler = this.profiler;
+		long start = profiler == null ? 0 : System.nanoTime();
+		this.worldMatrix4.set(worldMatrix);
+		this.prepareObjectSpace();
+		this.prepareVertexCache(mesh.vertexCount);
+		boolean culling = this.frustumCulling && (mesh.hierarchy != null);
+		long cullTime = 0;
+		if (culling) {
+			long cullStart = profiler == null ? 0 : System.nanoTime();
+			this.prepareFrustum();
+			cullTime += profiler == null ? 0 : System.nanoTime() - cullStart;
+		}
+		long visibleCount = 0, culledCount = 0, clippedCount = 0, clipTime = 0;
+		// Every vertex goes through the geometry threads at most once per mesh
+		boolean verticesReady = false;
+		for (int submesh = 0; submesh < mesh.submeshCount(); submesh += 1) {
+			int[] triangles = null;
+			int first = mesh.submeshStarts[submesh], last = mesh.submeshStarts[submesh + 1];
+			if (culling) {
+				long cullStart = profiler == null ? 0 : System.nanoTime();
+				this.cullHierarchy(mesh.hierarchy, mesh.hierarchy.roots[submesh]);
+				triangles = this.visibleTriangles;
+				first = 0;
+				last = this.visibleCount;
+				cullTime += profiler == null ? 0 : System.nanoTime() - cullStart;
+			}
+			visibleCount += last - first;
+			if (first == last) {
+				continue;
+			}
+			this.prepareMaterial(mesh, mesh.materials[submesh]);
+			if ((this.pool != null) && ((last - first) >= this.parallelThreshold)) {
+				this.submitParallel(mesh, triangles, first, last, !verticesReady);
+				verticesReady = true;
+				long chunkClipTime = 0;
+				for (TriangleBuffer chunk : this.chunks) {
+					culledCount += chunk.culledCount;
+					clippedCount += chunk.clippedCount;
+					chunkClipTime += chunk.clipTime;
+				}
+				// Summed over the geometry threads, only their share of the wall
+				// clock time is taken off the transform stage
+				clipTime += chunkClipTime / this.workers.length;
+			} else {
+				this.emitted.resetStatistics();
+				this.processTriangles(mesh, triangles, first, last, this.emitted, false);
+				culledCount += this.emitted.culledCount;
+				clippedCount += this.emitted.clippedCount;
+				clipTime += this.emitted.clipTime;
+			}
+		}
+		if (profiler != null) {
+			long elapsed = System.nanoTime() - start;
+			profiler.addTime(FrameProfiler.Stage.CULL, cullTime);
+			profiler.addTime(FrameProfiler.Stage.TRANSFORM, Math.max(0, elapsed - cullTime - clipTime));
+			profiler.addTime(FrameProfiler.Stage.CLIP, clipTime);
+			profiler.addCount(FrameProfiler.Counter.TRIANGLES_IN, mesh.triangleCount);
+			profiler.addCount(FrameProfiler.Counter.TRIANGLES_CULLED, (mesh.triangleCount - visibleCount) + culledCount);
+			profiler.addCount(FrameProfiler.Counter.TRIANGLES_CLIPPED, clippedCount);
+		}
+	}
+
+	/**
+	 * Submits several instances of a mesh, one world matrix each - the geometry
+	 * is shared & stays hot in the caches from one instance to the next, an
+	 * instance entirely off screen stops at the root of the mesh's hierarchy
+	 */
+	public void submit(Mesh mesh, Matrix4[] worldMatrices, int instanceCount) {
+		for (int instance = 0; instance < instanceCount; instance += 1) {
+			this.submit(mesh, worldMatrices[instance]);
+		}
+	}
+
+	/**
+	 * Orders the queued triangles (by material, or back to front in painter's
+	 * mode) & rasterizes them - through the tile renderer when there is one. The
+	 * texture & values of the rasterizer only change between batches of
+	 * triangles of the same material
+	 */
+	public void endFrame(Rasterizer rasterizer) {
+		FrameProfiler profiler = this.profiler;
+		long start = profiler == null ? 0 : System.nanoTime();
+		this.prepareOrder();
+		long sorted = profiler == null ? 0 : System.nanoTime();
+		long written = 0;
+		rasterizer.setShading(this.shading, this.lightX, this.lightY, this.lightZ);
+		rasterizer.setTextureFilter(this.textureFilter);
+		TileRenderer tileRenderer = this.tileRenderer;
+		if (tileRenderer != null) {
+			tileRenderer.reset();
+		}
+		TriangleBuffer emitted = this.emitted;
+		double[] screen = emitted.screenCoordinates;
+		boolean lit = this.shading != Shading.FLAT;
+		int slot = -1;
+		Texture texture = null;
+		double[] varyings = null;
+		for (int index = 0; index < emitted.count; index += 1) {
+			int triangle = this.order[index];
+			int source = triangle * Triangle.SIDES * 3, varyingSource = triangle * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS;
+			if (emitted.slots[triangle] != slot) {
+				slot = emitted.slots[triangle];
+				texture = this.slotTextures[slot];
+				varyings = lit || (texture != null) ? emitted.varyings : null;
+			}
+			if (tileRenderer == null) {
+				written += rasterizer.fillTriangle(screen[source], screen[source + 1], screen[source + 2], screen[source + 3], screen[source + 4], screen[source + 5], screen[source + 6], screen[source + 7], screen[source + 8], emitted.colors[triangle], texture, varyings, varyingSource, this.interpolator, 0, 0, rasterizer.width - 1, rasterizer.height - 1, rasterizer.depth, 0, rasterizer.width);
+			} else {
+				tileRenderer.add(screen[source], screen[source + 1], screen[source + 2], screen[source + 3], screen[source + 4], screen[source + 5], screen[source + 6], screen[source + 7], screen[source + 8], emitted.colors[triangle], texture, varyings, varyingSource);
+			}
+		}
+		if (tileRenderer != null) {
+			written += tileRenderer.render(rasterizer);
+		}
+		if (profiler != null) {
+			profiler.addTime(FrameProfiler.Stage.SORT, sorted - start);
+			profiler.addTime(FrameProfiler.Stage.RASTER, System.nanoTime() - sorted);
+			profiler.addCount(FrameProfiler.Counter.TRIANGLES_EMITTED, emitted.count);
+			profiler.addCount(FrameProfiler.Counter.PIXELS_SHADED, written);
+		}
+	}
+
+	/**
+	 * Rasterizes through the given tile renderer from now on - null goes back to
+	 * drawing on the calling thread
+	 */
+	public void setTileRenderer(TileRenderer tileRenderer) {
+		this.tileRenderer = tileRenderer;
+	}
+
+	/**
+	 * Records stage timings & counters into the given profiler from now on -
+	 * null stops recording. Frames are begun & ended by the caller
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Selects how triangles are lit from the next frame on
+	 */
+	public void setShading(Shading shading) {
+		this.shading = shading;
+	}
+
+	/**
+	 * Textures the meshes submitted from now on that have texture coordinates,
+	 * where their material has no texture that loads - null draws them
+	 * untextured. The texture is tinted by the material's diffuse color & the
+	 * light, per pixel
+	 */
+	public void setTexture(Texture texture) {
+		this.texture = texture;
+	}
+
+	/**
+	 * Loads the textures of materials (map_Kd) through the given cache from now
+	 * on - null ignores them, only the texture set above is drawn
+	 */
+	public void setTextureCache(TextureCache textureCache) {
+		this.textureCache = textureCache;
+	}
+
+	/**
+	 * Selects how textures are sampled from the next frame on - bilinear by
+	 * default
+	 */
+	public void setTextureFilter(Texture.Filter textureFilter) {
+		this.textureFilter = textureFilter;
+	}
+
+	/**
+	 * Selects how hidden surfaces are removed from the next frame on
+	 */
+	public void setVisibility(Visibility visibility) {
+		this.visibility = visibility;
+	}
+
+	/**
+	 * Turns frustum culling through the meshes' bounding volume hierarchies on or
+	 * off - on by default, meshes without a hierarchy are never culled that way
+	 */
+	public void setFrustumCulling(boolean frustumCulling) {
+		this.frustumCulling = frustumCulling;
+	}
+
+	/**
+	 * Sets how far past the screen edges, in pixels, triangles reach the
+	 * rasterizer without being clipped - 0 clips everything to the screen
+	 */
+	public void setGuardBand(int guardBand) {
+		if ((guardBand < 0) || (guardBand > Pipeline.MAXIMUM_GUARD_BAND)) {
+			throw new IllegalArgumentException("Guard band out of range: " + guardBand);
+		}
+		this.guardBand = guardBand;
+		this.prepareClipPlanes();
+	}
+
+	/**
+	 * Sets the number of triangles from which a mesh goes through the parallel
+	 * geometry stage - only matters with more than one thread
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * Returns the number of triangles queued since the frame began
+	 */
+	public int getEmittedCount() {
+		return this.emitted.count;
+	}
+
+	/**
+	 * Stops the geometry threads - the pipeline can't be used afterwards
+	 */
+	public void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdown();
+		}
+	}
+
+	/**
+	 * Transforms the vertices in parallel unless that is done already, then a
+	 * range of triangles - each chunk of triangles writes to its own buffer &
+	 * the buffers are appended in order once every worker is done, no locking
+	 * involved
+	 */
+	private void submitParallel(Mesh mesh, int[] triangles, int start, int end, boolean transformVertices) {
+		this.currentMesh = mesh;
+		this.currentTriangles = triangles;
+		this.currentStart = start;
+		this.currentEnd = end;
+		// Clip space for every vertex - the stamped cache isn't shared between
+		// threads
+		if (transformVertices) {
+			this.transformingVertices = true;
+			this.runWorkers();
+			this.transformingVertices = false;
+		}
+		this.runWorkers();
+		this.currentMesh = null;
+		this.currentTriangles = null;
+		for (TriangleBuffer chunk : this.chunks) {
+			this.emitted.append(chunk, (this.shading != Shading.FLAT) || (this.materialTexture != null));
+		}
+	}
+
+	/**
+	 * Runs every worker over all the chunks & waits for them
+	 */
+	private void runWorkers() {
+		this.nextChunk.set(0);
+		for (GeometryWorker worker : this.workers) {
+			worker.reinitialize();
+			this.pool.execute(worker);
+		}
+		for (GeometryWorker worker : this.workers) {
+			worker.join();
+		}
+	}
+
+	/**
+	 * Transforms a chunk of vertices straight from object to clip space & computes
+	 * their outcodes - stamped, so smaller submeshes processed on the calling
+	 * thread reuse them
+	 */
+	private void transformVertices(Mesh mesh, int start, int end) {
+		double[] clipVertices = this.clipVertices;
+		for (int vertex = start; vertex < end; vertex += 1) {
+			Pipeline.transform(this.clipMatrix, mesh.positionsX[vertex], mesh.positionsY[vertex], mesh.positionsZ[vertex], 1.0, clipVertices, vertex * Pipeline.STRIDE);
+			this.outcodes[vertex] = this.outcode(clipVertices, vertex * Pipeline.STRIDE);
+			this.vertexStamps[vertex] = this.stamp;
+		}
+	}
+
+	/**
+	 * Culls, lights, clips & projects a range of triangles into the target - the
+	 * range is in the list of visible triangles, or in the mesh when there is
+	 * none. Clip space vertices are either all ready or transformed through the
+	 * stamped cache as needed
+	 */
+	private void processTriangles(Mesh mesh, int[] triangles, int start, int end, TriangleBuffer target, boolean verticesReady) {
+		double[] clipVertices = this.clipVertices;
+		int[] outcodes = this.outcodes;
+		double[] positionsX = mesh.positionsX, positionsY = mesh.positionsY, positionsZ = mesh.positionsZ;
+		double[] polygon = target.polygon, clipped = target.clippedPolygon;
+		Shading shading = this.shading;
+		Texture texture = this.materialTexture;
+		int materialColor = this.materialColor, materialSlot = this.materialSlot;
+		// Texture coordinates follow the values of the shading mode
+		int varyingCount = texture == null ? shading.varyings : shading.varyings + Texture.VARYINGS;
+		int pointStride = Pipeline.STRIDE + varyingCount;
+		boolean timed = this.profiler != null;
+		int culledCount = 0, clippedCount = 0;
+		long clipTime = 0;
+		for (int index = start; index < end; index += 1) {
+			int triangle = triangles == null ? index : triangles[index];
+			// Complemented triangles lie fully inside the frustum
+			boolean inside = triangle < 0;
+			if (inside) {
+				triangle = ~triangle;
+			}
+			int firstVertex = mesh.indices[triangle * Triangle.SIDES];
+			// Precomputed unit normal, object space
+			double normalX = mesh.faceNormalsX[triangle], normalY = mesh.faceNormalsY[triangle], normalZ = mesh.faceNormalsZ[triangle];
+			if ((normalX == 0.0) && (normalY == 0.0) && (normalZ == 0.0)) {
+				culledCount += 1;
+				continue;
+			}
+			// Back-face culling against the camera ray, in object space - a
+			// mirroring world matrix flips the winding
+			double normalCameraDotProduct = (normalX * (positionsX[firstVertex] - this.objectCameraX)) + (normalY * (positionsY[firstVertex] - this.objectCameraY)) + (normalZ * (positionsZ[firstVertex] - this.objectCameraZ));
+			if (this.mirroredWorld ? normalCameraDotProduct <= 0.0 : normalCameraDotProduct >= 0.0) {
+				culledCount += 1;
+				continue;
+			}
+			// Flat lighting - the material's color at the light's level, the other
+			// modes light the corners or the pixels of the material's color
+			int color = shading == Shading.FLAT ? Palette.shade(materialColor, Palette.level(this.lightIntensity(normalX, normalY, normalZ))) : materialColor;
+			int secondVertex = mesh.indices[(triangle * Triangle.SIDES) + 1], thirdVertex = mesh.indices[(triangle * Triangle.SIDES) + 2];
+			int first = firstVertex * Pipeline.STRIDE, second = secondVertex * Pipeline.STRIDE, third = thirdVertex * Pipeline.STRIDE;
+			// Clip space - only for vertices of visible triangles, at most once each
+			if (!verticesReady) {
+				this.transformToClip(mesh, firstVertex);
+				this.transformToClip(mesh, secondVertex);
+				this.transformToClip(mesh, thirdVertex);
+			}
+			System.arraycopy(clipVertices, first, polygon, 0, Pipeline.STRIDE);
+			System.arraycopy(clipVertices, second, polygon, pointStride, Pipeline.STRIDE);
+			System.arraycopy(clipVertices, third, polygon, 2 * pointStride, Pipeline.STRIDE);
+			// Values interpolated across the triangle follow each point's
+			// position, clipping & the rasterizer carry them along - the clipping
+			// scratch holds the corner's normal meanwhile
+			if (shading != Shading.FLAT) {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					Pipeline.cornerNormal(mesh, triangle, side, clipped);
+					int offset = (side * pointStride) + Pipeline.STRIDE;
+					if (shading == Shading.GOURAUD) {
+						polygon[offset] = this.lightIntensity(clipped[0], clipped[1], clipped[2]) * (Palette.LEVELS - 1);
+					} else {
+						this.worldNormal(clipped[0], clipped[1], clipped[2], polygon, offset);
+					}
+				}
+			}
+			// Texture coordinates - image rows go down, v goes up. Clip space is
+			// still linear, the division by w comes with the projection
+			if (texture != null) {
+				for (int side = 0; side < Triangle.SIDES; side += 1) {
+					int offset = (side * pointStride) + Pipeline.STRIDE + shading.varyings;
+					int coordinates = mesh.textureIndices[(triangle * Triangle.SIDES) + side];
+					polygon[offset] = coordinates < 0 ? 0.0 : mesh.texturesU[coordinates];
+					polygon[offset + 1] = coordinates < 0 ? 0.0 : 1.0 - mesh.texturesV[coordinates];
+					polygon[offset + 2] = 1.0;
+				}
+			}
+			// Outcodes - rejected when the 3 vertices are outside a same plane,
+			// clipped against the planes some vertex is outside of, if any. Screen
+			// edges within the guard band are left to the rasterizer. The whole
+			// node may be known to be inside already
+			int count = Triangle.SIDES;
+			if (!inside) {
+				int firstCode = outcodes[firstVertex], secondCode = outcodes[secondVertex], thirdCode = outcodes[thirdVertex];
+				if ((firstCode & secondCode & thirdCode) != 0) {
+					culledCount += 1;
+					continue;
+				}
+				int crossedPlanes = (firstCode | secondCode | thirdCode) & Pipeline.CLIP_MASK;
+				if (crossedPlanes != 0) {
+					long clipStart = timed ? System.nanoTime() : 0;
+					count = this.clipToFrustum(polygon, clipped, crossedPlanes, pointStride);
+					if (timed) {
+						clipTime += System.nanoTime() - clipStart;
+					}
+					clippedCount += 1;
+					if (count < Triangle.SIDES) {
+						continue;
+					}
+				}
+			}
+			// Normalisation, flip, offset & scale into view
+			for (int point = 0; point < count; point += 1) {
+				int offset = point * pointStride;
+				double w = polygon[offset + 3];
+				polygon[offset] = (1.0 - (polygon[offset] / w)) * this.horizontalScalingFactor;
+				polygon[offset + 1] = (1.0 - (polygon[offset + 1] / w)) * this.verticalScalingFactor;
+				polygon[offset + 2] = polygon[offset + 2] / w;
+				polygon[offset + 3] = 1.0;
+				// u / w, v / w & 1 / w are linear in screen space
+				if (texture != null) {
+					int coordinates = offset + Pipeline.STRIDE + shading.varyings;
+					polygon[coordinates] /= w;
+					polygon[coordinates + 1] /= w;
+					polygon[coordinates + 2] = 1.0 / w;
+				}
+			}
+			// Fan of triangles
+			for (int point = 1; point < (count - 1); point += 1) {
+				target.emit(polygon, 0, point * pointStride, (point + 1) * pointStride, color, materialSlot, varyingCount);
+			}
+		}
+		target.culledCount += culledCount;
+		target.clippedCount += clippedCount;
+		target.clipTime += clipTime;
+	}
+
+	/**
+	 * Sets the material state up for a submesh - its base color, its texture
+	 * when the mesh has texture coordinates (the material's own through the
+	 * texture cache, the current texture otherwise) & its slot in the frame
+	 */
+	private void prepareMaterial(Mesh mesh, Material material) {
+		Texture texture = null;
+		if (mesh.hasTextures()) {
+			texture = this.texture;
+			if ((material.textureFileName != null) && (this.textureCache != null)) {
+				try {
+					Texture loaded = this.textureCache.get(material.textureFileName);
+					texture = loaded == null ? texture : loaded;
+				} catch (IOException | RuntimeException exception) {
+					// Malformed images make ImageIO throw unchecked exceptions, reported once
+					// like unreadable files - the cache doesn't try again
+					System.err.println("Can't load texture " + material.textureFileName + " of material " + material.name + ": " + exception.getMessage());
+				}
+			}
+		}
+		this.materialColor = material.diffuse;
+		this.materialTexture = texture;
+		// Few materials per frame - a linear search is enough
+		for (int slot = 0; slot < this.slotCount; slot += 1) {
+			if ((this.slotMaterials[slot] == material) && (this.slotTextures[slot] == texture)) {
+				this.materialSlot = slot;
+				return;
+			}
+		}
+		if (this.slotCount == this.slotMaterials.length) {
+			this.slotMaterials = Arrays.copyOf(this.slotMaterials, this.slotCount * 2);
+			this.slotTextures = Arrays.copyOf(this.slotTextures, this.slotCount * 2);
+			this.slotStarts = new int[(this.slotCount * 2) + 1];
+		}
+		this.slotMaterials[this.slotCount] = material;
+		this.slotTextures[this.slotCount] = texture;
+		this.materialSlot = this.slotCount;
+		this.slotCount += 1;
+	}
+
+	/**
+	 * Returns the light intensity of a unit object space normal, at least the
+	 * ambient light. Rigid world matrices keep normals unit length, the light
+	 * is in object space; others need the world space normal (inverse
+	 * transpose) normalised. Mirroring flips the normal along with the winding
+	 */
+	private double lightIntensity(double normalX, double normalY, double normalZ) {
+		double lightDotProduct;
+		if (this.rigidWorld) {
+			lightDotProduct = (this.objectLightX * normalX) + (this.objectLightY * normalY) + (this.objectLightZ * normalZ);
+		} else {
+			double[] inverseWorldMatrix = this.inverseWorldMatrix;
+			double worldNormalX = (normalX * inverseWorldMatrix[0]) + (normalY * inverseWorldMatrix[1]) + (normalZ * inverseWorldMatrix[2]);
+			double worldNormalY = (normalX * inverseWorldMatrix[4]) + (normalY * inverseWorldMatrix[5]) + (normalZ * inverseWorldMatrix[6]);
+			double worldNormalZ = (normalX * inverseWorldMatrix[8]) + (normalY * inverseWorldMatrix[9]) + (normalZ * inverseWorldMatrix[10]);
+			double worldNormalLength = Math.sqrt((worldNormalX * worldNormalX) + (worldNormalY * worldNormalY) + (worldNormalZ * worldNormalZ));
+			lightDotProduct = ((this.lightX * worldNormalX) + (this.lightY * worldNormalY) + (this.lightZ * worldNormalZ)) / (this.mirroredWorld ? -worldNormalLength : worldNormalLength);
+		}
+		return Math.max(Pipeline.AMBIENT_LIGHT, lightDotProduct);
+	}
+
+	/**
+	 * Writes the unit world space normal of a unit object space normal to the
+	 * target - through the inverse transpose, flipped by mirroring
+	 */
+	private void worldNormal(double normalX, double normalY, double normalZ, double[] target, int offset) {
+		double[] inverseWorldMatrix = this.inverseWorldMatrix;
+		double worldNormalX = (normalX * inverseWorldMatrix[0]) + (normalY * inverseWorldMatrix[1]) + (normalZ * inverseWorldMatrix[2]);
+		double worldNormalY = (normalX * inverseWorldMatrix[4]) + (normalY * inverseWorldMatrix[5]) + (normalZ * inverseWorldMatrix[6]);
+		double worldNormalZ = (normalX * inverseWorldMatrix[8]) + (normalY * inverseWorldMatrix[9]) + (normalZ * inverseWorldMatrix[10]);
+		double worldNormalLength = Math.sqrt((worldNormalX * worldNormalX) + (worldNormalY * worldNormalY) + (worldNormalZ * worldNormalZ));
+		double scale = worldNormalLength == 0.0 ? 0.0 : (this.mirroredWorld ? -1.0 : 1.0) / worldNormalLength;
+		target[offset] = worldNormalX * scale;
+		target[offset + 1] = worldNormalY * scale;
+		target[offset + 2] = worldNormalZ * scale;
+	}
+
+	/**
+	 * Writes the unit object space normal of a triangle corner to the first 3
+	 * entries of the target - the file's normal when it has one, the vertex
+	 * normal of the mesh otherwise, the face normal for partial meshes
+	 */
+	private static void cornerNormal(Mesh mesh, int triangle, int side, double[] target) {
+		int corner = (triangle * Triangle.SIDES) + side;
+		int normal = mesh.normalIndices == null ? -1 : mesh.normalIndices[corner];
+		double normalX, normalY, normalZ;
+		if (normal >= 0) {
+			normalX = mesh.normalsX[normal];
+			normalY = mesh.normalsY[normal];
+			normalZ = mesh.normalsZ[normal];
+		} else if (mesh.vertexNormalsX != null) {
+			int vertex = mesh.indices[corner];
+			normalX = mesh.vertexNormalsX[vertex];
+			normalY = mesh.vertexNormalsY[vertex];
+			normalZ = mesh.vertexNormalsZ[vertex];
+		} else {
+			normalX = mesh.faceNormalsX[triangle];
+			normalY = mesh.faceNormalsY[triangle];
+			normalZ = mesh.faceNormalsZ[triangle];
+		}
+		double length = Math.sqrt((normalX * normalX) + (normalY * normalY) + (normalZ * normalZ));
+		if (length == 0.0) {
+			// Isolated or degenerate - the face normal is unit length
+			target[0] = mesh.faceNormalsX[triangle];
+			target[1] = mesh.faceNormalsY[triangle];
+			target[2] = mesh.faceNormalsZ[triangle];
+		} else {
+			target[0] = normalX / length;
+			target[1] = normalY / length;
+			target[2] = normalZ / length;
+		}
+	}
+
+	/**
+	 * Clips a triangle against the given planes (bit i for plane i) one after the
+	 * other, going back & forth between the polygon & the scratch - returns the
+	 * number of points, always left in the polygon
+	 */
+	private int clipToFrustum(double[] polygon, double[] scratch, int planes, int stride) {
+		double[] clipPlanes = this.clipPlanes;
+		double[] source = polygon, target = scratch;
+		int count = Triangle.SIDES;
+		for (int plane = 0; (plane < Pipeline.CLIP_PLANES) && (count >= Triangle.SIDES); plane += 1) {
+			if ((planes & (1 << plane)) != 0) {
+				int offset = plane * Pipeline.PLANE_STRIDE;
+				count = Pipeline.clipPolygon(source, count, target, stride, clipPlanes[offset], clipPlanes[offset + 1], clipPlanes[offset + 2], clipPlanes[offset + 3], clipPlanes[offset + 4]);
+				double[] swap = source;
+				source = target;
+				target = swap;
+			}
+		}
+		if (source != polygon) {
+			System.arraycopy(source, 0, polygon, 0, count * stride);
+		}
+		return count;
+	}
+
+	/**
+	 * Lays the clip space planes out - with sx = (1 - x / w) * width / 2 & w > 0,
+	 * sx >= -margin becomes (1 + margin / (width / 2)) w - x >= 0
+	 */
+	private void prepareClipPlanes() {
+		double[] planes = this.clipPlanes;
+		// Near & far - w >= near, z / w <= 1
+		Pipeline.setClipPlane(planes, 0, 0.0, 0.0, 0.0, 1.0, -Pipeline.NEAR_PLANE);
+		Pipeline.setClipPlane(planes, 1, 0.0, 0.0, -1.0, 1.0, 0.0);
+		this.setEdgePlanes(planes, 2, this.guardBand);
+		this.setEdgePlanes(planes, 6, 0.0);
+	}
+
+	/**
+	 * Left, right, top & bottom planes from -margin to (size - 1 + margin)
+	 */
+	private void setEdgePlanes(double[] planes, int first, double margin) {
+		double left = 1.0 + (margin / this.horizontalScalingFactor), right = 1.0 - (((this.width - 1) + margin) / this.horizontalScalingFactor);
+		double top = 1.0 + (margin / this.verticalScalingFactor), bottom = 1.0 - (((this.height - 1) + margin) / this.verticalScalingFactor);
+		Pipeline.setClipPlane(planes, first, -1.0, 0.0, 0.0, left, 0.0);
+		Pipeline.setClipPlane(planes, first + 1, 1.0, 0.0, 0.0, -right, 0.0);
+		Pipeline.setClipPlane(planes, first + 2, 0.0, -1.0, 0.0, top, 0.0);
+		Pipeline.setClipPlane(planes, first + 3, 0.0, 1.0, 0.0, -bottom, 0.0);
+	}
+
+	private static void setClipPlane(double[] planes, int plane, double a, double b, double c, double d, double e) {
+		int offset = plane * Pipeline.PLANE_STRIDE;
+		planes[offset] = a;
+		planes[offset + 1] = b;
+		planes[offset + 2] = c;
+		planes[offset + 3] = d;
+		planes[offset + 4] = e;
+	}
+
+	/**
+	 * Combines the world, view & projection matrices & brings the camera & light
+	 * into object space
+	 */
+	private void prepareObjectSpace() {
+		Matrix4.product(this.worldMatrix4, this.viewMatrix4, this.worldViewMatrix4);
+		Matrix4.product(this.worldViewMatrix4, this.projectionMatrix4, this.clipMatrix4);
+		Matrix4.affineInverse(this.worldMatrix4, this.inverseWorldMatrix4);
+		double[] inverse = this.inverseWorldMatrix, world = this.worldMatrix;
+		this.objectCameraX = (this.cameraX * inverse[0]) + (this.cameraY * inverse[4]) + (this.cameraZ * inverse[8]) + inverse[12];
+		this.objectCameraY = (this.cameraX * inverse[1]) + (this.cameraY * inverse[5]) + (this.cameraZ * inverse[9]) + inverse[13];
+		this.objectCameraZ = (this.cameraX * inverse[2]) + (this.cameraY * inverse[6]) + (this.cameraZ * inverse[10]) + inverse[14];
+		// Normal . light is the same in both spaces when the normal goes through
+		// the inverse transpose & the light through the inverse
+		this.objectLightX = (this.lightX * inverse[0]) + (this.lightY * inverse[4]) + (this.lightZ * inverse[8]);
+		this.objectLightY = (this.lightX * inverse[1]) + (this.lightY * inverse[5]) + (this.lightZ * inverse[9]);
+		this.objectLightZ = (this.lightX * inverse[2]) + (this.lightY * inverse[6]) + (this.lightZ * inverse[10]);
+		// Rigid - the 3x3 part is orthonormal
+		boolean rigid = true;
+		for (int row = 0; row < 3; row += 1) {
+			for (int column = 0; column < 3; column += 1) {
+				double dotProduct = (world[row * 4] * world[column * 4]) + (world[(row * 4) + 1] * world[(column * 4) + 1]) + (world[(row * 4) + 2] * world[(column * 4) + 2]);
+				rigid &= Math.abs(dotProduct - (row == column ? 1.0 : 0.0)) < 1e-9;
+			}
+		}
+		this.rigidWorld = rigid;
+		double determinant = (world[0] * ((world[5] * world[10]) - (world[6] * world[9]))) - (world[1] * ((world[4] * world[10]) - (world[6] * world[8]))) + (world[2] * ((world[4] * world[9]) - (world[5] * world[8])));
+		this.mirroredWorld = determinant < 0.0;
+		if (this.mirroredWorld) {
+			this.objectLightX = -this.objectLightX;
+			this.objectLightY = -this.objectLightY;
+			this.objectLightZ = -this.objectLightZ;
+		}
+	}
+
+	/**
+	 * Brings the frustum into object space - the near plane comes from the
+	 * object->view matrix, the far plane & screen edges from the object->clip
+	 * matrix. With
+	 * sx = (1 - x / w) * width / 2 & w > 0, sx >= a becomes
+	 * (1 - 2a / width) w - x >= 0, a linear test on object space positions
+	 */
+	private void prepareFrustum() {
+		// Half the near plane, a bit past the far plane & a pixel outside the
+		// screen to reject, twice the near plane, a bit before the far plane & a
+		// pixel inside the guard band to accept - the margins cover any rounding
+		// between these tests & the actual clipping
+		this.prepareFrustumPlanes(this.rejectPlanes, Pipeline.NEAR_PLANE * 0.5, 1.001, 1.0);
+		this.prepareFrustumPlanes(this.acceptPlanes, Pipeline.NEAR_PLANE * 2.0, 0.999, this.guardBand - 1.0);
+	}
+
+	private void prepareFrustumPlanes(double[] planes, double near, double far, double margin) {
+		double[] view = this.worldViewMatrix, clip = this.clipMatrix;
+		Pipeline.setPlane(planes, 0, view[2], view[6], view[10], view[14] - near);
+		// z / w <= far
+		Pipeline.setPlane(planes, 5, (far * clip[3]) - clip[2], (far * clip[7]) - clip[6], (far * clip[11]) - clip[10], (far * clip[15]) - clip[14]);
+		// Screen edges from -margin to (size - 1 + margin)
+		double left = 1.0 + (margin / this.horizontalScalingFactor), right = 1.0 - (((this.width - 1) + margin) / this.horizontalScalingFactor);
+		double top = 1.0 + (margin / this.verticalScalingFactor), bottom = 1.0 - (((this.height - 1) + margin) / this.verticalScalingFactor);
+		Pipeline.setPlane(planes, 1, (left * clip[3]) - clip[0], (left * clip[7]) - clip[4], (left * clip[11]) - clip[8], (left * clip[15]) - clip[12]);
+		Pipeline.setPlane(planes, 2, clip[0] - (right * clip[3]), clip[4] - (right * clip[7]), clip[8] - (right * clip[11]), clip[12] - (right * clip[15]));
+		Pipeline.setPlane(planes, 3, (top * clip[3]) - clip[1], (top * clip[7]) - clip[5], (top * clip[11]) - clip[9], (top * clip[15]) - clip[13]);
+		Pipeline.setPlane(planes, 4, clip[1] - (bottom * clip[3]), clip[5] - (bottom * clip[7]), clip[9] - (bottom * clip[11]), clip[13] - (bottom * clip[15]));
+	}
+
+	private static void setPlane(double[] planes, int plane, double a, double b, double c, double d) {
+		planes[plane * 4] = a;
+		planes[(plane * 4) + 1] = b;
+		planes[(plane * 4) + 2] = c;
+		planes[(plane * 4) + 3] = d;
+	}
+
+	/**
+	 * Walks the tree under the given root depth first & lists the triangles of
+	 * the nodes that may show - a node outside any plane is skipped with its
+	 * whole subtree, a node inside every plane is listed whole without going
+	 * further down
+	 */
+	private void cullHierarchy(BoundingVolumeHierarchy hierarchy, int root) {
+		if (this.visibleTriangles.length < hierarchy.triangles.length) {
+			this.visibleTriangles = new int[hierarchy.triangles.length];
+		}
+		int[] stack = this.nodeStack, visibleTriangles = this.visibleTriangles, triangles = hierarchy.triangles;
+		int visibleCount = 0, depth = 0;
+		stack[depth] = root;
+		depth += 1;
+		while (depth > 0) {
+			depth -= 1;
+			int node = stack[depth];
+			int offset = node * BoundingVolumeHierarchy.BOUNDS_STRIDE;
+			double[] bounds = hierarchy.bounds;
+			if (Pipeline.isOutside(this.rejectPlanes, bounds, offset)) {
+				continue;
+			}
+			boolean inside = Pipeline.isInside(this.acceptPlanes, bounds, offset);
+			if (inside || hierarchy.isLeaf(node)) {
+				int start = hierarchy.starts[node], end = start + hierarchy.counts[node];
+				for (int index = start; index < end; index += 1) {
+					visibleTriangles[visibleCount] = inside ? ~triangles[index] : triangles[index];
+					visibleCount += 1;
+				}
+			} else {
+				// Right child first, the left one comes out of the stack first
+				stack[depth] = hierarchy.rightChildren[node];
+				stack[depth + 1] = node + 1;
+				depth += 2;
+			}
+		}
+		this.visibleCount = visibleCount;
+	}
+
+	/**
+	 * Returns true when the box is fully on the outer side of one of the planes
+	 * - its corner farthest along the plane's normal is outside
+	 */
+	private static boolean isOutside(double[] planes, double[] bounds, int offset) {
+		for (int plane = 0; plane < Pipeline.FRUSTUM_PLANES; plane += 1) {
+			double a = planes[plane * 4], b = planes[(plane * 4) + 1], c = planes[(plane * 4) + 2], d = planes[(plane * 4) + 3];
+			double distance = (a * bounds[offset + (a >= 0.0 ? 3 : 0)]) + (b * bounds[offset + (b >= 0.0 ? 4 : 1)]) + (c * bounds[offset + (c >= 0.0 ? 5 : 2)]) + d;
+			if (distance < 0.0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true when the box is fully on the inner side of every plane - its
+	 * corner nearest along each plane's normal is inside
+	 */
+	private static boolean isInside(double[] planes, double[] bounds, int offset) {
+		for (int plane = 0; plane < Pipeline.FRUSTUM_PLANES; plane += 1) {
+			double a = planes[plane * 4], b = planes[(plane * 4) + 1], c = planes[(plane * 4) + 2], d = planes[(plane * 4) + 3];
+			double distance = (a * bounds[offset + (a >= 0.0 ? 0 : 3)]) + (b * bounds[offset + (b >= 0.0 ? 1 : 4)]) + (c * bounds[offset + (c >= 0.0 ? 2 : 5)]) + d;
+			if (distance < 0.0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Makes sure the vertex cache fits the mesh & invalidates it - the cache
+	 * only ever grows
+	 */
+	private void prepareVertexCache(int vertexCount) {
+		if (this.vertexStamps.length < vertexCount) {
+			this.clipVertices = new double[vertexCount * Pipeline.STRIDE];
+			this.outcodes = new int[vertexCount];
+			this.vertexStamps = new int[vertexCount];
+			this.stamp = 0;
+		}
+		this.stamp += 1;
+		if (this.stamp == 0) {
+			// Wrapped around - stale stamps could match again
+			Arrays.fill(this.vertexStamps, 0);
+			this.stamp = 1;
+		}
+	}
+
+	/**
+	 * Transforms a vertex from object to clip space & computes its outcode unless
+	 * that already happened for the current mesh
+	 */
+	private void transformToClip(Mesh mesh, int vertex) {
+		if (this.vertexStamps[vertex] != this.stamp) {
+			int offset = vertex * Pipeline.STRIDE;
+			Pipeline.transform(this.clipMatrix, mesh.positionsX[vertex], mesh.positionsY[vertex], mesh.positionsZ[vertex], 1.0, this.clipVertices, offset);
+			this.outcodes[vertex] = this.outcode(this.clipVertices, offset);
+			this.vertexStamps[vertex] = this.stamp;
+		}
+	}
+
+	/**
+	 * Returns the planes a clip space point is outside of, bit i for plane i -
+	 * the same test as the clipping itself
+	 */
+	private int outcode(double[] points, int offset) {
+		double[] clipPlanes = this.clipPlanes;
+		double x = points[offset], y = points[offset + 1], z = points[offset + 2], w = points[offset + 3];
+		int outcode = 0;
+		for (int plane = 0; plane < Pipeline.OUTCODE_PLANES; plane += 1) {
+			int index = plane * Pipeline.PLANE_STRIDE;
+			if (((clipPlanes[index] * x) + (clipPlanes[index + 1] * y) + (clipPlanes[index + 2] * z) + (clipPlanes[index + 3] * w) + clipPlanes[index + 4]) < 0.0) {
+				outcode |= 1 << plane;
+			}
+		}
+		return outcode;
+	}
+
+	/**
+	 * Fills the drawing order - grouped by material with the depth buffer (a
+	 * counting sort on the slots, submission order within a material), farthest
+	 * first in painter's mode (stable, so ties keep submission order)
+	 */
+	private void prepareOrder() {
+		int count = this.emitted.count;
+		if (this.order.length < count) {
+			this.order = new int[this.emitted.colors.length];
+		}
+		if (this.visibility == Visibility.PAINTER) {
+			this.radixSort.sortDescending(this.emitted.depthKeys, count, this.order);
+		} else if (this.slotCount <= 1) {
+			for (int index = 0; index < count; index += 1) {
+				this.order[index] = index;
+			}
+		} else {
+			int[] slots = this.emitted.slots, starts = this.slotStarts;
+			Arrays.fill(starts, 0, this.slotCount + 1, 0);
+			for (int index = 0; index < count; index += 1) {
+				starts[slots[index] + 1] += 1;
+			}
+			for (int slot = 0; slot < this.slotCount; slot += 1) {
+				starts[slot + 1] += starts[slot];
+			}
+			for (int index = 0; index < count; index += 1) {
+				this.order[starts[slots[index]]] = index;
+				starts[slots[index]] += 1;
+			}
+		}
+	}
+
+	/**
+	 * Clips a convex polygon against the plane a.x + b.y + c.z + d.w + e >= 0
+	 * (Sutherland-Hodgman) - returns the number of points written to the target.
+	 * Every component of a point is interpolated, position & values alike
+	 */
+	private static int clipPolygon(double[] source, int count, double[] target, int stride, double a, double b, double c, double d, double e) {
+		int written = 0;
+		if (count == 0) {
+			return written;
+		}
+		int previous = (count - 1) * stride;
+		double previousDistance = (a * source[previous]) + (b * source[previous + 1]) + (c * source[previous + 2]) + (d * source[previous + 3]) + e;
+		for (int point = 0; point < count; point += 1) {
+			int current = point * stride;
+			double currentDistance = (a * source[current]) + (b * source[current + 1]) + (c * source[current + 2]) + (d * source[current + 3]) + e;
+			if ((currentDistance >= 0.0) != (previousDistance >= 0.0)) {
+				// Edge crosses the plane - add the intersection
+				double tangent = previousDistance / (previousDistance - currentDistance);
+				int offset = written * stride;
+				for (int component = 0; component < stride; component += 1) {
+					target[offset + component] = source[previous + component] + ((source[current + component] - source[previous + component]) * tangent);
+				}
+				written += 1;
+			}
+			if (currentDistance >= 0.0) {
+				System.arraycopy(source, current, target, written * stride, stride);
+				written += 1;
+			}
+			previous = current;
+			previousDistance = currentDistance;
+		}
+		return written;
+	}
+
+	/**
+	 * Row vector by matrix product, written to the target at the given offset
+	 */
+	private static void transform(double[] matrix, double x, double y, double z, double w, double[] target, int offset) {
+		target[offset] = (x * matrix[0]) + (y * matrix[4]) + (z * matrix[8]) + (w * matrix[12]);
+		target[offset + 1] = (x * matrix[1]) + (y * matrix[5]) + (z * matrix[9]) + (w * matrix[13]);
+		target[offset + 2] = (x * matrix[2]) + (y * matrix[6]) + (z * matrix[10]) + (w * matrix[14]);
+		target[offset + 3] = (x * matrix[3]) + (y * matrix[7]) + (z * matrix[11]) + (w * matrix[15]);
+	}
+
+	/**
+	 * Growable buffer of screen space triangles - (x, y, z) for each of the 3
+	 * points, the interpolated values of each point, a packed color, a material
+	 * slot & a depth key each - with its own clipping scratch
+	 * & the statistics of the triangles processed into it
+	 */
+	private static final class TriangleBuffer {
+		private double[] screenCoordinates, varyings;
+		private int[] colors, slots;
+		private float[] depthKeys;
+		private int count;
+		// Triangles dropped & clipped, time spent clipping
+		private long culledCount, clippedCount, clipTime;
+		// Clipping buffers - clipping goes back & forth between the two
+		private final double[] polygon, clippedPolygon;
+
+		private TriangleBuffer(int capacity) {
+			this.screenCoordinates = new double[capacity * Triangle.SIDES * 3];
+			this.varyings = new double[capacity * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS];
+			this.colors = new int[capacity];
+			this.slots = new int[capacity];
+			this.depthKeys = new float[capacity];
+			this.count = 0;
+			this.polygon = new double[Pipeline.CLIP_CAPACITY * Pipeline.POINT_CAPACITY];
+			this.clippedPolygon = new double[Pipeline.CLIP_CAPACITY * Pipeline.POINT_CAPACITY];
+		}
+
+		/**
+		 * Forgets the statistics of previous meshes - the triangles stay
+		 */
+		private void resetStatistics() {
+			this.culledCount = 0;
+			this.clippedCount = 0;
+			this.clipTime = 0;
+		}
+
+		/**
+		 * Queues a screen space triangle & the given number of values after each
+		 * point's position
+		 */
+		private void emit(double[] points, int first, int second, int third, int color, int slot, int varyingCount) {
+			if (this.count == this.colors.length) {
+				this.grow(this.count + 1);
+			}
+			int target = this.count * Triangle.SIDES * 3;
+			double[] screen = this.screenCoordinates;
+			screen[target] = points[first];
+			screen[target + 1] = points[first + 1];
+			screen[target + 2] = points[first + 2];
+			screen[target + 3] = points[second];
+			screen[target + 4] = points[second + 1];
+			screen[target + 5] = points[second + 2];
+			screen[target + 6] = points[third];
+			screen[target + 7] = points[third + 1];
+			screen[target + 8] = points[third + 2];
+			if (varyingCount > 0) {
+				int varyingTarget = this.count * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS;
+				System.arraycopy(points, first + Pipeline.STRIDE, this.varyings, varyingTarget, varyingCount);
+				System.arraycopy(points, second + Pipeline.STRIDE, this.varyings, varyingTarget + varyingCount, varyingCount);
+				System.arraycopy(points, third + Pipeline.STRIDE, this.varyings, varyingTarget + (2 * varyingCount), varyingCount);
+			}
+			this.colors[this.count] = color;
+			this.slots[this.count] = slot;
+			this.depthKeys[this.count] = (float) ((points[first + 2] + points[second + 2] + points[third + 2]) / 3.0);
+			this.count += 1;
+		}
+
+		/**
+		 * Copies the triangles of another buffer after the ones of this buffer,
+		 * with or without their interpolated values
+		 */
+		private void append(TriangleBuffer other, boolean withVaryings) {
+			if ((this.count + other.count) > this.colors.length) {
+				this.grow(this.count + other.count);
+			}
+			System.arraycopy(other.screenCoordinates, 0, this.screenCoordinates, this.count * Triangle.SIDES * 3, other.count * Triangle.SIDES * 3);
+			if (withVaryings) {
+				System.arraycopy(other.varyings, 0, this.varyings, this.count * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS, other.count * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS);
+			}
+			System.arraycopy(other.colors, 0, this.colors, this.count, other.count);
+			System.arraycopy(other.slots, 0, this.slots, this.count, other.count);
+			System.arraycopy(other.depthKeys, 0, this.depthKeys, this.count, other.count);
+			this.count += other.count;
+		}
+
+		/**
+		 * Doubles the capacity until it fits - only happens until the buffer fits
+		 * the largest frame
+		 */
+		private void grow(int minimumCapacity) {
+			int capacity = Math.max(1, this.colors.length);
+			while (capacity < minimumCapacity) {
+				capacity *= 2;
+			}
+			this.screenCoordinates = Arrays.copyOf(this.screenCoordinates, capacity * Triangle.SIDES * 3);
+			this.varyings = Arrays.copyOf(this.varyings, capacity * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS);
+			this.colors = Arrays.copyOf(this.colors, capacity);
+			this.slots = Arrays.copyOf(this.slots, capacity);
+			this.depthKeys = Arrays.copyOf(this.depthKeys, capacity);
+		}
+	}
+
+	private final class GeometryWorker extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute() {
+			Pipeline pipeline = Pipeline.this;
+			Mesh mesh = pipeline.currentMesh;
+			int chunkCount = pipeline.chunks.length;
+			int first = pipeline.transformingVertices ? 0 : pipeline.currentStart;
+			int total = pipeline.transformingVertices ? mesh.vertexCount : pipeline.currentEnd - first;
+			int chunkSize = ((total + chunkCount) - 1) / chunkCount;
+			int chunk;
+			while ((chunk = pipeline.nextChunk.getAndIncrement()) < chunkCount) {
+				int start = first + Math.min(total, chunk * chunkSize), end = first + Math.min(total, (chunk * chunkSize) + chunkSize);
+				if (pipeline.transformingVertices) {
+					pipeline.transformVertices(mesh, start, end);
+				} else {
+					TriangleBuffer buffer = pipeline.chunks[chunk];
+					buffer.count = 0;
+					buffer.resetStatistics();
+					pipeline.processTriangles(mesh, pipeline.currentTriangles, start, end, buffer, true);
+				}
+			}
+		}
+	}
+}
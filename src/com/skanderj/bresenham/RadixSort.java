@@ -0,0 +1,86 @@
+package com.skanderj.bresenham;
+
+import java.util.Arrays;
+
+/**
+ * Stable LSD radix sort of indices by float keys, largest key first - the
+ * float bits are flipped into unsigned integers that sort like the floats,
+ * then sorted 8 bits at a time in 4 counting passes, no comparison at all
+ */
+public final class RadixSort {
+	private static final int RADIX_BITS = 8, RADIX = 1 << RadixSort.RADIX_BITS, PASSES = Integer.SIZE / RadixSort.RADIX_BITS;
+
+	// Sortable keys & indices, swapped between passes
+	private int[] keys, keysScratch, indicesScratch;
+	// One histogram per pass, all filled in a single read of the keys
+	private final int[] histograms;
+
+	public RadixSort() {
+		this.keys = new int[0];
+		this.keysScratch = new int[0];
+		this.indicesScratch = new int[0];
+		this.histograms = new int[RadixSort.PASSES * RadixSort.RADIX];
+	}
+
+	/**
+	 * Writes the indices of the first count keys to order, from the largest key
+	 * to the smallest - equal keys keep their index order. Scratch buffers only
+	 * grow, so sorting the same count again doesn't allocate
+	 */
+	public void sortDescending(float[] floatKeys, int count, int[] order) {
+		if (count == 0) {
+			return;
+		}
+		if (this.keys.length < count) {
+			this.keys = new int[count];
+			this.keysScratch = new int[count];
+			this.indicesScratch = new int[count];
+		}
+		int[] histograms = this.histograms;
+		Arrays.fill(histograms, 0);
+		int[] keys = this.keys;
+		for (int index = 0; index < count; index += 1) {
+			int bits = Float.floatToIntBits(floatKeys[index]);
+			// Negative floats get all their bits flipped, positive ones only the
+			// sign - the result sorts as unsigned integers, inverted for descending
+			int key = ~(bits ^ ((bits >> 31) | Integer.MIN_VALUE));
+			keys[index] = key;
+			order[index] = index;
+			for (int pass = 0; pass < RadixSort.PASSES; pass += 1) {
+				histograms[(pass * RadixSort.RADIX) + ((key >>> (pass * RadixSort.RADIX_BITS)) & (RadixSort.RADIX - 1))] += 1;
+			}
+		}
+		int[] sourceKeys = keys, targetKeys = this.keysScratch;
+		int[] sourceIndices = order, targetIndices = this.indicesScratch;
+		for (int pass = 0; pass < RadixSort.PASSES; pass += 1) {
+			int base = pass * RadixSort.RADIX, shift = pass * RadixSort.RADIX_BITS;
+			// Every key has the same digit - nothing moves
+			if (histograms[base + ((sourceKeys[0] >>> shift) & (RadixSort.RADIX - 1))] == count) {
+				continue;
+			}
+			// Histogram to starting offsets
+			int offset = 0;
+			for (int digit = 0; digit < RadixSort.RADIX; digit += 1) {
+				int digitCount = histograms[base + digit];
+				histograms[base + digit] = offset;
+				offset += digitCount;
+			}
+			for (int index = 0; index < count; index += 1) {
+				int key = sourceKeys[index];
+				int slot = base + ((key >>> shift) & (RadixSort.RADIX - 1));
+				int target = histograms[slot];
+				histograms[slot] = target + 1;
+				targetKeys[target] = key;
+				targetIndices[target] = sourceIndices[index];
+			}
+			int[] swapKeys = sourceKeys, swapIndices = sourceIndices;
+			sourceKeys = targetKeys;
+			sourceIndices = targetIndices;
+			targetKeys = swapKeys;
+			targetIndices = swapIndices;
+		}
+		if (sourceIndices != order) {
+			System.arraycopy(sourceIndices, 0, order, 0, count);
+		}
+	}
+}
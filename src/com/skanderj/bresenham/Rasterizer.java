@@ -0,0 +1,334 @@
+package com.skanderj.bresenham;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+public final class Rasterizer {
+	// Fixed-point precision of the points - 1/16th of a pixel
+	public static final int SUBPIXEL_BITS = 4;
+	private static final int SUBPIXEL_SCALE = 1 << Rasterizer.SUBPIXEL_BITS, SUBPIXEL_HALF = Rasterizer.SUBPIXEL_SCALE >> 1;
+
+	public final int width, height;
+	// Backing image & its pixels - written directly, blitted once per frame.
+	// Its own framebuffer unless another one is set as the target
+	private BufferedImage image;
+	private int[] pixels;
+	// One depth value per pixel - smaller is closer
+	public final float[] depth;
+	// How pixels are shaded from the values interpolated across triangles &
+	// the world space light direction
+	private Pipeline.Shading shading;
+	private double lightX, lightY, lightZ;
+	// How textured triangles pick their texels
+	private Texture.Filter textureFilter;
+
+	public Rasterizer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+		this.depth = new float[width * height];
+		this.shading = Pipeline.Shading.FLAT;
+		this.textureFilter = Texture.Filter.BILINEAR;
+	}
+
+	/**
+	 * Sets how pixels of triangles drawn with interpolated values are shaded -
+	 * the light is only used per pixel in Phong mode. Can't change while
+	 * triangles are being drawn
+	 */
+	public void setShading(Pipeline.Shading shading, double lightX, double lightY, double lightZ) {
+		this.shading = shading;
+		this.lightX = lightX;
+		this.lightY = lightY;
+		this.lightZ = lightZ;
+	}
+
+	/**
+	 * Sets how textured triangles are sampled - can't change while triangles
+	 * are being drawn
+	 */
+	public void setTextureFilter(Texture.Filter textureFilter) {
+		this.textureFilter = textureFilter;
+	}
+
+	/**
+	 * Draws into another framebuffer, a slot of a frame ring for instance - same
+	 * size, TYPE_INT_RGB. The depth buffer stays the same. Can't change while
+	 * triangles are being drawn
+	 */
+	public void setTarget(BufferedImage image) {
+		if ((image.getWidth() != this.width) || (image.getHeight() != this.height) || (image.getType() != BufferedImage.TYPE_INT_RGB)) {
+			throw new IllegalArgumentException("Targets must be " + this.width + "x" + this.height + " TYPE_INT_RGB images");
+		}
+		this.image = image;
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Returns the framebuffer drawn into
+	 */
+	public BufferedImage getImage() {
+		return this.image;
+	}
+
+	/**
+	 * Returns the pixels of the framebuffer drawn into, packed RGB row by row
+	 */
+	public int[] getPixels() {
+		return this.pixels;
+	}
+
+	/**
+	 * Fills the color buffer with the given packed color & resets the depth buffer
+	 */
+	public void clear(int color) {
+		Arrays.fill(this.pixels, color);
+		Arrays.fill(this.depth, Float.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Fills triangle - helper function
+	 */
+	public int fillTriangle(Triangle triangle) {
+		return this.fillTriangle(triangle.vectors[0].x, triangle.vectors[0].y, triangle.vectors[0].z, triangle.vectors[1].x, triangle.vectors[1].y, triangle.vectors[1].z, triangle.vectors[2].x, triangle.vectors[2].y, triangle.vectors[2].z, triangle.color);
+	}
+
+	/**
+	 * Fills a screen space triangle over the whole framebuffer
+	 */
+	public int fillTriangle(double firstX, double firstY, double firstZ, double secondX, double secondY, double secondZ, double thirdX, double thirdY, double thirdZ, int color) {
+		return this.fillTriangle(firstX, firstY, firstZ, secondX, secondY, secondZ, thirdX, thirdY, thirdZ, color, 0, 0, this.width - 1, this.height - 1, this.depth, 0, this.width);
+	}
+
+	/**
+	 * Fills the part of a screen space triangle inside the clip rectangle (bounds
+	 * included) - points are snapped to a fixed-point subpixel grid so edge
+	 * functions are exact integers, stepped along each row; the top-left rule
+	 * makes sure shared edges are only drawn once. Depth is interpolated from the
+	 * exact edge values & tested against the given depth buffer, where pixel (x,
+	 * y) lives at depthOffset + (y * depthStride) + x. Any pixel gets the same
+	 * coverage & depth whatever the clip rectangle, so a frame split into tiles
+	 * is identical to one drawn at once. Returns the number of pixels written
+	 */
+	public int fillTriangle(double firstX, double firstY, double firstZ, double secondX, double secondY, double secondZ, double thirdX, double thirdY, double thirdZ, int color, int clipMinX, int clipMinY, int clipMaxX, int clipMaxY, float[] depthBuffer, int depthOffset, int depthStride) {
+		return this.fillTriangle(firstX, firstY, firstZ, secondX, secondY, secondZ, thirdX, thirdY, thirdZ, color, null, null, 0, null, clipMinX, clipMinY, clipMaxX, clipMaxY, depthBuffer, depthOffset, depthStride);
+	}
+
+	/**
+	 * Same as above, with the values of the current shading mode interpolated
+	 * across the triangle, followed by u / w, v / w & 1 / w when it is
+	 * textured - the values of each point follow one another from the offset,
+	 * the ones of the first point first. Each pixel's color comes from the base
+	 * color, its texel & its values, flat shading or null values fill the
+	 * triangle with the base color. Texture coordinates are divided by the
+	 * interpolated 1 / w at every pixel, so they stay perspective correct, &
+	 * every pixel samples the mipmap level closest to its own texel to pixel
+	 * area ratio
+	 */
+	public int fillTriangle(double firstX, double firstY, double firstZ, double secondX, double secondY, double secondZ, double thirdX, double thirdY, double thirdZ, int color, Texture texture, double[] varyings, int varyingOffset, Interpolator interpolator, int clipMinX, int clipMinY, int clipMaxX, int clipMaxY, float[] depthBuffer, int depthOffset, int depthStride) {
+		int lightCount = varyings == null ? 0 : this.shading.varyings;
+		if (varyings == null) {
+			texture = null;
+		}
+		int varyingCount = texture == null ? lightCount : lightCount + Texture.VARYINGS;
+		int secondVaryings = varyingOffset + varyingCount, thirdVaryings = varyingOffset + (2 * varyingCount);
+		long firstPointX = Math.round(firstX * Rasterizer.SUBPIXEL_SCALE), firstPointY = Math.round(firstY * Rasterizer.SUBPIXEL_SCALE);
+		long secondPointX = Math.round(secondX * Rasterizer.SUBPIXEL_SCALE), secondPointY = Math.round(secondY * Rasterizer.SUBPIXEL_SCALE);
+		long thirdPointX = Math.round(thirdX * Rasterizer.SUBPIXEL_SCALE), thirdPointY = Math.round(thirdY * Rasterizer.SUBPIXEL_SCALE);
+		long area = ((secondPointX - firstPointX) * (thirdPointY - firstPointY)) - ((thirdPointX - firstPointX) * (secondPointY - firstPointY));
+		if (area == 0) {
+			return 0;
+		}
+		// Orientation doesn't matter here (culling is done earlier) - make it
+		// positive by swapping the last two points
+		if (area < 0) {
+			long swapX = secondPointX, swapY = secondPointY;
+			double swapZ = secondZ;
+			secondPointX = thirdPointX;
+			secondPointY = thirdPointY;
+			secondZ = thirdZ;
+			thirdPointX = swapX;
+			thirdPointY = swapY;
+			thirdZ = swapZ;
+			int swapVaryings = secondVaryings;
+			secondVaryings = thirdVaryings;
+			thirdVaryings = swapVaryings;
+			area = -area;
+		}
+		// Bounding box clamped to the clip rectangle
+		int minX = (int) Math.max(clipMinX, Math.min(firstPointX, Math.min(secondPointX, thirdPointX)) >> Rasterizer.SUBPIXEL_BITS);
+		int maxX = (int) Math.min(clipMaxX, Math.max(firstPointX, Math.max(secondPointX, thirdPointX)) >> Rasterizer.SUBPIXEL_BITS);
+		int minY = (int) Math.max(clipMinY, Math.min(firstPointY, Math.min(secondPointY, thirdPointY)) >> Rasterizer.SUBPIXEL_BITS);
+		int maxY = (int) Math.min(clipMaxY, Math.max(firstPointY, Math.max(secondPointY, thirdPointY)) >> Rasterizer.SUBPIXEL_BITS);
+		if ((minX > maxX) || (minY > maxY)) {
+			return 0;
+		}
+		// Edge deltas - edge n is opposite to point n
+		long firstEdgeX = thirdPointX - secondPointX, firstEdgeY = thirdPointY - secondPointY;
+		long secondEdgeX = firstPointX - thirdPointX, secondEdgeY = firstPointY - thirdPointY;
+		long thirdEdgeX = secondPointX - firstPointX, thirdEdgeY = secondPointY - firstPointY;
+		// Top-left rule - pixels exactly on an edge only belong to top & left
+		// edges, others are pushed out by one unit
+		long firstBias = (firstEdgeY < 0) || ((firstEdgeY == 0) && (firstEdgeX > 0)) ? 0 : -1;
+		long secondBias = (secondEdgeY < 0) || ((secondEdgeY == 0) && (secondEdgeX > 0)) ? 0 : -1;
+		long thirdBias = (thirdEdgeY < 0) || ((thirdEdgeY == 0) && (thirdEdgeX > 0)) ? 0 : -1;
+		// Edge functions at the centre of the top-left pixel of the bounding box
+		long sampleX = ((long) minX << Rasterizer.SUBPIXEL_BITS) + Rasterizer.SUBPIXEL_HALF, sampleY = ((long) minY << Rasterizer.SUBPIXEL_BITS) + Rasterizer.SUBPIXEL_HALF;
+		long firstRow = ((firstEdgeX * (sampleY - secondPointY)) - (firstEdgeY * (sampleX - secondPointX))) + firstBias;
+		long secondRow = ((secondEdgeX * (sampleY - thirdPointY)) - (secondEdgeY * (sampleX - thirdPointX))) + secondBias;
+		long thirdRow = ((thirdEdgeX * (sampleY - firstPointY)) - (thirdEdgeY * (sampleX - firstPointX))) + thirdBias;
+		// One pixel steps
+		long firstStepX = -firstEdgeY << Rasterizer.SUBPIXEL_BITS, firstStepY = firstEdgeX << Rasterizer.SUBPIXEL_BITS;
+		long secondStepX = -secondEdgeY << Rasterizer.SUBPIXEL_BITS, secondStepY = secondEdgeX << Rasterizer.SUBPIXEL_BITS;
+		long thirdStepX = -thirdEdgeY << Rasterizer.SUBPIXEL_BITS, thirdStepY = thirdEdgeX << Rasterizer.SUBPIXEL_BITS;
+		// Depth relative to the first point, per unit of edge function
+		double inverseArea = 1.0 / area;
+		double secondDepthDelta = (secondZ - firstZ) * inverseArea, thirdDepthDelta = (thirdZ - firstZ) * inverseArea;
+		int[] pixels = this.pixels;
+		int written = 0;
+		if (varyingCount > 0) {
+			// Interpolated values relative to the pixel of the first point - its
+			// edge functions without bias, then the same deltas as the depth
+			int referenceX = (int) (firstPointX >> Rasterizer.SUBPIXEL_BITS), referenceY = (int) (firstPointY >> Rasterizer.SUBPIXEL_BITS);
+			long referenceSampleX = ((long) referenceX << Rasterizer.SUBPIXEL_BITS) + Rasterizer.SUBPIXEL_HALF, referenceSampleY = ((long) referenceY << Rasterizer.SUBPIXEL_BITS) + Rasterizer.SUBPIXEL_HALF;
+			double secondReference = (secondEdgeX * (referenceSampleY - thirdPointY)) - (secondEdgeY * (referenceSampleX - thirdPointX));
+			double thirdReference = (thirdEdgeX * (referenceSampleY - firstPointY)) - (thirdEdgeY * (referenceSampleX - firstPointX));
+			// Texture coordinates in level 0 texels & 1 / w scaled so the largest
+			// is 1, which keeps them precise in fixed point - the divisions at
+			// each pixel are unchanged
+			double scaleU = 0.0, scaleV = 0.0, scaleQ = 0.0;
+			if (texture != null) {
+				scaleQ = 1.0 / Math.max(varyings[varyingOffset + lightCount + 2], Math.max(varyings[secondVaryings + lightCount + 2], varyings[thirdVaryings + lightCount + 2]));
+				scaleU = texture.width * scaleQ;
+				scaleV = texture.height * scaleQ;
+			}
+			interpolator.setup(varyingCount, referenceX, referenceY);
+			for (int varying = 0; varying < varyingCount; varying += 1) {
+				double scale = varying < lightCount ? 1.0 : varying == lightCount ? scaleU : varying == (lightCount + 1) ? scaleV : scaleQ;
+				double first = varyings[varyingOffset + varying] * scale;
+				double secondDelta = ((varyings[secondVaryings + varying] * scale) - first) * inverseArea, thirdDelta = ((varyings[thirdVaryings + varying] * scale) - first) * inverseArea;
+				interpolator.set(varying, first + (secondReference * secondDelta) + (thirdReference * thirdDelta), (secondStepX * secondDelta) + (thirdStepX * thirdDelta), (secondStepY * secondDelta) + (thirdStepY * thirdDelta));
+			}
+			// Texels per pixel are the determinant of the values of u / w, v / w &
+			// 1 / w & their steps, the same at any pixel, over (1 / w)^3
+			double density = 0.0;
+			if (texture != null) {
+				density = Math.abs(Rasterizer.determinant(interpolator, lightCount));
+			}
+			interpolator.startRow(minX, minY);
+			for (int y = minY; y <= maxY; y += 1) {
+				long firstWeight = firstRow, secondWeight = secondRow, thirdWeight = thirdRow;
+				int offset = (y * this.width) + minX;
+				int depthIndex = depthOffset + (y * depthStride) + minX;
+				boolean entered = false;
+				for (int x = minX; x <= maxX; x += 1) {
+					if ((firstWeight | secondWeight | thirdWeight) >= 0) {
+						entered = true;
+						float pixelDepth = (float) (firstZ + (secondWeight * secondDepthDelta) + (thirdWeight * thirdDepthDelta));
+						if (pixelDepth < depthBuffer[depthIndex]) {
+							depthBuffer[depthIndex] = pixelDepth;
+							pixels[offset] = this.shade(texture == null ? color : Palette.multiply(this.sample(texture, density, interpolator.values, lightCount), color), interpolator.values);
+							written += 1;
+						}
+					} else if (entered) {
+						break;
+					}
+					firstWeight += firstStepX;
+					secondWeight += secondStepX;
+					thirdWeight += thirdStepX;
+					interpolator.stepX();
+					offset += 1;
+					depthIndex += 1;
+				}
+				firstRow += firstStepY;
+				secondRow += secondStepY;
+				thirdRow += thirdStepY;
+				interpolator.stepY();
+			}
+			return written;
+		}
+		for (int y = minY; y <= maxY; y += 1) {
+			long firstWeight = firstRow, secondWeight = secondRow, thirdWeight = thirdRow;
+			int offset = (y * this.width) + minX;
+			int depthIndex = depthOffset + (y * depthStride) + minX;
+			boolean entered = false;
+			for (int x = minX; x <= maxX; x += 1) {
+				if ((firstWeight | secondWeight | thirdWeight) >= 0) {
+					entered = true;
+					float pixelDepth = (float) (firstZ + (secondWeight * secondDepthDelta) + (thirdWeight * thirdDepthDelta));
+					if (pixelDepth < depthBuffer[depthIndex]) {
+						depthBuffer[depthIndex] = pixelDepth;
+						pixels[offset] = color;
+						written += 1;
+					}
+				} else if (entered) {
+					// Triangles are convex - nothing left on this row
+					break;
+				}
+				firstWeight += firstStepX;
+				secondWeight += secondStepX;
+				thirdWeight += thirdStepX;
+				offset += 1;
+				depthIndex += 1;
+			}
+			firstRow += firstStepY;
+			secondRow += secondStepY;
+			thirdRow += thirdStepY;
+		}
+		return written;
+	}
+
+	/**
+	 * Returns the color of a pixel from the base color & its interpolated
+	 * values - a light intensity scaled to 0-255 in Gouraud mode, a world space
+	 * normal lit here in Phong mode
+	 */
+	private int shade(int color, long[] values) {
+		double intensity;
+		switch (this.shading) {
+		case GOURAUD:
+			return Palette.shade(color, Palette.clampLevel((int) ((values[0] + Interpolator.HALF) >> Interpolator.FRACTION_BITS)));
+		case PHONG:
+			double normalX = values[0], normalY = values[1], normalZ = values[2];
+			double length = Math.sqrt((normalX * normalX) + (normalY * normalY) + (normalZ * normalZ));
+			intensity = length == 0.0 ? 0.0 : ((normalX * this.lightX) + (normalY * this.lightY) + (normalZ * this.lightZ)) / length;
+			return Palette.shade(color, Palette.level(Math.max(Pipeline.AMBIENT_LIGHT, intensity)));
+		default:
+			return color;
+		}
+	}
+
+	/**
+	 * Returns the texel of a pixel from its interpolated u / w, v / w & 1 / w,
+	 * found from the given value on
+	 */
+	private int sample(Texture texture, double density, long[] values, int first) {
+		// 1 / w rounds to 0 at worst, far from the largest one
+		double inverse = 1.0 / Math.max(1, values[first + 2]);
+		double u = values[first] * inverse, v = values[first + 1] * inverse;
+		int level = texture.selectLevel(density * inverse * inverse * inverse);
+		return this.textureFilter == Texture.Filter.BILINEAR ? texture.sampleBilinear(level, u, v) : texture.sampleNearest(level, u, v);
+	}
+
+	/**
+	 * Determinant of the 3x3 matrix of 3 interpolated values from the given
+	 * one - their values at the reference pixel, steps along x & steps along y
+	 */
+	private static double determinant(Interpolator interpolator, int first) {
+		double a = interpolator.origins[first], b = interpolator.origins[first + 1], c = interpolator.origins[first + 2];
+		double aX = interpolator.stepsX[first], bX = interpolator.stepsX[first + 1], cX = interpolator.stepsX[first + 2];
+		double aY = interpolator.stepsY[first], bY = interpolator.stepsY[first + 1], cY = interpolator.stepsY[first + 2];
+		return ((a * ((bX * cY) - (cX * bY))) - (b * ((aX * cY) - (cX * aY)))) + (c * ((aX * bY) - (bX * aY)));
+	}
+
+	/**
+	 * Draws the whole framebuffer onto the graphics object - a single call per
+	 * frame
+	 */
+	public void blit(Graphics graphics, int x, int y) {
+		graphics.drawImage(this.image, x, y, null);
+	}
+}
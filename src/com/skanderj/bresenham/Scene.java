@@ -0,0 +1,199 @@
+package com.skanderj.bresenham;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+
+/**
+ * Tree of nodes, each with its own transform & possibly a mesh shared with
+ * other nodes - geometry is stored once per mesh, an instance only costs its
+ * matrices. Every update picks the level of detail of every instance that has
+ * some & groups the instances by the mesh drawn, so the pipeline draws all
+ * instances of a mesh in a row
+ */
+public final class Scene {
+	// Initial number of instances per batch
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Every instance of a mesh - the world matrices are the nodes' own, nothing
+	 * is copied
+	 */
+	public static final class Batch {
+		public final Mesh mesh;
+		private Matrix4[] worldMatrices;
+		private int count;
+
+		private Batch(Mesh mesh) {
+			this.mesh = mesh;
+			this.worldMatrices = new Matrix4[Scene.INITIAL_CAPACITY];
+			this.count = 0;
+		}
+
+		private void add(Matrix4 worldMatrix) {
+			if (this.count == this.worldMatrices.length) {
+				this.worldMatrices = Arrays.copyOf(this.worldMatrices, this.count * 2);
+			}
+			this.worldMatrices[this.count] = worldMatrix;
+			this.count += 1;
+		}
+
+		public Matrix4[] getWorldMatrices() {
+			return this.worldMatrices;
+		}
+
+		public int getCount() {
+			return this.count;
+		}
+	}
+
+	// Parent of every top level node, its transform applies to the whole scene
+	public final SceneNode root;
+	// Batches in order of first appearance, reused from one update to the next
+	private final List<Batch> batches;
+	private final Map<Mesh, Batch> batchesByMesh;
+	private int instanceCount, triangleCount;
+	// Viewpoint of the last update, no level of detail is picked without one
+	private boolean viewpoint;
+	private double cameraX, cameraY, cameraZ, focalLength;
+
+	public Scene() {
+		this.root = new SceneNode(null);
+		this.batches = new ArrayList<Batch>();
+		this.batchesByMesh = new IdentityHashMap<Mesh, Batch>();
+		this.instanceCount = 0;
+		this.triangleCount = 0;
+		this.viewpoint = false;
+	}
+
+	/**
+	 * Adds a top level node
+	 */
+	public SceneNode add(SceneNode node) {
+		return this.root.addChild(node);
+	}
+
+	/**
+	 * Recomputes every world matrix & regroups the instances by mesh, always
+	 * drawing full meshes
+	 */
+	public void update() {
+		this.viewpoint = false;
+		this.regroup();
+	}
+
+	/**
+	 * Recomputes every world matrix, picks levels of detail for the camera &
+	 * regroups the instances by mesh - the focal length is the size in pixels
+	 * of one unit seen from a distance of 1
+	 */
+	public void update(Vector4D cameraLocation, double focalLength) {
+		this.viewpoint = true;
+		this.cameraX = cameraLocation.x;
+		this.cameraY = cameraLocation.y;
+		this.cameraZ = cameraLocation.z;
+		this.focalLength = focalLength;
+		this.regroup();
+	}
+
+	/**
+	 * Batches of meshes no longer drawn are dropped, nothing is allocated unless
+	 * the set of meshes drawn changed
+	 */
+	private void regroup() {
+		this.root.updateWorldMatrix(null);
+		for (int index = 0; index < this.batches.size(); index += 1) {
+			this.batches.get(index).count = 0;
+		}
+		this.instanceCount = 0;
+		this.triangleCount = 0;
+		this.collect(this.root);
+		for (int index = this.batches.size() - 1; index >= 0; index -= 1) {
+			Batch batch = this.batches.get(index);
+			if (batch.count == 0) {
+				this.batches.remove(index);
+				this.batchesByMesh.remove(batch.mesh);
+			} else {
+				// Don't keep nodes that left the scene alive
+				Arrays.fill(batch.worldMatrices, batch.count, batch.worldMatrices.length, null);
+			}
+		}
+	}
+
+	private void collect(SceneNode node) {
+		Mesh mesh = node.getMesh();
+		LevelsOfDetail levelsOfDetail = node.getLevelsOfDetail();
+		if ((mesh != null) && (levelsOfDetail != null) && this.viewpoint) {
+			mesh = levelsOfDetail.levels[levelsOfDetail.selectLevel(this.projectedRadius(mesh, node.getWorldMatrix()))];
+		}
+		if (mesh != null) {
+			Batch batch = this.batchesByMesh.get(mesh);
+			if (batch == null) {
+				batch = new Batch(mesh);
+				this.batches.add(batch);
+				this.batchesByMesh.put(mesh, batch);
+			}
+			batch.add(node.getWorldMatrix());
+			this.instanceCount += 1;
+			this.triangleCount += mesh.triangleCount;
+		}
+		List<SceneNode> children = node.getChildren();
+		for (int index = 0; index < children.size(); index += 1) {
+			this.collect(children.get(index));
+		}
+	}
+
+	/**
+	 * Radius in pixels of the mesh's bounding sphere in world space - infinite
+	 * when the camera is inside it
+	 */
+	private double projectedRadius(Mesh mesh, Matrix4 worldMatrix) {
+		double[] world = worldMatrix.data;
+		double x = (mesh.centerX * world[0]) + (mesh.centerY * world[4]) + (mesh.centerZ * world[8]) + world[12];
+		double y = (mesh.centerX * world[1]) + (mesh.centerY * world[5]) + (mesh.centerZ * world[9]) + world[13];
+		double z = (mesh.centerX * world[2]) + (mesh.centerY * world[6]) + (mesh.centerZ * world[10]) + world[14];
+		// Largest scaling of the 3 axes
+		double scale = 0.0;
+		for (int row = 0; row < 3; row += 1) {
+			scale = Math.max(scale, (world[row * 4] * world[row * 4]) + (world[(row * 4) + 1] * world[(row * 4) + 1]) + (world[(row * 4) + 2] * world[(row * 4) + 2]));
+		}
+		double radius = mesh.boundingRadius * Math.sqrt(scale);
+		double distance = Math.sqrt(((x - this.cameraX) * (x - this.cameraX)) + ((y - this.cameraY) * (y - this.cameraY)) + ((z - this.cameraZ) * (z - this.cameraZ)));
+		return distance <= radius ? Double.POSITIVE_INFINITY : (radius * this.focalLength) / distance;
+	}
+
+	/**
+	 * Submits every instance to the pipeline, batch by batch - as of the last
+	 * update
+	 */
+	public void submit(Pipeline pipeline) {
+		for (int index = 0; index < this.batches.size(); index += 1) {
+			Batch batch = this.batches.get(index);
+			pipeline.submit(batch.mesh, batch.worldMatrices, batch.count);
+		}
+	}
+
+	public List<Batch> getBatches() {
+		return this.batches;
+	}
+
+	/**
+	 * Returns the number of nodes with a mesh as of the last update
+	 */
+	public int getInstanceCount() {
+		return this.instanceCount;
+	}
+
+	/**
+	 * Returns the number of triangles drawn as of the last update, after levels
+	 * of detail & before any culling
+	 */
+	public int getTriangleCount() {
+		return this.triangleCount;
+	}
+}
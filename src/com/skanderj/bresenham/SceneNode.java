@@ -0,0 +1,117 @@
+package com.skanderj.bresenham;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.skanderj.bresenham.math.Matrix4;
+
+/**
+ * Node of a scene - a transform relative to its parent & an optional mesh,
+ * shared with any number of other nodes, possibly with levels of detail to
+ * pick from. Nodes without a mesh only group their children
+ */
+public final class SceneNode {
+	// Transform relative to the parent, object->parent space
+	public final Matrix4 localMatrix;
+	// Object->world transform as of the last scene update
+	private final Matrix4 worldMatrix;
+	private Mesh mesh;
+	private LevelsOfDetail levelsOfDetail;
+	private SceneNode parent;
+	private final List<SceneNode> children;
+
+	public SceneNode(Mesh mesh) {
+		this.localMatrix = Matrix4.identity();
+		this.worldMatrix = Matrix4.identity();
+		this.mesh = mesh;
+		this.levelsOfDetail = null;
+		this.parent = null;
+		this.children = new ArrayList<SceneNode>();
+	}
+
+	/**
+	 * Attaches a node below this one - it leaves its previous parent
+	 */
+	public SceneNode addChild(SceneNode child) {
+		for (SceneNode ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+			if (ancestor == child) {
+				throw new IllegalArgumentException("A node can't be its own descendant");
+			}
+		}
+		if (child.parent != null) {
+			child.parent.children.remove(child);
+		}
+		child.parent = this;
+		this.children.add(child);
+		return child;
+	}
+
+	/**
+	 * Detaches a child of this node, with its own children
+	 */
+	public void removeChild(SceneNode child) {
+		if (this.children.remove(child)) {
+			child.parent = null;
+		}
+	}
+
+	/**
+	 * Recomputes the world matrices of this node & its descendants - local
+	 * first, then the parent's transform
+	 */
+	void updateWorldMatrix(Matrix4 parentWorldMatrix) {
+		if (parentWorldMatrix == null) {
+			this.worldMatrix.set(this.localMatrix);
+		} else {
+			Matrix4.product(this.localMatrix, parentWorldMatrix, this.worldMatrix);
+		}
+		for (int index = 0; index < this.children.size(); index += 1) {
+			this.children.get(index).updateWorldMatrix(this.worldMatrix);
+		}
+	}
+
+	/**
+	 * Replaces the mesh, null to draw nothing - the scene regroups its instances
+	 * on the next update. Levels of detail of another mesh are dropped
+	 */
+	public void setMesh(Mesh mesh) {
+		if ((this.levelsOfDetail != null) && (this.levelsOfDetail.getMesh() != mesh)) {
+			this.levelsOfDetail = null;
+		}
+		this.mesh = mesh;
+	}
+
+	/**
+	 * Draws the full mesh of the levels when the node is close, coarser levels
+	 * as it gets smaller on screen - null goes back to the full mesh only
+	 */
+	public void setLevelsOfDetail(LevelsOfDetail levelsOfDetail) {
+		this.levelsOfDetail = levelsOfDetail;
+		if (levelsOfDetail != null) {
+			this.mesh = levelsOfDetail.getMesh();
+		}
+	}
+
+	public LevelsOfDetail getLevelsOfDetail() {
+		return this.levelsOfDetail;
+	}
+
+	public Mesh getMesh() {
+		return this.mesh;
+	}
+
+	/**
+	 * Returns the object->world matrix as of the last scene update
+	 */
+	public Matrix4 getWorldMatrix() {
+		return this.worldMatrix;
+	}
+
+	public SceneNode getParent() {
+		return this.parent;
+	}
+
+	public List<SceneNode> getChildren() {
+		return this.children;
+	}
+}
@@ -0,0 +1,240 @@
+package com.skanderj.bresenham;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Opaque packed ARGB image with its whole mipmap chain, built once at load
+ * time with a box filter down to a single texel. Sizes are powers of 2 (images
+ * are resized when they aren't) so coordinates wrap with a mask, & every level
+ * is stored in Morton order - texels close on screen are close in memory
+ * whatever the direction the triangle is walked in. A texel's index is the sum
+ * of a column & a row offset, both looked up in per-level tables
+ */
+public final class Texture {
+	// Values interpolated across a textured triangle - u / w, v / w & 1 / w
+	public static final int VARYINGS = 3;
+	// Largest side of a level, in texels
+	public static final int MAXIMUM_SIZE = 1 << 13;
+
+	/**
+	 * How texels are picked - NEAREST takes the texel under the pixel, BILINEAR
+	 * blends the 4 texels around it
+	 */
+	public static enum Filter {
+		NEAREST, BILINEAR;
+	}
+
+	public final String name;
+	// Size of the finest level
+	public final int width, height;
+	public final int levelCount;
+	// Texels of each level, finest first, in Morton order
+	final int[][] levels;
+	// Index of the texel (x, y) of level l is columnOffsets[l][x] +
+	// rowOffsets[l][y]
+	final int[][] columnOffsets, rowOffsets;
+	// Size of each level minus one, to wrap coordinates
+	final int[] columnMasks, rowMasks;
+	// Level texels per level 0 texel, along each axis
+	final double[] scalesX, scalesY;
+
+	/**
+	 * Builds a texture from row-major pixels - the alpha channel is dropped
+	 */
+	public Texture(String name, int[] pixels, int width, int height) {
+		if (!Texture.isPowerOfTwo(width) || !Texture.isPowerOfTwo(height) || (width > Texture.MAXIMUM_SIZE) || (height > Texture.MAXIMUM_SIZE)) {
+			throw new IllegalArgumentException("Texture sides must be powers of 2 up to " + Texture.MAXIMUM_SIZE + ": " + width + "x" + height);
+		}
+		if (pixels.length < (width * height)) {
+			throw new IllegalArgumentException("Missing pixels: " + pixels.length + " for " + width + "x" + height);
+		}
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.levelCount = Integer.numberOfTrailingZeros(Math.max(width, height)) + 1;
+		this.levels = new int[this.levelCount][];
+		this.columnOffsets = new int[this.levelCount][];
+		this.rowOffsets = new int[this.levelCount][];
+		this.columnMasks = new int[this.levelCount];
+		this.rowMasks = new int[this.levelCount];
+		this.scalesX = new double[this.levelCount];
+		this.scalesY = new double[this.levelCount];
+		int[] level = new int[width * height];
+		for (int index = 0; index < level.length; index += 1) {
+			level[index] = 0xFF000000 | pixels[index];
+		}
+		int levelWidth = width, levelHeight = height;
+		for (int index = 0; index < this.levelCount; index += 1) {
+			if (index > 0) {
+				int previousWidth = levelWidth, previousHeight = levelHeight;
+				levelWidth = Math.max(1, levelWidth >> 1);
+				levelHeight = Math.max(1, levelHeight >> 1);
+				level = Texture.downsample(level, previousWidth, previousHeight, levelWidth, levelHeight);
+			}
+			// Low bits of both coordinates interleaved, the extra high bits of the
+			// longer side on top
+			int shared = Integer.numberOfTrailingZeros(Math.min(levelWidth, levelHeight));
+			this.columnOffsets[index] = Texture.mortonOffsets(levelWidth, shared, 0);
+			this.rowOffsets[index] = Texture.mortonOffsets(levelHeight, shared, 1);
+			this.columnMasks[index] = levelWidth - 1;
+			this.rowMasks[index] = levelHeight - 1;
+			this.scalesX[index] = (double) levelWidth / width;
+			this.scalesY[index] = (double) levelHeight / height;
+			int[] texels = new int[levelWidth * levelHeight];
+			for (int y = 0; y < levelHeight; y += 1) {
+				for (int x = 0; x < levelWidth; x += 1) {
+					texels[this.columnOffsets[index][x] + this.rowOffsets[index][y]] = level[(y * levelWidth) + x];
+				}
+			}
+			this.levels[index] = texels;
+		}
+	}
+
+	/**
+	 * Loads an image file (any format ImageIO reads) - sides that aren't powers
+	 * of 2 are scaled up to the next one
+	 */
+	public static Texture loadFromFile(String fileName) throws IOException {
+		BufferedImage image = ImageIO.read(new File(fileName));
+		if (image == null) {
+			throw new IOException("Unsupported image format: " + fileName);
+		}
+		int width = Math.min(Texture.MAXIMUM_SIZE, Texture.nextPowerOfTwo(image.getWidth()));
+		int height = Math.min(Texture.MAXIMUM_SIZE, Texture.nextPowerOfTwo(image.getHeight()));
+		if ((width != image.getWidth()) || (height != image.getHeight())) {
+			BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = resized.createGraphics();
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(image, 0, 0, width, height, null);
+			graphics.dispose();
+			image = resized;
+		}
+		return new Texture(fileName, image.getRGB(0, 0, width, height, null, 0, width), width, height);
+	}
+
+	/**
+	 * Square checkerboard of the given side, squares per side & colors
+	 */
+	public static Texture checkerboard(int size, int squares, int firstColor, int secondColor) {
+		int[] pixels = new int[size * size];
+		for (int y = 0; y < size; y += 1) {
+			for (int x = 0; x < size; x += 1) {
+				pixels[(y * size) + x] = ((((x * squares) / size) + ((y * squares) / size)) & 1) == 0 ? firstColor : secondColor;
+			}
+		}
+		return new Texture("checkerboard", pixels, size, size);
+	}
+
+	/**
+	 * Returns the memory taken by the texels of every level, in bytes
+	 */
+	public long byteSize() {
+		long texels = 0;
+		for (int[] level : this.levels) {
+			texels += level.length;
+		}
+		return texels * Integer.BYTES;
+	}
+
+	/**
+	 * Returns the level to sample where a pixel covers the given area of level
+	 * 0 texels - the one closest to a texel per pixel. Half the base 2 log of
+	 * the area, rounded, straight from its exponent
+	 */
+	public int selectLevel(double texelsPerPixel) {
+		if (!(texelsPerPixel > 1.0)) {
+			return 0;
+		}
+		return Math.min((Math.getExponent(texelsPerPixel) + 1) >> 1, this.levelCount - 1);
+	}
+
+	/**
+	 * Returns the texel of a level under the given coordinates, in level 0
+	 * texels - the texture repeats in both directions
+	 */
+	public int sampleNearest(int level, double u, double v) {
+		int x = ((int) Math.floor(u * this.scalesX[level])) & this.columnMasks[level];
+		int y = ((int) Math.floor(v * this.scalesY[level])) & this.rowMasks[level];
+		return this.levels[level][this.columnOffsets[level][x] + this.rowOffsets[level][y]];
+	}
+
+	/**
+	 * Same as above, blending the 4 texels of the level around the coordinates
+	 * with 8 bits weights
+	 */
+	public int sampleBilinear(int level, double u, double v) {
+		// Texel centres are at half coordinates
+		double levelU = (u * this.scalesX[level]) - 0.5, levelV = (v * this.scalesY[level]) - 0.5;
+		double floorU = Math.floor(levelU), floorV = Math.floor(levelV);
+		int weightX = (int) ((levelU - floorU) * 256.0), weightY = (int) ((levelV - floorV) * 256.0);
+		int columnMask = this.columnMasks[level], rowMask = this.rowMasks[level];
+		int[] columnOffsets = this.columnOffsets[level], rowOffsets = this.rowOffsets[level], texels = this.levels[level];
+		int left = columnOffsets[((int) floorU) & columnMask], right = columnOffsets[(((int) floorU) + 1) & columnMask];
+		int top = rowOffsets[((int) floorV) & rowMask], bottom = rowOffsets[(((int) floorV) + 1) & rowMask];
+		int upper = Texture.lerp(texels[left + top], texels[right + top], weightX);
+		int lower = Texture.lerp(texels[left + bottom], texels[right + bottom], weightX);
+		return Texture.lerp(upper, lower, weightY);
+	}
+
+	/**
+	 * Blends two opaque colors, weight from 0 (first) to 256 (second) - red &
+	 * blue are blended together in one multiply, green in another
+	 */
+	private static int lerp(int first, int second, int weight) {
+		int inverse = 256 - weight;
+		int redBlue = ((((first & 0xFF00FF) * inverse) + ((second & 0xFF00FF) * weight)) >>> 8) & 0xFF00FF;
+		int green = ((((first & 0xFF00) * inverse) + ((second & 0xFF00) * weight)) >>> 8) & 0xFF00;
+		return 0xFF000000 | redBlue | green;
+	}
+
+	/**
+	 * Halves a row-major level with a box filter - each texel averages the 2x2
+	 * block it comes from, or 2 texels when a side is already down to 1
+	 */
+	private static int[] downsample(int[] source, int sourceWidth, int sourceHeight, int width, int height) {
+		int[] target = new int[width * height];
+		int stepX = sourceWidth > width ? 1 : 0, stepY = sourceHeight > height ? 1 : 0;
+		for (int y = 0; y < height; y += 1) {
+			int top = (y << stepY) * sourceWidth, bottom = ((y << stepY) + stepY) * sourceWidth;
+			for (int x = 0; x < width; x += 1) {
+				int left = x << stepX, right = left + stepX;
+				int first = source[top + left], second = source[top + right], third = source[bottom + left], fourth = source[bottom + right];
+				int red = ((((first >> 16) & 0xFF) + ((second >> 16) & 0xFF) + ((third >> 16) & 0xFF) + ((fourth >> 16) & 0xFF)) + 2) >> 2;
+				int green = ((((first >> 8) & 0xFF) + ((second >> 8) & 0xFF) + ((third >> 8) & 0xFF) + ((fourth >> 8) & 0xFF)) + 2) >> 2;
+				int blue = (((first & 0xFF) + (second & 0xFF) + (third & 0xFF) + (fourth & 0xFF)) + 2) >> 2;
+				target[(y * width) + x] = Palette.pack(red, green, blue);
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Offsets of every coordinate along a side - its low shared bits spread to
+	 * every other bit starting at the given one, the rest above them
+	 */
+	private static int[] mortonOffsets(int size, int shared, int firstBit) {
+		int[] offsets = new int[size];
+		for (int coordinate = 0; coordinate < size; coordinate += 1) {
+			int offset = 0;
+			for (int bit = 0; bit < shared; bit += 1) {
+				offset |= ((coordinate >> bit) & 1) << ((2 * bit) + firstBit);
+			}
+			offsets[coordinate] = offset | ((coordinate >> shared) << (2 * shared));
+		}
+		return offsets;
+	}
+
+	private static boolean isPowerOfTwo(int value) {
+		return (value > 0) && ((value & (value - 1)) == 0);
+	}
+
+	private static int nextPowerOfTwo(int value) {
+		return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+	}
+}
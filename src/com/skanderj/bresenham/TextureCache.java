@@ -0,0 +1,116 @@
+package com.skanderj.bresenham;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Textures loaded by file name & kept within a memory budget - the least
+ * recently used ones are dropped once the texels of every kept texture (mipmaps
+ * included) add up to more than the budget, & loaded again from their file when
+ * needed. Callers should get textures from the cache every frame rather than
+ * hold on to them, so dropped textures can be collected. Files that fail to
+ * load are remembered & not tried again. Thread safe
+ */
+public final class TextureCache {
+	// Default budget - 64 MiB, a dozen 1024x1024 textures with their mipmaps
+	public static final long DEFAULT_BUDGET = 64L << 20;
+
+	private final long budget;
+	// Least recently used first
+	private final LinkedHashMap<String, Texture> textures;
+	// Files that couldn't be loaded
+	private final Set<String> failures;
+	private long size;
+	private long hits, misses, evictions;
+
+	public TextureCache() {
+		this(TextureCache.DEFAULT_BUDGET);
+	}
+
+	public TextureCache(long budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Budget must be positive: " + budget);
+		}
+		this.budget = budget;
+		this.textures = new LinkedHashMap<String, Texture>(16, 0.75f, true);
+		this.failures = new HashSet<String>();
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the texture of an image file, loading it on a miss & dropping the
+	 * least recently used textures until it fits - a texture larger than the
+	 * whole budget is returned without being kept. The first failure to load a
+	 * file is thrown, null is returned for it from then on
+	 */
+	public synchronized Texture get(String fileName) throws IOException {
+		Texture texture = this.textures.get(fileName);
+		if (texture != null) {
+			this.hits += 1;
+			return texture;
+		}
+		if (this.failures.contains(fileName)) {
+			return null;
+		}
+		this.misses += 1;
+		try {
+			texture = Texture.loadFromFile(fileName);
+		} catch (IOException | RuntimeException exception) {
+			this.failures.add(fileName);
+			throw exception;
+		}
+		long textureSize = texture.byteSize();
+		if (textureSize > this.budget) {
+			return texture;
+		}
+		Iterator<Map.Entry<String, Texture>> iterator = this.textures.entrySet().iterator();
+		while ((this.size + textureSize) > this.budget) {
+			this.size -= iterator.next().getValue().byteSize();
+			iterator.remove();
+			this.evictions += 1;
+		}
+		this.textures.put(fileName, texture);
+		this.size += textureSize;
+		return texture;
+	}
+
+	/**
+	 * Drops every texture & forgets failures
+	 */
+	public synchronized void clear() {
+		this.textures.clear();
+		this.failures.clear();
+		this.size = 0;
+	}
+
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * Returns the memory taken by the kept textures, in bytes
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	public synchronized int getCount() {
+		return this.textures.size();
+	}
+
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+}
@@ -0,0 +1,206 @@
+package com.skanderj.bresenham;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits the screen into square tiles, bins screen space triangles into the
+ * tiles they overlap & rasterizes the tiles in parallel - every tile keeps the
+ * submission order of its triangles & its own depth buffer, so the result is
+ * identical to drawing the triangles one after the other on a single thread
+ */
+public final class TileRenderer {
+	public static final int TILE_SIZE = 32;
+	private static final int TILE_AREA = TileRenderer.TILE_SIZE * TileRenderer.TILE_SIZE;
+	// Initial capacities of the triangles & bins buffers
+	private static final int INITIAL_CAPACITY = 1024, INITIAL_BIN_CAPACITY = 64;
+
+	private final int width, height;
+	private final int horizontalTiles, verticalTiles, tileCount;
+
+	// Queued triangles in submission order - (x, y, z) for each of the 3 points
+	// & their interpolated values, color & texture
+	private double[] coordinates, varyings;
+	private boolean withVaryings;
+	private int[] colors;
+	private Texture[] textures;
+	private int triangleCount;
+
+	// Indices of the triangles overlapping each tile, in submission order
+	private final int[][] bins;
+	private final int[] binCounts;
+	// Depth buffers of all tiles, one after the other
+	private final float[] tileDepth;
+
+	// Workers pull tiles from a shared counter until none are left
+	private final ForkJoinPool pool;
+	private final TileWorker[] workers;
+	private final AtomicInteger nextTile;
+	private Rasterizer target;
+
+	public TileRenderer(int width, int height, int parallelism) {
+		this.width = width;
+		this.height = height;
+		this.horizontalTiles = ((width + TileRenderer.TILE_SIZE) - 1) / TileRenderer.TILE_SIZE;
+		this.verticalTiles = ((height + TileRenderer.TILE_SIZE) - 1) / TileRenderer.TILE_SIZE;
+		this.tileCount = this.horizontalTiles * this.verticalTiles;
+		this.coordinates = new double[TileRenderer.INITIAL_CAPACITY * Triangle.SIDES * 3];
+		this.varyings = new double[TileRenderer.INITIAL_CAPACITY * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS];
+		this.withVaryings = false;
+		this.colors = new int[TileRenderer.INITIAL_CAPACITY];
+		this.textures = new Texture[TileRenderer.INITIAL_CAPACITY];
+		this.triangleCount = 0;
+		this.bins = new int[this.tileCount][TileRenderer.INITIAL_BIN_CAPACITY];
+		this.binCounts = new int[this.tileCount];
+		this.tileDepth = new float[this.tileCount * TileRenderer.TILE_AREA];
+		this.pool = new ForkJoinPool(parallelism);
+		this.workers = new TileWorker[parallelism];
+		for (int index = 0; index < parallelism; index += 1) {
+			this.workers[index] = new TileWorker();
+		}
+		this.nextTile = new AtomicInteger();
+	}
+
+	/**
+	 * Forgets the triangles of the previous frame & lets go of their textures
+	 */
+	public void reset() {
+		Arrays.fill(this.textures, 0, this.triangleCount, null);
+		this.triangleCount = 0;
+		this.withVaryings = false;
+		Arrays.fill(this.binCounts, 0);
+	}
+
+	/**
+	 * Queues a screen space triangle & adds it to the bins of every tile its
+	 * bounding box overlaps
+	 */
+	public void add(double firstX, double firstY, double firstZ, double secondX, double secondY, double secondZ, double thirdX, double thirdY, double thirdZ, int color) {
+		this.add(firstX, firstY, firstZ, secondX, secondY, secondZ, thirdX, thirdY, thirdZ, color, null, null, 0);
+	}
+
+	/**
+	 * Same as above with the triangle's texture & interpolated values, laid out
+	 * as the rasterizer expects them - null when the triangle has none
+	 */
+	public void add(double firstX, double firstY, double firstZ, double secondX, double secondY, double secondZ, double thirdX, double thirdY, double thirdZ, int color, Texture texture, double[] varyings, int varyingOffset) {
+		int minTileX = Math.max(0, (int) Math.floor(Math.min(firstX, Math.min(secondX, thirdX))) / TileRenderer.TILE_SIZE);
+		int maxTileX = Math.min(this.horizontalTiles - 1, (int) Math.floor(Math.max(firstX, Math.max(secondX, thirdX))) / TileRenderer.TILE_SIZE);
+		int minTileY = Math.max(0, (int) Math.floor(Math.min(firstY, Math.min(secondY, thirdY))) / TileRenderer.TILE_SIZE);
+		int maxTileY = Math.min(this.verticalTiles - 1, (int) Math.floor(Math.max(firstY, Math.max(secondY, thirdY))) / TileRenderer.TILE_SIZE);
+		if ((minTileX > maxTileX) || (minTileY > maxTileY)) {
+			return;
+		}
+		if (this.triangleCount == this.colors.length) {
+			this.coordinates = Arrays.copyOf(this.coordinates, this.coordinates.length * 2);
+			this.colors = Arrays.copyOf(this.colors, this.colors.length * 2);
+			this.textures = Arrays.copyOf(this.textures, this.textures.length * 2);
+			this.varyings = Arrays.copyOf(this.varyings, this.varyings.length * 2);
+		}
+		int triangle = this.triangleCount;
+		int target = triangle * Triangle.SIDES * 3;
+		this.coordinates[target] = firstX;
+		this.coordinates[target + 1] = firstY;
+		this.coordinates[target + 2] = firstZ;
+		this.coordinates[target + 3] = secondX;
+		this.coordinates[target + 4] = secondY;
+		this.coordinates[target + 5] = secondZ;
+		this.coordinates[target + 6] = thirdX;
+		this.coordinates[target + 7] = thirdY;
+		this.coordinates[target + 8] = thirdZ;
+		this.colors[triangle] = color;
+		this.textures[triangle] = varyings == null ? null : texture;
+		if (varyings != null) {
+			System.arraycopy(varyings, varyingOffset, this.varyings, triangle * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS, Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS);
+			this.withVaryings = true;
+		}
+		this.triangleCount += 1;
+		for (int tileY = minTileY; tileY <= maxTileY; tileY += 1) {
+			for (int tileX = minTileX; tileX <= maxTileX; tileX += 1) {
+				int tile = (tileY * this.horizontalTiles) + tileX;
+				if (this.binCounts[tile] == this.bins[tile].length) {
+					this.bins[tile] = Arrays.copyOf(this.bins[tile], this.bins[tile].length * 2);
+				}
+				this.bins[tile][this.binCounts[tile]] = triangle;
+				this.binCounts[tile] += 1;
+			}
+		}
+	}
+
+	/**
+	 * Rasterizes every tile into the framebuffer - returns the number of pixels
+	 * written once all tiles are done
+	 */
+	public long render(Rasterizer rasterizer) {
+		if ((rasterizer.width != this.width) || (rasterizer.height != this.height)) {
+			throw new IllegalStateException("Invalid dimensions");
+		}
+		this.target = rasterizer;
+		this.nextTile.set(0);
+		for (TileWorker worker : this.workers) {
+			worker.reinitialize();
+			this.pool.execute(worker);
+		}
+		long written = 0;
+		for (TileWorker worker : this.workers) {
+			worker.join();
+			written += worker.written;
+		}
+		this.target = null;
+		return written;
+	}
+
+	/**
+	 * Stops the worker threads - the renderer can't be used afterwards
+	 */
+	public void shutdown() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Draws the binned triangles of a single tile, clipped to the tile - returns
+	 * the number of pixels written
+	 */
+	private int renderTile(int tile, Interpolator interpolator) {
+		int count = this.binCounts[tile];
+		if (count == 0) {
+			return 0;
+		}
+		int tileX = (tile % this.horizontalTiles) * TileRenderer.TILE_SIZE, tileY = (tile / this.horizontalTiles) * TileRenderer.TILE_SIZE;
+		int maxX = Math.min(this.width, tileX + TileRenderer.TILE_SIZE) - 1, maxY = Math.min(this.height, tileY + TileRenderer.TILE_SIZE) - 1;
+		int depthBase = tile * TileRenderer.TILE_AREA;
+		Arrays.fill(this.tileDepth, depthBase, depthBase + TileRenderer.TILE_AREA, Float.POSITIVE_INFINITY);
+		// Pixel (x, y) of the tile lives at depthBase + ((y - tileY) * TILE_SIZE) + (x - tileX)
+		int depthOffset = depthBase - (tileY * TileRenderer.TILE_SIZE) - tileX;
+		int[] bin = this.bins[tile];
+		double[] varyings = this.withVaryings ? this.varyings : null;
+		int written = 0;
+		for (int index = 0; index < count; index += 1) {
+			int triangle = bin[index];
+			int source = triangle * Triangle.SIDES * 3;
+			double[] coordinates = this.coordinates;
+			written += this.target.fillTriangle(coordinates[source], coordinates[source + 1], coordinates[source + 2], coordinates[source + 3], coordinates[source + 4], coordinates[source + 5], coordinates[source + 6], coordinates[source + 7], coordinates[source + 8], this.colors[triangle], this.textures[triangle], varyings, triangle * Triangle.SIDES * Interpolator.MAXIMUM_VARYINGS, interpolator, tileX, tileY, maxX, maxY, this.tileDepth, depthOffset, TileRenderer.TILE_SIZE);
+		}
+		return written;
+	}
+
+	private final class TileWorker extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		// Pixels written by this worker during the last render & its own
+		// interpolated values
+		private long written;
+		private final Interpolator interpolator = new Interpolator();
+
+		@Override
+		protected void compute() {
+			this.written = 0;
+			int tile;
+			while ((tile = TileRenderer.this.nextTile.getAndIncrement()) < TileRenderer.this.tileCount) {
+				this.written += TileRenderer.this.renderTile(tile, this.interpolator);
+			}
+		}
+	}
+}
@@ -1,21 +1,21 @@
 package com.skanderj.bresenham;
 
-import java.awt.Color;
-
 import com.skanderj.bresenham.math.Matrix;
+import com.skanderj.bresenham.math.Matrix4;
 import com.skanderj.bresenham.math.Vector4D;
 
 public class Triangle implements Comparable<Triangle> {
 	public static final int SIDES = 3;
 
 	public Vector4D vectors[];
-	public Color color;
+	// Packed ARGB, see Palette
+	public int color;
 
 	public Triangle(Triangle model) {
 		this(model.vectors[0].copy(), model.vectors[1].copy(), model.vectors[2].copy(), model.color);
 	}
 
-	public Triangle(Vector4D firstPoint, Vector4D secondPoint, Vector4D thirdPoint, Color color) {
+	public Triangle(Vector4D firstPoint, Vector4D secondPoint, Vector4D thirdPoint, int color) {
 		this.vectors = new Vector4D[] { firstPoint, secondPoint, thirdPoint };
 		this.color = color;
 	}
@@ -23,7 +23,7 @@ public class Triangle implements Comparable<Triangle> {
 	/**
 	 * Converts a 3-by-4 matrix to a triangle - need to check size
 	 */
-	public static Triangle convertMatrixToTriangle(Matrix matrix, Color color) {
+	public static Triangle convertMatrixToTriangle(Matrix matrix, int color) {
 		Vector4D firstVector = new Vector4D(matrix.data[0][0], matrix.data[0][1], matrix.data[0][2], matrix.data[0][3]);
 		Vector4D secondVector = new Vector4D(matrix.data[1][0], matrix.data[1][1], matrix.data[1][2], matrix.data[1][3]);
 		Vector4D thirdVector = new Vector4D(matrix.data[2][0], matrix.data[2][1], matrix.data[2][2], matrix.data[2][3]);
@@ -51,6 +51,16 @@ public class Triangle implements Comparable<Triangle> {
 		return Triangle.convertMatrixToTriangle(resultMatrix, triangle.color);
 	}
 
+	/**
+	 * Same transformation with a fixed-size matrix - no intermediate matrices
+	 */
+	public static Triangle applyMatrixToTriangle_NW(Triangle triangle, Matrix4 matrix) {
+		Vector4D firstVector = Vector4D.applyMatrixToVector_MPW(triangle.vectors[0], matrix);
+		Vector4D secondVector = Vector4D.applyMatrixToVector_MPW(triangle.vectors[1], matrix);
+		Vector4D thirdVector = Vector4D.applyMatrixToVector_MPW(triangle.vectors[2], matrix);
+		return new Triangle(firstVector, secondVector, thirdVector, triangle.color);
+	}
+
 	/**
 	 * Returns a new triangle - sum of the initial triangle's vectors coordinates &
 	 * the initial vector - this implementation is messy and could be refactored
@@ -0,0 +1,422 @@
+package com.skanderj.bresenham.main;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.imageio.ImageIO;
+import javax.management.JMException;
+
+import com.skanderj.bresenham.Bresenham;
+import com.skanderj.bresenham.Camera;
+import com.skanderj.bresenham.FrameProfiler;
+import com.skanderj.bresenham.FramePresenter;
+import com.skanderj.bresenham.FrameRing;
+import com.skanderj.bresenham.LevelsOfDetail;
+import com.skanderj.bresenham.Mesh;
+import com.skanderj.bresenham.Pipeline;
+import com.skanderj.bresenham.Rasterizer;
+import com.skanderj.bresenham.Scene;
+import com.skanderj.bresenham.SceneNode;
+import com.skanderj.bresenham.Texture;
+import com.skanderj.bresenham.TextureCache;
+import com.skanderj.bresenham.TileRenderer;
+import com.skanderj.bresenham.math.Matrix4;
+import com.skanderj.bresenham.math.Vector4D;
+import com.skanderj.gingerbread.SimpleThread;
+
+/**
+ * Offscreen batch renderer - same pipeline & rasterizer as the game, without a
+ * window, keyboard or mouse
+ */
+public final class Headless {
+	public static final String USAGE = "Usage: --headless [--model file.obj] [--frames count] [--width pixels] [--height pixels] [--distance units] [--instances count] [--camera x,y,z,yaw[;x,y,z,yaw...]] [--output directory] [--format png|ppm] [--frame-buffers 2|3] [--threads count] [--parallel-threshold triangles] [--visibility depth|painter] [--frustum-culling on|off] [--guard-band pixels] [--lod on|off] [--shading flat|gouraud|phong] [--texture image] [--texture-filter nearest|bilinear] [--profile file.csv|file.json] [--profile-interval frames]";
+	// Frames between two lines of the profile dump by default
+	public static final int PROFILE_INTERVAL = 60;
+
+	private Headless() {
+		return;
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		// Defaults match the game window
+		String modelFileName = "teapot.obj", cameraPath = "0,0,0,0", outputDirectory = null, format = "png", profileFileName = null, textureFileName = null;
+		int frames = 60, width = Bresenham.WINDOW_WIDTH, height = Bresenham.WINDOW_HEIGHT, threads = Runtime.getRuntime().availableProcessors(), parallelThreshold = Pipeline.PARALLEL_THRESHOLD, instances = 1, guardBand = Pipeline.GUARD_BAND, profileInterval = Headless.PROFILE_INTERVAL, frameBuffers = FrameRing.MINIMUM_SIZE;
+		double distance = 8.0;
+		Pipeline.Visibility visibility = Pipeline.Visibility.DEPTH_BUFFER;
+		Pipeline.Shading shading = Pipeline.Shading.FLAT;
+		Texture.Filter textureFilter = Texture.Filter.BILINEAR;
+		boolean frustumCulling = true, levelsOfDetail = true;
+		double[][] keyframes;
+		try {
+			for (int index = 0; index < args.length; index += 2) {
+				if ((index + 1) == args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[index]);
+				}
+				String value = args[index + 1];
+				switch (args[index]) {
+				case "--model":
+					modelFileName = value;
+					break;
+				case "--frames":
+					frames = Integer.parseInt(value);
+					break;
+				case "--width":
+					width = Integer.parseInt(value);
+					break;
+				case "--height":
+					height = Integer.parseInt(value);
+					break;
+				case "--distance":
+					distance = Double.parseDouble(value);
+					break;
+				case "--instances":
+					instances = Integer.parseInt(value);
+					break;
+				case "--camera":
+					cameraPath = value;
+					break;
+				case "--output":
+					outputDirectory = value;
+					break;
+				case "--format":
+					format = value;
+					break;
+				case "--frame-buffers":
+					frameBuffers = Integer.parseInt(value);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(value);
+					break;
+				case "--parallel-threshold":
+					parallelThreshold = Integer.parseInt(value);
+					break;
+				case "--visibility":
+					if (value.equals("depth")) {
+						visibility = Pipeline.Visibility.DEPTH_BUFFER;
+					} else if (value.equals("painter")) {
+						visibility = Pipeline.Visibility.PAINTER;
+					} else {
+						throw new IllegalArgumentException("Unknown visibility " + value);
+					}
+					break;
+				case "--frustum-culling":
+					if (value.equals("on")) {
+						frustumCulling = true;
+					} else if (value.equals("off")) {
+						frustumCulling = false;
+					} else {
+						throw new IllegalArgumentException("Unknown frustum culling " + value);
+					}
+					break;
+				case "--guard-band":
+					guardBand = Integer.parseInt(value);
+					break;
+				case "--lod":
+					if (value.equals("on")) {
+						levelsOfDetail = true;
+					} else if (value.equals("off")) {
+						levelsOfDetail = false;
+					} else {
+						throw new IllegalArgumentException("Unknown levels of detail " + value);
+					}
+					break;
+				case "--shading":
+					if (value.equals("flat")) {
+						shading = Pipeline.Shading.FLAT;
+					} else if (value.equals("gouraud")) {
+						shading = Pipeline.Shading.GOURAUD;
+					} else if (value.equals("phong")) {
+						shading = Pipeline.Shading.PHONG;
+					} else {
+						throw new IllegalArgumentException("Unknown shading " + value);
+					}
+					break;
+				case "--texture":
+					textureFileName = value;
+					break;
+				case "--texture-filter":
+					if (value.equals("nearest")) {
+						textureFilter = Texture.Filter.NEAREST;
+					} else if (value.equals("bilinear")) {
+						textureFilter = Texture.Filter.BILINEAR;
+					} else {
+						throw new IllegalArgumentException("Unknown texture filter " + value);
+					}
+					break;
+				case "--profile":
+					profileFileName = value;
+					break;
+				case "--profile-interval":
+					profileInterval = Integer.parseInt(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[index]);
+				}
+			}
+			if ((frames <= 0) || (width <= 0) || (height <= 0) || (threads <= 0) || (instances <= 0) || (profileInterval <= 0)) {
+				throw new IllegalArgumentException("Frames, width, height, threads, instances & profile interval must be positive");
+			}
+			if ((profileFileName != null) && !profileFileName.endsWith(".csv") && !profileFileName.endsWith(".json")) {
+				throw new IllegalArgumentException("Profile must be a .csv or .json file: " + profileFileName);
+			}
+			if ((guardBand < 0) || (guardBand > Pipeline.MAXIMUM_GUARD_BAND)) {
+				throw new IllegalArgumentException("Guard band must be between 0 & " + Pipeline.MAXIMUM_GUARD_BAND);
+			}
+			if ((frameBuffers < FrameRing.MINIMUM_SIZE) || (frameBuffers > FrameRing.MAXIMUM_SIZE)) {
+				throw new IllegalArgumentException("Frame buffers must be between " + FrameRing.MINIMUM_SIZE + " & " + FrameRing.MAXIMUM_SIZE);
+			}
+			if (!format.equals("png") && !format.equals("ppm")) {
+				throw new IllegalArgumentException("Unknown format " + format);
+			}
+			keyframes = Headless.parseCameraPath(cameraPath);
+		} catch (IllegalArgumentException exception) {
+			System.err.println(exception.getMessage());
+			System.err.println(Headless.USAGE);
+			System.exit(SimpleThread.EXIT_FAILURE);
+			return;
+		}
+		try {
+			Headless.render(modelFileName, frames, width, height, threads, parallelThreshold, visibility, shading, textureFileName, textureFilter, frustumCulling, guardBand, levelsOfDetail, distance, instances, keyframes, outputDirectory == null ? null : new File(outputDirectory), format, frameBuffers, profileFileName == null ? null : new File(profileFileName), profileInterval);
+		} catch (IOException | InterruptedException exception) {
+			exception.printStackTrace();
+			System.exit(SimpleThread.EXIT_FAILURE);
+		}
+	}
+
+	/**
+	 * Renders the frames & prints throughput & per-stage timings - frames are
+	 * only written when an output directory is given. With more than one thread,
+	 * tiles are rasterized in parallel & meshes of at least parallelThreshold
+	 * triangles are transformed in parallel, triangles within guardBand pixels
+	 * of the screen aren't clipped to it. Several instances of the model are
+	 * laid out on a grid, sharing the mesh & its levels of detail when enabled,
+	 * lit with the given shading & textured with the given image when the
+	 * model has texture coordinates - null for none. Frames are drawn into a
+	 * ring of frameBuffers framebuffers & written by a present thread while the
+	 * next ones are rendered.
+	 * The profiler's averages are written to the profile file every
+	 * profileInterval frames, CSV rows or one JSON object per line depending on
+	 * its extension, & are published through JMX while rendering
+	 */
+	public static void render(String modelFileName, int frames, int width, int height, int threads, int parallelThreshold, Pipeline.Visibility visibility, Pipeline.Shading shading, String textureFileName, Texture.Filter textureFilter, boolean frustumCulling, int guardBand, boolean levelsOfDetail, double distance, int instances, double[][] keyframes, File outputDirectory, String format, int frameBuffers, File profileFile, int profileInterval) throws IOException, InterruptedException {
+		long loadStart = System.nanoTime();
+		Mesh mesh = Mesh.loadFromFile(modelFileName);
+		long loadTime = System.nanoTime() - loadStart;
+		long decimationStart = System.nanoTime();
+		LevelsOfDetail meshLevels = levelsOfDetail ? new LevelsOfDetail(mesh) : null;
+		long decimationTime = System.nanoTime() - decimationStart;
+		if ((outputDirectory != null) && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IOException("Can't create " + outputDirectory);
+		}
+		Rasterizer rasterizer = new Rasterizer(width, height);
+		Pipeline pipeline = new Pipeline(width, height, threads);
+		pipeline.setParallelThreshold(parallelThreshold);
+		pipeline.setVisibility(visibility);
+		pipeline.setShading(shading);
+		pipeline.setTextureFilter(textureFilter);
+		TextureCache textureCache = new TextureCache();
+		pipeline.setTextureCache(textureCache);
+		pipeline.setFrustumCulling(frustumCulling);
+		pipeline.setGuardBand(guardBand);
+		TileRenderer tileRenderer = threads > 1 ? new TileRenderer(width, height, threads) : null;
+		pipeline.setTileRenderer(tileRenderer);
+		FrameProfiler profiler = new FrameProfiler(profileInterval);
+		pipeline.setProfiler(profiler);
+		boolean registered = false;
+		try {
+			profiler.register();
+			registered = true;
+		} catch (JMException exception) {
+			System.err.println("Can't publish the profiler through JMX: " + exception.getMessage());
+		}
+		boolean json = (profileFile != null) && profileFile.getName().endsWith(".json");
+		Writer profileWriter = profileFile == null ? null : new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(profileFile)), StandardCharsets.UTF_8);
+		if ((profileWriter != null) && !json) {
+			profiler.writeCsvHeader(profileWriter);
+		}
+		Matrix4 projectionMatrix = Matrix4.projection(Bresenham.FIELD_OF_VIEW_IN_DEGREES, (double) height / width, Bresenham.NEAR_FIELD, Bresenham.FAR_FIELD, new Matrix4());
+		Scene scene = new Scene();
+		Headless.createGrid(scene, mesh, meshLevels, instances, distance);
+		double focalLength = projectionMatrix.data[5] * 0.5 * height;
+		Vector4D lightDirection = Vector4D.normalize(new Vector4D(0.0, 1.0, -1.0));
+		Camera camera = new Camera(new Vector4D(0.0, 0.0, 0.0), 0.0);
+		// Writing a frame is what presents it here, frames are only drawn into
+		// the rasterizer's own framebuffer when there's nothing to write
+		FrameRing ring = null;
+		FramePresenter presenter = null;
+		if (outputDirectory != null) {
+			ring = new FrameRing(width, height, frameBuffers);
+			presenter = FramePresenter.start(ring, Headless.createFrameWriter(outputDirectory, format, width, height));
+		}
+		long runStart = System.nanoTime();
+		long clearTime = 0, geometryTime = 0, rasterTime = 0, waitTime = 0, emittedTriangles = 0, drawnTriangles = 0;
+		for (int frame = 0; frame < frames; frame += 1) {
+			Headless.positionCamera(camera, keyframes, frames == 1 ? 0.0 : (double) frame / (frames - 1));
+			profiler.beginFrame();
+			long waitStart = System.nanoTime();
+			if (ring != null) {
+				if (presenter.getFailure() != null) {
+					break;
+				}
+				// Waits for the present thread only when every framebuffer is in use
+				rasterizer.setTarget(ring.getImage(ring.acquire()));
+			}
+			long start = System.nanoTime();
+			rasterizer.clear(0xFF000000);
+			long cleared = System.nanoTime();
+			scene.update(camera.location, focalLength);
+			pipeline.beginFrame(camera.getViewMatrix(), projectionMatrix, camera.location, lightDirection);
+			pipeline.setTexture(textureFileName == null ? null : textureCache.get(textureFileName));
+			scene.submit(pipeline);
+			long transformed = System.nanoTime();
+			pipeline.endFrame(rasterizer);
+			long rasterized = System.nanoTime();
+			if (ring != null) {
+				ring.publish();
+			}
+			// Presenting costs the render thread what it waited for a framebuffer
+			profiler.addTime(FrameProfiler.Stage.BLIT, start - waitStart);
+			profiler.endFrame();
+			if ((profileWriter != null) && ((((frame + 1) % profileInterval) == 0) || ((frame + 1) == frames))) {
+				if (json) {
+					profiler.writeJson(profileWriter);
+				} else {
+					profiler.writeCsvRow(profileWriter);
+				}
+			}
+			clearTime += cleared - start;
+			geometryTime += transformed - cleared;
+			rasterTime += rasterized - transformed;
+			waitTime += start - waitStart;
+			emittedTriangles += pipeline.getEmittedCount();
+			drawnTriangles += scene.getTriangleCount();
+		}
+		if (presenter != null) {
+			presenter.finish();
+		}
+		long runTime = System.nanoTime() - runStart;
+		if (tileRenderer != null) {
+			tileRenderer.shutdown();
+		}
+		pipeline.shutdown();
+		if (profileWriter != null) {
+			profileWriter.close();
+		}
+		if (registered) {
+			try {
+				profiler.unregister();
+			} catch (JMException exception) {
+				exception.printStackTrace();
+			}
+		}
+		double renderSeconds = (clearTime + geometryTime + rasterTime) / 1e9;
+		System.out.printf("%s: %d vertices, %d triangles, %d material(s), loaded in %.2f ms, %d instance(s)\n", modelFileName, mesh.vertexCount, mesh.triangleCount, mesh.submeshCount(), loadTime / 1e6, instances);
+		if (meshLevels != null) {
+			System.out.printf("%d levels of detail built in %.2f ms, %d triangles submitted per frame\n", meshLevels.levels.length, decimationTime / 1e6, drawnTriangles / frames);
+		}
+		System.out.printf("%d frames at %dx%d on %d thread(s), %.1f fps rendering, %.1f fps including output\n", frames, width, height, threads, frames / renderSeconds, frames / (runTime / 1e9));
+		System.out.printf("Per frame: clear %.3f ms, geometry %.3f ms, raster %.3f ms, %d triangles emitted\n", clearTime / 1e6 / frames, geometryTime / 1e6 / frames, rasterTime / 1e6 / frames, emittedTriangles / frames);
+		if (presenter != null) {
+			System.out.printf("Output: %d framebuffers, write %.3f ms on the present thread, %.3f ms waited for a framebuffer per frame\n", frameBuffers, presenter.getPresentNanos() / 1e6 / frames, waitTime / 1e6 / frames);
+		}
+		System.out.printf("Stages: transform %.3f ms, cull %.3f ms, clip %.3f ms, sort %.3f ms, raster %.3f ms, wait %.3f ms\n", profiler.getTotalMillis(FrameProfiler.Stage.TRANSFORM) / frames, profiler.getTotalMillis(FrameProfiler.Stage.CULL) / frames, profiler.getTotalMillis(FrameProfiler.Stage.CLIP) / frames, profiler.getTotalMillis(FrameProfiler.Stage.SORT) / frames, profiler.getTotalMillis(FrameProfiler.Stage.RASTER) / frames, profiler.getTotalMillis(FrameProfiler.Stage.BLIT) / frames);
+		System.out.printf("Triangles: %d in, %d culled, %d clipped, %d emitted, %d pixels shaded per frame\n", profiler.getTotalCount(FrameProfiler.Counter.TRIANGLES_IN) / frames, profiler.getTotalCount(FrameProfiler.Counter.TRIANGLES_CULLED) / frames, profiler.getTotalCount(FrameProfiler.Counter.TRIANGLES_CLIPPED) / frames, profiler.getTotalCount(FrameProfiler.Counter.TRIANGLES_EMITTED) / frames, profiler.getTotalCount(FrameProfiler.Counter.PIXELS_SHADED) / frames);
+		if (textureFileName != null) {
+			Texture texture = textureCache.get(textureFileName);
+			System.out.printf("%s: %dx%d, %d mipmap levels, %d KiB cached, loaded %d time(s)\n", textureFileName, texture.width, texture.height, texture.levelCount, textureCache.getSize() >> 10, textureCache.getMisses());
+		}
+	}
+
+	/**
+	 * Adds instances of the mesh to the scene on a square grid in the x-z plane,
+	 * 2.5 bounding radii apart - the first row is centred on the x axis at the
+	 * given distance, a single instance sits right there. Levels of detail are
+	 * optional
+	 */
+	public static void createGrid(Scene scene, Mesh mesh, LevelsOfDetail levelsOfDetail, int instances, double distance) {
+		int columns = (int) Math.ceil(Math.sqrt(instances));
+		double spacing = Math.max(1.0, 2.5 * mesh.boundingRadius);
+		for (int instance = 0; instance < instances; instance += 1) {
+			int row = instance / columns, column = instance % columns;
+			SceneNode node = scene.add(new SceneNode(mesh));
+			node.setLevelsOfDetail(levelsOfDetail);
+			Matrix4.translation((column - ((columns - 1) * 0.5)) * spacing, 0.0, distance + (row * spacing), node.localMatrix);
+		}
+	}
+
+	/**
+	 * Parses "x,y,z,yaw" keyframes separated by semicolons
+	 */
+	public static double[][] parseCameraPath(String cameraPath) {
+		String[] parts = cameraPath.split(";");
+		double[][] keyframes = new double[parts.length][];
+		for (int index = 0; index < parts.length; index += 1) {
+			String[] values = parts[index].trim().split(",");
+			if (values.length != 4) {
+				throw new IllegalArgumentException("Camera keyframes are x,y,z,yaw: " + parts[index]);
+			}
+			keyframes[index] = new double[4];
+			for (int component = 0; component < 4; component += 1) {
+				keyframes[index][component] = Double.parseDouble(values[component].trim());
+			}
+		}
+		return keyframes;
+	}
+
+	/**
+	 * Moves the camera along the keyframes - progress goes from 0 (first
+	 * keyframe) to 1 (last keyframe), linear in between
+	 */
+	public static void positionCamera(Camera camera, double[][] keyframes, double progress) {
+		double position = progress * (keyframes.length - 1);
+		int first = Math.min((int) position, keyframes.length - 1);
+		int second = Math.min(first + 1, keyframes.length - 1);
+		double blend = position - first;
+		camera.location.x = keyframes[first][0] + ((keyframes[second][0] - keyframes[first][0]) * blend);
+		camera.location.y = keyframes[first][1] + ((keyframes[second][1] - keyframes[first][1]) * blend);
+		camera.location.z = keyframes[first][2] + ((keyframes[second][2] - keyframes[first][2]) * blend);
+		camera.yaw = keyframes[first][3] + ((keyframes[second][3] - keyframes[first][3]) * blend);
+		camera.update();
+	}
+
+	/**
+	 * Returns the output of the present thread - each frame goes to its own
+	 * numbered file in the directory
+	 */
+	private static FramePresenter.Output createFrameWriter(File outputDirectory, String format, int width, int height) {
+		// Only touched by the present thread
+		byte[] ppmBuffer = format.equals("ppm") ? new byte[width * height * 3] : null;
+		return (frame, image, pixels) -> {
+			File file = new File(outputDirectory, String.format("frame%05d.%s", frame, format));
+			if (ppmBuffer == null) {
+				ImageIO.write(image, format, file);
+			} else {
+				Headless.writePPM(pixels, width, height, ppmBuffer, file);
+			}
+		};
+	}
+
+	/**
+	 * Writes a framebuffer as a binary PPM (P6) - no encoding, much faster than
+	 * PNG for large batches
+	 */
+	private static void writePPM(int[] pixels, int width, int height, byte[] buffer, File file) throws IOException {
+		for (int index = 0, offset = 0; index < pixels.length; index += 1, offset += 3) {
+			int pixel = pixels[index];
+			buffer[offset] = (byte) (pixel >> 16);
+			buffer[offset + 1] = (byte) (pixel >> 8);
+			buffer[offset + 2] = (byte) pixel;
+		}
+		try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+			outputStream.write(String.format("P6\n%d %d\n255\n", width, height).getBytes(StandardCharsets.US_ASCII));
+			outputStream.write(buffer);
+		}
+	}
+}
@@ -1,13 +1,22 @@
 package com.skanderj.bresenham.main;
 
+import java.util.Arrays;
+
 import com.skanderj.bresenham.Bresenham;
 
 public final class Main {
+	public static final String HEADLESS_FLAG = "--headless";
+
 	private Main() {
 		return;
 	}
 
 	public static void main(String[] args) {
+		// Offscreen batch rendering, no window
+		if ((args.length > 0) && args[0].equals(Main.HEADLESS_FLAG)) {
+			Headless.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		Bresenham bresenham = Bresenham.getInstance();
 		bresenham.start();
 	}
@@ -0,0 +1,340 @@
+package com.skanderj.bresenham.math;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size 4-by-4 matrix stored as a flat array, row by row - every
+ * operation writes into a caller-provided result so nothing is allocated in the
+ * per-frame paths
+ */
+public final class Matrix4 {
+	public static final int SIZE = 4;
+
+	public final double[] data;
+
+	public Matrix4() {
+		this.data = new double[Matrix4.SIZE * Matrix4.SIZE];
+	}
+
+	public Matrix4(Matrix matrix) {
+		this();
+		this.set(matrix);
+	}
+
+	public Matrix4(Matrix4 matrix) {
+		this();
+		this.set(matrix);
+	}
+
+	public static final Matrix4 identity() {
+		return new Matrix4().setIdentity();
+	}
+
+	/**
+	 * Returns the value at the given row & column
+	 */
+	public final double get(int row, int line) {
+		return this.data[(row * Matrix4.SIZE) + line];
+	}
+
+	/**
+	 * Sets the value at the given row & column
+	 */
+	public final void set(int row, int line, double value) {
+		this.data[(row * Matrix4.SIZE) + line] = value;
+	}
+
+	/**
+	 * Copies the content of another 4-by-4 matrix
+	 */
+	public final Matrix4 set(Matrix4 matrix) {
+		System.arraycopy(matrix.data, 0, this.data, 0, this.data.length);
+		return this;
+	}
+
+	/**
+	 * Copies the content of a generic 4-by-4 matrix
+	 */
+	public final Matrix4 set(Matrix matrix) {
+		for (int row = 0; row < Matrix4.SIZE; row += 1) {
+			for (int line = 0; line < Matrix4.SIZE; line += 1) {
+				this.data[(row * Matrix4.SIZE) + line] = matrix.data[row][line];
+			}
+		}
+		return this;
+	}
+
+	public final Matrix4 setIdentity() {
+		for (int cursor = 0; cursor < this.data.length; cursor += 1) {
+			this.data[cursor] = (cursor % (Matrix4.SIZE + 1)) == 0 ? 1.0 : 0.0;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns a generic matrix with the same content
+	 */
+	public final Matrix toMatrix() {
+		Matrix matrix = new Matrix(Matrix4.SIZE, Matrix4.SIZE);
+		for (int row = 0; row < Matrix4.SIZE; row += 1) {
+			for (int line = 0; line < Matrix4.SIZE; line += 1) {
+				matrix.data[row][line] = this.data[(row * Matrix4.SIZE) + line];
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Writes the first * second product into the result - the result may be
+	 * either of the operands
+	 */
+	public static final Matrix4 product(Matrix4 firstMatrix, Matrix4 secondMatrix, Matrix4 resultMatrix) {
+		double[] first = firstMatrix.data, second = secondMatrix.data, result = resultMatrix.data;
+		double value00 = (first[0] * second[0]) + (first[1] * second[4]) + (first[2] * second[8]) + (first[3] * second[12]);
+		double value01 = (first[0] * second[1]) + (first[1] * second[5]) + (first[2] * second[9]) + (first[3] * second[13]);
+		double value02 = (first[0] * second[2]) + (first[1] * second[6]) + (first[2] * second[10]) + (first[3] * second[14]);
+		double value03 = (first[0] * second[3]) + (first[1] * second[7]) + (first[2] * second[11]) + (first[3] * second[15]);
+		double value10 = (first[4] * second[0]) + (first[5] * second[4]) + (first[6] * second[8]) + (first[7] * second[12]);
+		double value11 = (first[4] * second[1]) + (first[5] * second[5]) + (first[6] * second[9]) + (first[7] * second[13]);
+		double value12 = (first[4] * second[2]) + (first[5] * second[6]) + (first[6] * second[10]) + (first[7] * second[14]);
+		double value13 = (first[4] * second[3]) + (first[5] * second[7]) + (first[6] * second[11]) + (first[7] * second[15]);
+		double value20 = (first[8] * second[0]) + (first[9] * second[4]) + (first[10] * second[8]) + (first[11] * second[12]);
+		double value21 = (first[8] * second[1]) + (first[9] * second[5]) + (first[10] * second[9]) + (first[11] * second[13]);
+		double value22 = (first[8] * second[2]) + (first[9] * second[6]) + (first[10] * second[10]) + (first[11] * second[14]);
+		double value23 = (first[8] * second[3]) + (first[9] * second[7]) + (first[10] * second[11]) + (first[11] * second[15]);
+		double value30 = (first[12] * second[0]) + (first[13] * second[4]) + (first[14] * second[8]) + (first[15] * second[12]);
+		double value31 = (first[12] * second[1]) + (first[13] * second[5]) + (first[14] * second[9]) + (first[15] * second[13]);
+		double value32 = (first[12] * second[2]) + (first[13] * second[6]) + (first[14] * second[10]) + (first[15] * second[14]);
+		double value33 = (first[12] * second[3]) + (first[13] * second[7]) + (first[14] * second[11]) + (first[15] * second[15]);
+		result[0] = value00;
+		result[1] = value01;
+		result[2] = value02;
+		result[3] = value03;
+		result[4] = value10;
+		result[5] = value11;
+		result[6] = value12;
+		result[7] = value13;
+		result[8] = value20;
+		result[9] = value21;
+		result[10] = value22;
+		result[11] = value23;
+		result[12] = value30;
+		result[13] = value31;
+		result[14] = value32;
+		result[15] = value33;
+		return resultMatrix;
+	}
+
+	/**
+	 * Returns the determinant - closed form, no minors are built
+	 */
+	public static final double determinant(Matrix4 matrix) {
+		double[] source = matrix.data;
+		double m00 = source[0], m01 = source[1], m02 = source[2], m03 = source[3];
+		double m10 = source[4], m11 = source[5], m12 = source[6], m13 = source[7];
+		double m20 = source[8], m21 = source[9], m22 = source[10], m23 = source[11];
+		double m30 = source[12], m31 = source[13], m32 = source[14], m33 = source[15];
+		double firstLower = (m00 * m11) - (m10 * m01), secondLower = (m00 * m12) - (m10 * m02), thirdLower = (m00 * m13) - (m10 * m03);
+		double fourthLower = (m01 * m12) - (m11 * m02), fifthLower = (m01 * m13) - (m11 * m03), sixthLower = (m02 * m13) - (m12 * m03);
+		double firstUpper = (m20 * m31) - (m30 * m21), secondUpper = (m20 * m32) - (m30 * m22), thirdUpper = (m20 * m33) - (m30 * m23);
+		double fourthUpper = (m21 * m32) - (m31 * m22), fifthUpper = (m21 * m33) - (m31 * m23), sixthUpper = (m22 * m33) - (m32 * m23);
+		return ((firstLower * sixthUpper) - (secondLower * fifthUpper)) + (thirdLower * fourthUpper) + (fourthLower * thirdUpper) - (fifthLower * secondUpper) + (sixthLower * firstUpper);
+	}
+
+	/**
+	 * Writes the inverse of any invertible 4-by-4 matrix into the result -
+	 * closed form through the 2-by-2 sub-determinants of the top & bottom row
+	 * pairs, the result may be the source
+	 */
+	public static final Matrix4 inverse(Matrix4 matrix, Matrix4 resultMatrix) {
+		double[] source = matrix.data, result = resultMatrix.data;
+		double m00 = source[0], m01 = source[1], m02 = source[2], m03 = source[3];
+		double m10 = source[4], m11 = source[5], m12 = source[6], m13 = source[7];
+		double m20 = source[8], m21 = source[9], m22 = source[10], m23 = source[11];
+		double m30 = source[12], m31 = source[13], m32 = source[14], m33 = source[15];
+		double firstLower = (m00 * m11) - (m10 * m01), secondLower = (m00 * m12) - (m10 * m02), thirdLower = (m00 * m13) - (m10 * m03);
+		double fourthLower = (m01 * m12) - (m11 * m02), fifthLower = (m01 * m13) - (m11 * m03), sixthLower = (m02 * m13) - (m12 * m03);
+		double firstUpper = (m20 * m31) - (m30 * m21), secondUpper = (m20 * m32) - (m30 * m22), thirdUpper = (m20 * m33) - (m30 * m23);
+		double fourthUpper = (m21 * m32) - (m31 * m22), fifthUpper = (m21 * m33) - (m31 * m23), sixthUpper = (m22 * m33) - (m32 * m23);
+		double determinant = ((firstLower * sixthUpper) - (secondLower * fifthUpper)) + (thirdLower * fourthUpper) + (fourthLower * thirdUpper) - (fifthLower * secondUpper) + (sixthLower * firstUpper);
+		if (determinant == 0.0) {
+			throw new IllegalStateException("Singular matrix");
+		}
+		double inverseDeterminant = 1.0 / determinant;
+		result[0] = ((m11 * sixthUpper) - (m12 * fifthUpper) + (m13 * fourthUpper)) * inverseDeterminant;
+		result[1] = ((-m01 * sixthUpper) + (m02 * fifthUpper) - (m03 * fourthUpper)) * inverseDeterminant;
+		result[2] = ((m31 * sixthLower) - (m32 * fifthLower) + (m33 * fourthLower)) * inverseDeterminant;
+		result[3] = ((-m21 * sixthLower) + (m22 * fifthLower) - (m23 * fourthLower)) * inverseDeterminant;
+		result[4] = ((-m10 * sixthUpper) + (m12 * thirdUpper) - (m13 * secondUpper)) * inverseDeterminant;
+		result[5] = ((m00 * sixthUpper) - (m02 * thirdUpper) + (m03 * secondUpper)) * inverseDeterminant;
+		result[6] = ((-m30 * sixthLower) + (m32 * thirdLower) - (m33 * secondLower)) * inverseDeterminant;
+		result[7] = ((m20 * sixthLower) - (m22 * thirdLower) + (m23 * secondLower)) * inverseDeterminant;
+		result[8] = ((m10 * fifthUpper) - (m11 * thirdUpper) + (m13 * firstUpper)) * inverseDeterminant;
+		result[9] = ((-m00 * fifthUpper) + (m01 * thirdUpper) - (m03 * firstUpper)) * inverseDeterminant;
+		result[10] = ((m30 * fifthLower) - (m31 * thirdLower) + (m33 * firstLower)) * inverseDeterminant;
+		result[11] = ((-m20 * fifthLower) + (m21 * thirdLower) - (m23 * firstLower)) * inverseDeterminant;
+		result[12] = ((-m10 * fourthUpper) + (m11 * secondUpper) - (m12 * firstUpper)) * inverseDeterminant;
+		result[13] = ((m00 * fourthUpper) - (m01 * secondUpper) + (m02 * firstUpper)) * inverseDeterminant;
+		result[14] = ((-m30 * fourthLower) + (m31 * secondLower) - (m32 * firstLower)) * inverseDeterminant;
+		result[15] = ((m20 * fourthLower) - (m21 * secondLower) + (m22 * firstLower)) * inverseDeterminant;
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes the inverse of an affine matrix (last column 0, 0, 0, 1 - rotation,
+	 * scale & translation) into the result - only the upper 3-by-3 block is
+	 * inverted, the translation row follows from it - the result may be the
+	 * source
+	 */
+	public static final Matrix4 affineInverse(Matrix4 matrix, Matrix4 resultMatrix) {
+		double[] source = matrix.data, result = resultMatrix.data;
+		double m00 = source[0], m01 = source[1], m02 = source[2], m03 = source[3];
+		double m10 = source[4], m11 = source[5], m12 = source[6], m13 = source[7];
+		double m20 = source[8], m21 = source[9], m22 = source[10], m23 = source[11];
+		double m30 = source[12], m31 = source[13], m32 = source[14], m33 = source[15];
+		double firstCofactor = (m11 * m22) - (m12 * m21), secondCofactor = (m12 * m20) - (m10 * m22), thirdCofactor = (m10 * m21) - (m11 * m20);
+		double determinant = (m00 * firstCofactor) + (m01 * secondCofactor) + (m02 * thirdCofactor);
+		if (determinant == 0.0) {
+			throw new IllegalStateException("Singular matrix");
+		}
+		double inverseDeterminant = 1.0 / determinant;
+		double i00 = firstCofactor * inverseDeterminant;
+		double i01 = ((m02 * m21) - (m01 * m22)) * inverseDeterminant;
+		double i02 = ((m01 * m12) - (m02 * m11)) * inverseDeterminant;
+		double i10 = secondCofactor * inverseDeterminant;
+		double i11 = ((m00 * m22) - (m02 * m20)) * inverseDeterminant;
+		double i12 = ((m02 * m10) - (m00 * m12)) * inverseDeterminant;
+		double i20 = thirdCofactor * inverseDeterminant;
+		double i21 = ((m01 * m20) - (m00 * m21)) * inverseDeterminant;
+		double i22 = ((m00 * m11) - (m01 * m10)) * inverseDeterminant;
+		result[0] = i00;
+		result[1] = i01;
+		result[2] = i02;
+		result[3] = 0.0;
+		result[4] = i10;
+		result[5] = i11;
+		result[6] = i12;
+		result[7] = 0.0;
+		result[8] = i20;
+		result[9] = i21;
+		result[10] = i22;
+		result[11] = 0.0;
+		result[12] = -((m30 * i00) + (m31 * i10) + (m32 * i20));
+		result[13] = -((m30 * i01) + (m31 * i11) + (m32 * i21));
+		result[14] = -((m30 * i02) + (m31 * i12) + (m32 * i22));
+		result[15] = 1.0;
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes the projection (view->screen) matrix into the result
+	 */
+	public static final Matrix4 projection(double fieldOfViewInDegrees, double aspectRatio, double nearField, double farField, Matrix4 resultMatrix) {
+		double tangentToFieldOfView = 1.0 / Math.tan(Math.toRadians(fieldOfViewInDegrees) * 0.5);
+		double[] result = resultMatrix.data;
+		Arrays.fill(result, 0.0);
+		result[0] = aspectRatio * tangentToFieldOfView;
+		result[5] = tangentToFieldOfView;
+		result[10] = farField / (farField - nearField);
+		result[11] = 1.0;
+		result[14] = (-farField * nearField) / (farField - nearField);
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes a translation matrix into the result
+	 */
+	public static final Matrix4 translation(double x, double y, double z, Matrix4 resultMatrix) {
+		resultMatrix.setIdentity();
+		resultMatrix.data[12] = x;
+		resultMatrix.data[13] = y;
+		resultMatrix.data[14] = z;
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes a rotation matrix around the x axis into the result
+	 */
+	public static final Matrix4 xRotation(double angle, Matrix4 resultMatrix) {
+		double cosine = Math.cos(angle), sine = Math.sin(angle);
+		resultMatrix.setIdentity();
+		resultMatrix.data[5] = cosine;
+		resultMatrix.data[6] = sine;
+		resultMatrix.data[9] = -sine;
+		resultMatrix.data[10] = cosine;
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes a rotation matrix around the y axis into the result
+	 */
+	public static final Matrix4 yRotation(double angle, Matrix4 resultMatrix) {
+		double cosine = Math.cos(angle), sine = Math.sin(angle);
+		resultMatrix.setIdentity();
+		resultMatrix.data[0] = cosine;
+		resultMatrix.data[2] = sine;
+		resultMatrix.data[8] = -sine;
+		resultMatrix.data[10] = cosine;
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes a rotation matrix around the z axis into the result
+	 */
+	public static final Matrix4 zRotation(double angle, Matrix4 resultMatrix) {
+		double cosine = Math.cos(angle), sine = Math.sin(angle);
+		resultMatrix.setIdentity();
+		resultMatrix.data[0] = cosine;
+		resultMatrix.data[1] = sine;
+		resultMatrix.data[4] = -sine;
+		resultMatrix.data[5] = cosine;
+		return resultMatrix;
+	}
+
+	/**
+	 * Writes the "eye" matrix relative to the object position and an "up" vector
+	 * into the result - same as Bresenham.pointAt without the intermediate
+	 * vectors
+	 */
+	public static final Matrix4 pointAt(Vector4D position, Vector4D target, Vector4D reference, Matrix4 resultMatrix) {
+		// Forward direction relative to position
+		double forwardX = target.x - position.x, forwardY = target.y - position.y, forwardZ = target.z - position.z;
+		double forwardLength = Math.sqrt((forwardX * forwardX) + (forwardY * forwardY) + (forwardZ * forwardZ));
+		forwardX /= forwardLength;
+		forwardY /= forwardLength;
+		forwardZ /= forwardLength;
+		// Up direction relative to forward
+		double referenceDotProduct = (reference.x * forwardX) + (reference.y * forwardY) + (reference.z * forwardZ);
+		double upX = reference.x - (forwardX * referenceDotProduct), upY = reference.y - (forwardY * referenceDotProduct), upZ = reference.z - (forwardZ * referenceDotProduct);
+		double upLength = Math.sqrt((upX * upX) + (upY * upY) + (upZ * upZ));
+		upX /= upLength;
+		upY /= upLength;
+		upZ /= upLength;
+		// Right as cross product of up & forward
+		double rightX = (upY * forwardZ) - (upZ * forwardY), rightY = (upZ * forwardX) - (upX * forwardZ), rightZ = (upX * forwardY) - (upY * forwardX);
+		double[] result = resultMatrix.data;
+		result[0] = rightX;
+		result[1] = rightY;
+		result[2] = rightZ;
+		result[3] = 0.0;
+		result[4] = upX;
+		result[5] = upY;
+		result[6] = upZ;
+		result[7] = 0.0;
+		result[8] = forwardX;
+		result[9] = forwardY;
+		result[10] = forwardZ;
+		result[11] = 0.0;
+		result[12] = position.x;
+		result[13] = position.y;
+		result[14] = position.z;
+		result[15] = 1.0;
+		return resultMatrix;
+	}
+
+	public final void print() {
+		for (int row = 0; row < Matrix4.SIZE; row += 1) {
+			System.out.printf("[\t%f\t%f\t%f\t%f\t]\n", this.get(row, 0), this.get(row, 1), this.get(row, 2), this.get(row, 3));
+		}
+	}
+}
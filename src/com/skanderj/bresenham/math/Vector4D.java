@@ -120,6 +120,18 @@ public class Vector4D {
 		return Vector4D.convertMatrixToVector4D(productMatrix);
 	}
 
+	/**
+	 * Same product with a fixed-size matrix - no intermediate matrices
+	 */
+	public static Vector4D applyMatrixToVector_MPW(Vector4D vector, Matrix4 matrix) {
+		double[] data = matrix.data;
+		double x = (vector.x * data[0]) + (vector.y * data[4]) + (vector.z * data[8]) + (vector.w * data[12]);
+		double y = (vector.x * data[1]) + (vector.y * data[5]) + (vector.z * data[9]) + (vector.w * data[13]);
+		double z = (vector.x * data[2]) + (vector.y * data[6]) + (vector.z * data[10]) + (vector.w * data[14]);
+		double w = (vector.x * data[3]) + (vector.y * data[7]) + (vector.z * data[11]) + (vector.w * data[15]);
+		return new Vector4D(x, y, z, w);
+	}
+
 	/**
 	 * Scales a vector to viewing distance
 	 */